@@ -0,0 +1,118 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The weight kernels of the contraction engine, scalar against vector, over
+ * the incoming segments of every vertex of a random graph of about 4M
+ * edges: the cheapest weight, taking it off, and the search for 0 edges.
+ * <p>
+ * The forks run with jdk.incubator.vector, without it the vector kernels
+ * are not loaded. The whole engine with one or the other is
+ * {@link PhaseBenchmark} run with
+ * -jvmArgsAppend "--add-modules=jdk.incubator.vector -Ddirectedmst.kernels=scalar".
+ *
+ * @author Jun Yu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+    static final int EDGES = 1 << 22;
+
+    static final MethodHandle MIN;
+    static final MethodHandle SUBTRACT;
+    static final MethodHandle NEXT_ZERO;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> kernels = Class.forName("WeightKernels");
+            MIN = lookup.findVirtual(kernels, "min", MethodType.methodType(int.class,
+                    int[].class, int[].class, int.class, int.class));
+            SUBTRACT = lookup.findVirtual(kernels, "subtract", MethodType.methodType(void.class,
+                    int[].class, int[].class, int.class, int.class, int.class));
+            NEXT_ZERO = lookup.findVirtual(kernels, "nextZero", MethodType.methodType(int.class,
+                    int[].class, int[].class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Segments {
+        @Param({"scalar", "vector"})
+        String kernels;
+
+        @Param({"4", "32", "256"})
+        int degree;
+
+        Object instance;
+        int numVertices;
+        int[] weight;
+        // edge ids grouped by head, the segment of v is [start[v], start[v + 1])
+        int[] index;
+        int[] start;
+        int delta = 1;
+
+        @Setup(Level.Trial)
+        public void prepare() throws ReflectiveOperationException {
+            instance = Class.forName(kernels.equals("vector") ? "VectorWeightKernels" : "ScalarWeightKernels")
+                    .getDeclaredConstructor().newInstance();
+            numVertices = EDGES / degree;
+            RandomGraph graph = new RandomGraph(numVertices, degree, 1000, 42);
+            weight = graph.weight.clone();
+            index = new int[graph.numEdges];
+            start = new int[numVertices + 2];
+            for (int e = 0; e < graph.numEdges; e++) {
+                start[graph.to[e] + 1]++;
+            }
+            for (int v = 0; v <= numVertices; v++) {
+                start[v + 1] += start[v];
+            }
+            int[] fill = start.clone();
+            for (int e = 0; e < graph.numEdges; e++) {
+                index[fill[graph.to[e]]++] = e;
+            }
+        }
+    }
+
+    @Benchmark
+    public long min(Segments s) throws Throwable {
+        long sum = 0;
+        for (int v = 1; v <= s.numVertices; v++) {
+            sum += (int) MIN.invoke(s.instance, s.weight, s.index, s.start[v], s.start[v + 1]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int[] subtract(Segments s) throws Throwable {
+        // back and forth, so the weights stay where they were
+        s.delta = -s.delta;
+        for (int v = 1; v <= s.numVertices; v++) {
+            SUBTRACT.invoke(s.instance, s.weight, s.index, s.start[v], s.start[v + 1], s.delta);
+        }
+        return s.weight;
+    }
+
+    @Benchmark
+    public long nextZero(Segments s) throws Throwable {
+        long found = 0;
+        for (int v = 1; v <= s.numVertices; v++) {
+            int end = s.start[v + 1];
+            for (int p = (int) NEXT_ZERO.invoke(s.instance, s.weight, s.index, s.start[v], end); p < end;
+                 p = (int) NEXT_ZERO.invoke(s.instance, s.weight, s.index, p + 1, end)) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
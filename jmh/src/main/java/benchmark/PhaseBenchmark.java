@@ -0,0 +1,196 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One step of each phase of the contraction engine, on a graph brought to
+ * the state the phase expects.
+ * <p>
+ * The phases change the graph in place, so every iteration starts from a
+ * freshly built graph and runs the phase once. Building the graph allocates
+ * far more than any phase, and -prof gc would count it too, so the bytes
+ * allocated by the phase alone are reported as the {@code allocatedBytes}
+ * counter, summed over the measurement iterations.
+ *
+ * @author Jun Yu
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"1000", "10000", "100000"})
+        int vertices;
+
+        @Param({"4", "32"})
+        int degree;
+
+        RandomGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            graph = new RandomGraph(vertices, degree, 1000, 42);
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread inside the measured call
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Allocation {
+        static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        public long allocatedBytes;
+        long start;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            allocatedBytes = 0;
+        }
+
+        void begin() {
+            start = THREADS.getCurrentThreadAllocatedBytes();
+        }
+
+        void end() {
+            allocatedBytes += THREADS.getCurrentThreadAllocatedBytes() - start;
+        }
+    }
+
+    /**
+     * Freshly indexed graph
+     */
+    @State(Scope.Thread)
+    public static class Indexed {
+        Solver solver;
+
+        @Setup(Level.Iteration)
+        public void prepare(Input input) {
+            solver = new Solver(input.graph);
+            solver.buildIndex();
+        }
+    }
+
+    /**
+     * Weights transformed, every vertex but the source has a 0 edge
+     */
+    @State(Scope.Thread)
+    public static class Transformed {
+        Solver solver;
+
+        @Setup(Level.Iteration)
+        public void prepare(Input input) {
+            solver = new Solver(input.graph);
+            solver.buildIndex();
+            solver.transformWeight();
+        }
+    }
+
+    /**
+     * 0 edge tree grown, a vertex it does not reach found
+     */
+    @State(Scope.Thread)
+    public static class Unreached {
+        Solver solver;
+        int z_index;
+
+        @Setup(Level.Iteration)
+        public void prepare(Input input) {
+            solver = new Solver(input.graph);
+            solver.buildIndex();
+            solver.transformWeight();
+            solver.bfsMSTUsingZeroWeight();
+            z_index = solver.verifyMST();
+        }
+    }
+
+    /**
+     * First cycle of 0 edges found
+     */
+    @State(Scope.Thread)
+    public static class Cycle {
+        Solver solver;
+        int cycle;
+
+        @Setup(Level.Iteration)
+        public void prepare(Input input) {
+            solver = new Solver(input.graph);
+            solver.buildIndex();
+            solver.transformWeight();
+            solver.bfsMSTUsingZeroWeight();
+            cycle = solver.walkBackward(solver.verifyMST());
+        }
+    }
+
+    /**
+     * First cycle shrunk and the 0 edge tree grown again
+     */
+    @State(Scope.Thread)
+    public static class Shrunk {
+        Solver solver;
+        int cycle;
+        int x_index;
+
+        @Setup(Level.Iteration)
+        public void prepare(Input input) {
+            solver = new Solver(input.graph);
+            solver.buildIndex();
+            solver.transformWeight();
+            solver.bfsMSTUsingZeroWeight();
+            cycle = solver.walkBackward(solver.verifyMST());
+            x_index = solver.shrinkCycle(cycle);
+            solver.transformWeight();
+            solver.bfsMSTUsingZeroWeight();
+        }
+    }
+
+    @Benchmark
+    public long transformWeight(Indexed state, Allocation allocation) {
+        allocation.begin();
+        long reduction = state.solver.transformWeight();
+        allocation.end();
+        return reduction;
+    }
+
+    @Benchmark
+    public int bfsMSTUsingZeroWeight(Transformed state, Allocation allocation) {
+        allocation.begin();
+        state.solver.bfsMSTUsingZeroWeight();
+        int z_index = state.solver.verifyMST();
+        allocation.end();
+        return z_index;
+    }
+
+    @Benchmark
+    public int walkBackward(Unreached state, Allocation allocation) {
+        allocation.begin();
+        int cycle = state.solver.walkBackward(state.z_index);
+        allocation.end();
+        return cycle;
+    }
+
+    @Benchmark
+    public int shrinkCycle(Cycle state, Allocation allocation) {
+        allocation.begin();
+        int x_index = state.solver.shrinkCycle(state.cycle);
+        allocation.end();
+        return x_index;
+    }
+
+    @Benchmark
+    public Solver recoverCycle(Shrunk state, Allocation allocation) {
+        allocation.begin();
+        state.solver.recoverCycle(state.cycle, state.x_index);
+        allocation.end();
+        return state.solver;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seeded random graph in which every vertex is reachable from the source:
+ * a random arborescence first, then uniformly random edges up to the
+ * requested average in-degree.
+ *
+ * @author Jun Yu
+ */
+public class RandomGraph {
+    final int numVertices;
+    final int numEdges;
+    final int source = 1;
+    final int[] from, to, weight;
+
+    public RandomGraph(int numVertices, int degree, int maxWeight, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        this.numVertices = numVertices;
+        this.numEdges = numVertices * degree;
+        from = new int[numEdges];
+        to = new int[numEdges];
+        weight = new int[numEdges];
+
+        // shuffled vertices, each one hangs off some earlier one
+        int[] order = new int[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            order[i] = i + 1;
+        }
+        for (int i = numVertices - 1; i > 1; i--) {
+            int j = 1 + random.nextInt(i);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+
+        int m = 0;
+        for (int i = 1; i < numVertices; i++) {
+            from[m] = order[random.nextInt(i)];
+            to[m] = order[i];
+            weight[m++] = random.nextInt(maxWeight + 1);
+        }
+        while (m < numEdges) {
+            int u = 1 + random.nextInt(numVertices);
+            int v = 1 + random.nextInt(numVertices);
+            if (u == v) {
+                continue;
+            }
+            from[m] = u;
+            to[m] = v;
+            weight[m++] = random.nextInt(maxWeight + 1);
+        }
+    }
+}
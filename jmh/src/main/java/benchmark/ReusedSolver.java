@@ -0,0 +1,49 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handle on a ReusableSolver instance, looked up like {@link Solver}.
+ *
+ * @author Jun Yu
+ */
+public class ReusedSolver {
+    static final MethodHandle NEW_SOLVER;
+    static final MethodHandle SOLVE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> solver = Class.forName("ReusableSolver");
+            NEW_SOLVER = lookup.findConstructor(solver, MethodType.methodType(void.class));
+            SOLVE = lookup.findVirtual(solver, "solve", MethodType.methodType(long.class,
+                    int.class, int.class, int[].class, int[].class, int[].class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final Object solver;
+
+    public ReusedSolver() {
+        try {
+            solver = NEW_SOLVER.invoke();
+        } catch (Throwable e) {
+            throw Solver.rethrow(e);
+        }
+    }
+
+    /**
+     * Solve the columns as they are, the solver only reads them
+     */
+    public long solve(RandomGraph input) {
+        try {
+            return (long) SOLVE.invoke(solver, input.numVertices, input.source, input.from, input.to,
+                    input.weight, input.numEdges);
+        } catch (Throwable e) {
+            throw Solver.rethrow(e);
+        }
+    }
+}
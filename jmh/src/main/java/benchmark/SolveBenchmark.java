@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole solves, from the edge columns to the tree, for every engine.
+ * {@code procedure} is the contraction engine on its own. Copying the
+ * columns, 12 bytes per edge, is part of every operation, so -prof gc
+ * reports the allocation of a complete solve. {@code reused} keeps one
+ * long-lived solver per thread on the columns as they are, its steady
+ * state allocation should be close to zero.
+ *
+ * @author Jun Yu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"1000", "10000", "100000"})
+        int vertices;
+
+        @Param({"4", "32"})
+        int degree;
+
+        RandomGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            graph = new RandomGraph(vertices, degree, 1000, 42);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Engine {
+        @Param({"TARJAN", "FIBONACCI", "ROUNDS", "OFF_HEAP", "COMPRESSED"})
+        String engine;
+    }
+
+    @State(Scope.Thread)
+    public static class Reused {
+        ReusedSolver solver = new ReusedSolver();
+    }
+
+    @Benchmark
+    public long procedure(Input input) {
+        return new Solver(input.graph).procedure();
+    }
+
+    @Benchmark
+    public long solve(Input input, Engine engine) {
+        return new Solver(input.graph).solve(engine.engine);
+    }
+
+    @Benchmark
+    public long reused(Input input, Reused reused) {
+        return reused.solver.solve(input.graph);
+    }
+}
@@ -0,0 +1,167 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handle on a DirectedMST instance.
+ * <p>
+ * The solver is in the default package, which a named package cannot
+ * import, and JMH refuses benchmarks in the default package. So the public
+ * methods are looked up once as method handles and called through here.
+ *
+ * @author Jun Yu
+ */
+public class Solver {
+    static final MethodHandle NEW_GRAPH;
+    static final MethodHandle NEW_SOLVER;
+    static final MethodHandle BUILD_INDEX;
+    static final MethodHandle TRANSFORM_WEIGHT;
+    static final MethodHandle BFS_USING_ZERO_WEIGHT;
+    static final MethodHandle VERIFY_MST;
+    static final MethodHandle WALK_BACKWARD;
+    static final MethodHandle SHRINK_CYCLE;
+    static final MethodHandle RECOVER_CYCLE;
+    static final MethodHandle PROCEDURE;
+    static final MethodHandle SOLVE;
+    static final Class<?> ENGINE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> graph = Class.forName("CsrGraph");
+            Class<?> solver = Class.forName("DirectedMST");
+            ENGINE = Class.forName("DirectedMST$Engine");
+
+            NEW_GRAPH = lookup.findConstructor(graph, MethodType.methodType(void.class,
+                    int.class, int[].class, int[].class, int[].class, int.class));
+            NEW_SOLVER = lookup.findConstructor(solver, MethodType.methodType(void.class,
+                    int.class, int.class, graph));
+            BUILD_INDEX = lookup.findVirtual(graph, "buildIndex", MethodType.methodType(void.class));
+            TRANSFORM_WEIGHT = lookup.findVirtual(solver, "transformWeight", MethodType.methodType(long.class));
+            BFS_USING_ZERO_WEIGHT = lookup.findVirtual(solver, "bfsMSTUsingZeroWeight",
+                    MethodType.methodType(void.class, int.class));
+            VERIFY_MST = lookup.findVirtual(solver, "verifyMST", MethodType.methodType(int.class, int.class));
+            WALK_BACKWARD = lookup.findVirtual(solver, "walkBackward",
+                    MethodType.methodType(int.class, int.class));
+            SHRINK_CYCLE = lookup.findVirtual(solver, "shrinkCycle",
+                    MethodType.methodType(int.class, int.class));
+            RECOVER_CYCLE = lookup.findVirtual(solver, "recoverCycle",
+                    MethodType.methodType(void.class, int.class, int.class));
+            PROCEDURE = lookup.findVirtual(solver, "procedure", MethodType.methodType(long.class));
+            SOLVE = lookup.findVirtual(solver, "solve", MethodType.methodType(long.class, ENGINE));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final Object graph;
+    final Object solver;
+    final int source;
+
+    /**
+     * New solver over copies of the columns, the solver reduces weights in place
+     */
+    public Solver(RandomGraph input) {
+        try {
+            int m = input.numEdges;
+            graph = NEW_GRAPH.invoke(input.numVertices + 1, input.from.clone(), input.to.clone(),
+                    input.weight.clone(), m);
+            solver = NEW_SOLVER.invoke(input.numVertices, input.source, graph);
+            source = input.source;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void buildIndex() {
+        try {
+            BUILD_INDEX.invoke(graph);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public long transformWeight() {
+        try {
+            return (long) TRANSFORM_WEIGHT.invoke(solver);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void bfsMSTUsingZeroWeight() {
+        try {
+            BFS_USING_ZERO_WEIGHT.invoke(solver, source);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public int verifyMST() {
+        try {
+            return (int) VERIFY_MST.invoke(solver, source);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * @return cycle on the contraction stack of the solver
+     */
+    public int walkBackward(int z_index) {
+        try {
+            return (int) WALK_BACKWARD.invoke(solver, z_index);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public int shrinkCycle(int cycle) {
+        try {
+            return (int) SHRINK_CYCLE.invoke(solver, cycle);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void recoverCycle(int cycle, int x_index) {
+        try {
+            RECOVER_CYCLE.invoke(solver, cycle, x_index);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public long procedure() {
+        try {
+            return (long) PROCEDURE.invoke(solver);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * @param engine name of a DirectedMST.Engine constant
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public long solve(String engine) {
+        try {
+            Object constant = Enum.valueOf((Class) ENGINE, engine);
+            return (long) SOLVE.invoke(solver, constant);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
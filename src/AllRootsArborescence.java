@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Minimum arborescences for every root of one graph from a single
+ * contraction.
+ * <p>
+ * Tarjan's contraction is run without a root: every vertex, and every
+ * contracted cycle, picks its cheapest incoming edge, until one node is
+ * left with no edge into it. That is where an artificial super-root would
+ * enter, and nothing in the contraction depends on which vertex it enters.
+ * The forest of contracted cycles with the reduction of every node is kept.
+ * <p>
+ * For root r the nodes on the way from r to the top are entered through r
+ * and pay nothing, every other node keeps its reduction. So the weight of
+ * the tree rooted at r is all reductions less those on that chain, O(1)
+ * per root after the chains are summed, and its edges are one O(n)
+ * expansion from the top entered at r. Only the vertices of the last node
+ * reach every vertex and can be roots. Queries only read the forest and
+ * may run in parallel.
+ *
+ * @author Jun Yu
+ */
+public class AllRootsArborescence {
+    // deleted edges are skipped, null for bare columns
+    CsrGraph graph;
+    int[] from, to, weight;
+    int numEdges;
+    int numVertices;
+
+    // leftist heaps over edge ids
+    LeftistHeaps heaps;
+
+    // contraction forest: vertices 1...n are leaves, contracted cycles get n + 1...
+    int numNodes;
+    int[] heap, find, up, choice, seen, path;
+    // reduction of a node when it chose, and summed over it and its ancestors
+    long[] pi, cum;
+    long total;
+
+    // the node with no edge into it, 0 if several are left and no vertex reaches all
+    int top;
+    // whether a node lies under top
+    boolean[] underTop;
+
+    public AllRootsArborescence(CsrGraph graph, int numVertices) {
+        this(graph.from, graph.to, graph.weight, graph.numEdges, numVertices);
+        this.graph = graph;
+    }
+
+    /**
+     * @param from        tails, only read
+     * @param to          heads, only read
+     * @param weight      weights, only read
+     * @param numEdges    edges in use
+     * @param numVertices vertices 1...numVertices
+     */
+    public AllRootsArborescence(int[] from, int[] to, int[] weight, int numEdges, int numVertices) {
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.numEdges = numEdges;
+        this.numVertices = numVertices;
+    }
+
+    /**
+     * Contract the whole graph, once for all roots
+     *
+     * @return this
+     */
+    public AllRootsArborescence build() {
+        int n = numVertices + 1;
+        int limit = 2 * n;
+        heaps = new LeftistHeaps(numEdges);
+        heap = new int[limit];
+        find = new int[limit];
+        up = new int[limit];
+        choice = new int[limit];
+        seen = new int[limit];
+        path = new int[limit];
+        pi = new long[limit];
+        cum = new long[limit];
+        Arrays.fill(heap, -1);
+        Arrays.fill(choice, -1);
+        Arrays.fill(seen, -1);
+        for (int v = 0; v < limit; v++) {
+            find[v] = v;
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (from[e] == to[e] || graph != null && graph.isDeleted(e)) {
+                continue;
+            }
+            heaps.init(e, weight[e]);
+            heap[to[e]] = heaps.merge(heap[to[e]], e);
+        }
+        numNodes = n;
+
+        int numTops = 0;
+        for (int s = 1; s < n; s++) {
+            int u = s;
+            int qi = 0;
+            while (seen[u] < 0) {
+                int e = heap[u];
+                if (e < 0) {
+                    // nothing enters u any more, the super-root would
+                    seen[u] = s;
+                    top = u;
+                    numTops++;
+                    break;
+                }
+                heaps.push(e);
+                if (LeftistHeaps.find(find, from[e]) == u) {
+                    // edge inside the node
+                    heap[u] = heaps.pop(e);
+                    continue;
+                }
+                long w = heaps.key[e];
+                heap[u] = heaps.pop(e);
+                heaps.add(heap[u], -w);
+                choice[u] = e;
+                pi[u] = w;
+                seen[u] = s;
+                path[qi++] = u;
+                u = LeftistHeaps.find(find, from[e]);
+
+                if (seen[u] == s) {
+                    // cycle, contract into a new node that walks on
+                    int c = numNodes++;
+                    int cycle = -1;
+                    int z;
+                    do {
+                        z = path[--qi];
+                        up[z] = c;
+                        find[z] = c;
+                        cycle = heaps.merge(cycle, heap[z]);
+                    } while (z != u);
+                    heap[c] = cycle;
+                    u = c;
+                }
+            }
+        }
+        if (numTops != 1) {
+            top = 0;
+        }
+
+        total = 0;
+        cum[0] = 0;
+        underTop = new boolean[numNodes];
+        for (int y = numNodes - 1; y >= 1; y--) {
+            cum[y] = pi[y] + cum[up[y]];
+            total += pi[y];
+            underTop[y] = up[y] == 0 ? y == top && top != 0 : underTop[up[y]];
+        }
+        // the scratch of the contraction is not needed by the queries
+        heaps = null;
+        heap = seen = path = null;
+        return this;
+    }
+
+    /**
+     * @return whether every vertex is reachable from r
+     */
+    public boolean isRoot(int r) {
+        return r >= 1 && r <= numVertices && underTop[r];
+    }
+
+    /**
+     * @return weight of the minimum arborescence rooted at r
+     * @throws IllegalStateException if some vertex is not reachable from r
+     */
+    public long weight(int r) {
+        checkRoot(r);
+        return total - cum[r];
+    }
+
+    /**
+     * Edge ids of the minimum arborescence rooted at r
+     *
+     * @param r     root
+     * @param enter scratch of at least {@link #scratchSize()}, or null
+     * @return edge id into every vertex, -1 for r
+     * @throws IllegalStateException if some vertex is not reachable from r
+     */
+    public int[] parentEdges(int r, int[] enter) {
+        checkRoot(r);
+        if (enter == null) {
+            enter = new int[scratchSize()];
+        }
+        // the chain of r is entered through r, every other node by its own choice
+        Arrays.fill(enter, 0, numNodes, -1);
+        for (int y = r; y != 0; y = up[y]) {
+            enter[y] = -2;
+        }
+        for (int y = numNodes - 1; y >= 1; y--) {
+            if (enter[y] != -1) {
+                continue;
+            }
+            int e = choice[y];
+            enter[y] = e;
+            for (int z = to[e]; z != y; z = up[z]) {
+                enter[z] = e;
+            }
+        }
+        int[] parentEdges = new int[numVertices + 1];
+        parentEdges[0] = -1;
+        for (int v = 1; v <= numVertices; v++) {
+            parentEdges[v] = Math.max(enter[v], -1);
+        }
+        return parentEdges;
+    }
+
+    /**
+     * @return minimum arborescence rooted at r
+     */
+    public Arborescence tree(int r) {
+        return tree(r, parentEdges(r, null));
+    }
+
+    /**
+     * Trees of many roots, expanded on threads
+     *
+     * @param roots   vertices every vertex is reachable from
+     * @param threads workers
+     * @return tree of every root, in the same order
+     * @throws IllegalStateException if some root does not reach every vertex
+     */
+    public Arborescence[] trees(int[] roots, int threads) throws InterruptedException {
+        for (int r : roots) {
+            checkRoot(r);
+        }
+        Arborescence[] trees = new Arborescence[roots.length];
+        threads = Math.max(1, Math.min(threads, roots.length));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            // a range of roots per task, which reuses its scratch
+            int step = Math.max(1, (roots.length + threads * 4 - 1) / (threads * 4));
+            for (int start = 0; start < roots.length; start += step) {
+                int begin = start;
+                int end = Math.min(roots.length, start + step);
+                futures.add(executor.submit(() -> {
+                    int[] enter = new int[scratchSize()];
+                    for (int i = begin; i < end; i++) {
+                        trees[i] = tree(roots[i], parentEdges(roots[i], enter));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return trees;
+    }
+
+    /**
+     * @return size of the scratch array of {@link #parentEdges(int, int[])}
+     */
+    public int scratchSize() {
+        return numNodes;
+    }
+
+    private Arborescence tree(int r, int[] parentEdges) {
+        int[] parent = new int[numVertices + 1];
+        int[] w = new int[numVertices + 1];
+        for (int v = 0; v <= numVertices; v++) {
+            int e = parentEdges[v];
+            parent[v] = e < 0 ? -1 : from[e];
+            w[v] = e < 0 ? 0 : weight[e];
+        }
+        return new Arborescence(numVertices, r, parent, w, total - cum[r]);
+    }
+
+    private void checkRoot(int r) {
+        if (!isRoot(r)) {
+            throw new IllegalStateException("not every vertex is reachable from " + r);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A solved arborescence as two columns indexed by head: the tail of the
+ * tree edge into every vertex and its weight. The source, roots of a
+ * branching and unreachable vertices have parent -1.
+ *
+ * @author Jun Yu
+ */
+public class Arborescence {
+    int numVertices;
+    int source;
+    long totalWeight;
+    int[] parent;
+    int[] weight;
+
+    /**
+     * @param parent      tail of the edge into each vertex, -1 if none, index 0 unused
+     * @param weight      weight of that edge
+     * @param totalWeight weight of the tree
+     */
+    public Arborescence(int numVertices, int source, int[] parent, int[] weight, long totalWeight) {
+        this.numVertices = numVertices;
+        this.source = source;
+        this.parent = parent;
+        this.weight = weight;
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * Copy the tree out of pred / predEdge
+     *
+     * @param vertices solved vertices
+     * @param edges    edges the predEdge ids refer to, with their original weights
+     */
+    public static Arborescence of(VertexStore vertices, EdgeStore edges, int numVertices, int source,
+                                  long totalWeight) {
+        int[] parent = new int[numVertices + 1];
+        int[] weight = new int[numVertices + 1];
+        parent[0] = -1;
+        for (int v = 1; v <= numVertices; v++) {
+            int e = vertices.predEdge(v);
+            if (v == source || e < 0) {
+                parent[v] = -1;
+            } else {
+                parent[v] = vertices.pred(v);
+                weight[v] = edges.weight(e);
+            }
+        }
+        return new Arborescence(numVertices, source, parent, weight, totalWeight);
+    }
+
+    /**
+     * Read a tree written by {@link ArborescenceWriter#writeBinary}
+     *
+     * @throws IOException if the file is not such a tree
+     */
+    public static Arborescence load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < ArborescenceWriter.HEADER_BYTES) {
+                throw new IOException(path + ": too short for a tree");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // fill
+            }
+            buffer.flip();
+            if (buffer.getInt() != ArborescenceWriter.MAGIC || buffer.getInt() != ArborescenceWriter.VERSION) {
+                throw new IOException(path + ": not a tree file");
+            }
+            int numVertices = buffer.getInt();
+            int source = buffer.getInt();
+            long totalWeight = buffer.getLong();
+            if (numVertices < 0 || size != ArborescenceWriter.HEADER_BYTES + 8L * numVertices) {
+                throw new IOException(path + ": " + size + " bytes for " + numVertices + " vertices");
+            }
+            int[] parent = new int[numVertices + 1];
+            int[] weight = new int[numVertices + 1];
+            parent[0] = -1;
+            buffer.asIntBuffer().get(parent, 1, numVertices);
+            buffer.position(buffer.position() + 4 * numVertices);
+            buffer.asIntBuffer().get(weight, 1, numVertices);
+            return new Arborescence(numVertices, source, parent, weight, totalWeight);
+        }
+    }
+
+    public int numVertices() {
+        return numVertices;
+    }
+
+    public int source() {
+        return source;
+    }
+
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Tails by head, not a copy
+     */
+    public int[] parents() {
+        return parent;
+    }
+
+    /**
+     * Weights by head, not a copy
+     */
+    public int[] weights() {
+        return weight;
+    }
+}
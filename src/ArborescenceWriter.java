@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writer of an {@link Arborescence} through one reusable byte buffer,
+ * numbers are formatted in place without strings.
+ * <p>
+ * Text is one "(u,v)" line per tree edge, ordered by head, as printed
+ * by {@link DirectedMST#printMSTByHeads}. Binary is little-endian:
+ * <pre>
+ *   int  magic "DMSA"
+ *   int  version
+ *   int  number of vertices n
+ *   int  source
+ *   long weight of the tree
+ *   int[n] parents, int[n] weights, of vertices 1...n
+ * </pre>
+ *
+ * @author Jun Yu
+ */
+public class ArborescenceWriter {
+    static final int MAGIC = 0x41534d44; // "DMSA" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    OutputStream out;
+    byte[] buffer = new byte[1 << 16];
+    ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    int size;
+
+    /**
+     * @param out stream, not closed by the writer
+     */
+    public ArborescenceWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Write tree to a file, binary or text
+     */
+    public static void write(Arborescence tree, Path path, boolean binary) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            ArborescenceWriter writer = new ArborescenceWriter(out);
+            if (binary) {
+                writer.writeBinary(tree);
+            } else {
+                writer.writeText(tree);
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * One "(u,v)" line per tree edge
+     */
+    public void writeText(Arborescence tree) throws IOException {
+        int[] parent = tree.parent;
+        for (int v = 1; v <= tree.numVertices; v++) {
+            int u = parent[v];
+            if (u < 0) {
+                continue;
+            }
+            // two ints of at most 10 digits each and the punctuation
+            if (size + 24 > buffer.length) {
+                drain();
+            }
+            buffer[size++] = '(';
+            putInt(u);
+            buffer[size++] = ',';
+            putInt(v);
+            buffer[size++] = ')';
+            buffer[size++] = '\n';
+        }
+    }
+
+    /**
+     * One line of ASCII text, such as the weight of a tree
+     */
+    public void writeLine(CharSequence line) throws IOException {
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (size == buffer.length) {
+                drain();
+            }
+            buffer[size++] = (byte) line.charAt(i);
+        }
+        if (size == buffer.length) {
+            drain();
+        }
+        buffer[size++] = '\n';
+    }
+
+    /**
+     * Header, then the parent and the weight column
+     */
+    public void writeBinary(Arborescence tree) throws IOException {
+        if (size + HEADER_BYTES > buffer.length) {
+            drain();
+        }
+        view.putInt(size, MAGIC);
+        view.putInt(size + 4, VERSION);
+        view.putInt(size + 8, tree.numVertices);
+        view.putInt(size + 12, tree.source);
+        view.putLong(size + 16, tree.totalWeight);
+        size += HEADER_BYTES;
+        putColumn(tree.parent, tree.numVertices);
+        putColumn(tree.weight, tree.numVertices);
+    }
+
+    /**
+     * Hand what is buffered to the stream and flush it
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void putColumn(int[] column, int n) throws IOException {
+        for (int v = 1; v <= n; v++) {
+            if (size + 4 > buffer.length) {
+                drain();
+            }
+            view.putInt(size, column[v]);
+            size += 4;
+        }
+    }
+
+    /**
+     * Decimal digits of a vertex index, written backwards from the end of its width
+     */
+    private void putInt(int value) {
+        int width = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            width++;
+        }
+        int end = size + width;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+    }
+}
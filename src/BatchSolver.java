@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solver of many independent graphs in one JVM. The input is graphs in the
+ * text format, "n m s" then m lines "u v w", one after another.
+ * <p>
+ * One thread parses, a work-stealing pool solves, every worker with its own
+ * {@link ReusableSolver}. A bounded window of graphs is in flight, so memory
+ * does not grow with the input, and results are written in input order: one
+ * line with the weight per graph, "error ..." if it has no arborescence,
+ * followed by its "(u,v)" lines when the tree is asked for. A graph that
+ * can not be parsed gets an "error ..." line and ends the batch. With a
+ * {@link ResultCache} a graph seen before is not solved again.
+ *
+ * @author Jun Yu
+ */
+public class BatchSolver {
+    // graphs in flight per thread
+    static final int WINDOW_PER_THREAD = 256;
+
+    static final ThreadLocal<ReusableSolver> SOLVERS = ThreadLocal.withInitial(ReusableSolver::new);
+
+    int threads;
+    boolean tree;
+    // trees of graphs seen before, null for none
+    ResultCache cache;
+
+    long numGraphs;
+    long numErrors;
+
+    /**
+     * @param threads workers
+     * @param tree    whether to write the edges of each tree after its weight
+     */
+    public BatchSolver(int threads, boolean tree) {
+        this.threads = Math.max(1, threads);
+        this.tree = tree;
+    }
+
+    /**
+     * Solve every graph of in and write the results to out in the same order
+     *
+     * @return number of graphs, a malformed one included
+     * @throws IOException if out can not be written
+     */
+    public long run(InputStream in, OutputStream out) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(in);
+        ArborescenceWriter writer = new ArborescenceWriter(out);
+        ArrayDeque<ForkJoinTask<Outcome>> window = new ArrayDeque<>();
+        int limit = threads * WINDOW_PER_THREAD;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        numGraphs = 0;
+        numErrors = 0;
+        IOException malformed = null;
+        try {
+            while (true) {
+                Graph graph;
+                try {
+                    graph = read(tokenizer);
+                } catch (IOException e) {
+                    // the graphs before it are still written, the input after it is not read
+                    malformed = e;
+                    break;
+                }
+                if (graph == null) {
+                    break;
+                }
+                if (window.size() == limit) {
+                    write(window.removeFirst(), writer);
+                }
+                window.addLast(pool.submit(() -> solve(graph)));
+                numGraphs++;
+            }
+            while (!window.isEmpty()) {
+                write(window.removeFirst(), writer);
+            }
+            if (malformed != null) {
+                numGraphs++;
+                numErrors++;
+                writer.writeLine("error " + malformed);
+            }
+            writer.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return numGraphs;
+    }
+
+    private Outcome solve(Graph graph) {
+        ReusableSolver solver = SOLVERS.get();
+        Outcome outcome = new Outcome();
+        try {
+            ResultCache.Key key = null;
+            if (cache != null) {
+                key = ResultCache.key(graph.from, graph.to, graph.weight, graph.from.length, graph.numVertices,
+                        graph.source);
+                Arborescence cached = cache.get(key);
+                if (cached != null) {
+                    outcome.weight = cached.totalWeight;
+                    outcome.tree = tree ? cached : null;
+                    return outcome;
+                }
+            }
+            outcome.weight = solver.solve(graph.numVertices, graph.source, graph.from, graph.to, graph.weight,
+                    graph.from.length);
+            if (tree || cache != null) {
+                outcome.tree = solver.result();
+            }
+            if (cache != null) {
+                cache.put(key, outcome.tree);
+            }
+            if (!tree) {
+                outcome.tree = null;
+            }
+        } catch (RuntimeException | IOException e) {
+            // unreachable vertices, vertex ids out of range, or a cache file that can not be read
+            outcome.error = e.toString();
+        }
+        return outcome;
+    }
+
+    private void write(ForkJoinTask<Outcome> task, ArborescenceWriter writer) throws IOException {
+        Outcome outcome;
+        try {
+            outcome = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (outcome.error != null) {
+            numErrors++;
+            writer.writeLine("error " + outcome.error);
+            return;
+        }
+        writer.writeLine(Long.toString(outcome.weight));
+        if (outcome.tree != null) {
+            writer.writeText(outcome.tree);
+        }
+    }
+
+    /**
+     * @return next graph, null at the end of the input
+     */
+    private Graph read(Tokenizer tokenizer) throws IOException {
+        if (!tokenizer.hasNext()) {
+            return null;
+        }
+        Graph graph = new Graph();
+        graph.numVertices = tokenizer.nextInt();
+        int numEdges = tokenizer.nextInt();
+        graph.source = tokenizer.nextInt();
+        if (graph.numVertices < 1 || numEdges < 0 || graph.source < 1 || graph.source > graph.numVertices) {
+            throw new IOException("graph " + numGraphs + " has a malformed header \"" + graph.numVertices + " "
+                    + numEdges + " " + graph.source + "\"");
+        }
+        graph.from = new int[numEdges];
+        graph.to = new int[numEdges];
+        graph.weight = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            if (!tokenizer.hasNext()) {
+                throw new IOException("graph " + numGraphs + " ends after " + e + " of " + numEdges + " edges");
+            }
+            graph.from[e] = tokenizer.nextInt();
+            graph.to[e] = tokenizer.nextInt();
+            graph.weight[e] = tokenizer.nextInt();
+        }
+        return graph;
+    }
+
+    static class Graph {
+        int numVertices;
+        int source;
+        int[] from, to, weight;
+    }
+
+    static class Outcome {
+        long weight;
+        Arborescence tree;
+        String error;
+    }
+
+    /**
+     * Integers separated by any whitespace, read through one buffer
+     */
+    static class Tokenizer {
+        InputStream in;
+        byte[] buffer = new byte[1 << 16];
+        int position;
+        int limit;
+        long consumed;
+
+        Tokenizer(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Skip whitespace
+         *
+         * @return true if a number follows
+         */
+        boolean hasNext() throws IOException {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return false;
+                }
+                byte b = buffer[position];
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    return true;
+                }
+                position++;
+            }
+        }
+
+        int nextInt() throws IOException {
+            if (!hasNext()) {
+                throw new IOException("unexpected end of input");
+            }
+            boolean negative = false;
+            if (buffer[position] == '-') {
+                negative = true;
+                position++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (position < limit || fill()) {
+                int digit = buffer[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                position++;
+                if (++digits > 10) {
+                    break;
+                }
+            }
+            if (digits == 0 || digits > 10 || value > Integer.MAX_VALUE + (negative ? 1L : 0L)) {
+                throw new IOException("malformed number near byte " + (consumed + position));
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        private boolean fill() throws IOException {
+            consumed += limit;
+            position = 0;
+            limit = Math.max(0, in.read(buffer));
+            return limit > 0;
+        }
+    }
+}
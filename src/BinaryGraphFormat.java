@@ -0,0 +1,223 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary edge list, little-endian:
+ * <pre>
+ *   int  magic "DMST"
+ *   int  version
+ *   int  number of vertices
+ *   int  source
+ *   long number of edges m
+ *   int[m] tails, int[m] heads, int[m] weights
+ * </pre>
+ * The three columns go straight into the edge arrays of {@link CsrGraph}
+ * with bulk copies out of a memory-mapped file, nothing is parsed per edge.
+ *
+ * @author Jun Yu
+ */
+public class BinaryGraphFormat {
+    static final int MAGIC = 0x54534d44; // "DMST" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    // bytes mapped at a time, a multiple of 4 below the 2GB limit of a buffer
+    static final int WINDOW = 1 << 30;
+
+    /**
+     * Load graph by mapping the file
+     *
+     * @param path binary graph
+     * @return graph ready to solve
+     * @throws IOException if the file is not in this format or has a vertex out of range
+     */
+    public static DirectedMST load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(path + " is not a binary graph");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a binary graph");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            int numVertices = header.getInt();
+            int source = header.getInt();
+            long numEdges = header.getLong();
+
+            if (numVertices < 1 || source < 1 || source > numVertices) {
+                throw new IOException("source " + source + " is not a vertex of 1..." + numVertices);
+            }
+            if (numEdges > Integer.MAX_VALUE - 8) {
+                throw new IOException("too many edges for one graph: " + numEdges);
+            }
+            if (channel.size() != HEADER_BYTES + numEdges * 12) {
+                throw new IOException("size of " + path + " does not match " + numEdges + " edges");
+            }
+
+            int m = (int) numEdges;
+            int[] from = new int[m];
+            int[] to = new int[m];
+            int[] weight = new int[m];
+            readInts(channel, HEADER_BYTES, from, m);
+            readInts(channel, HEADER_BYTES + 4L * m, to, m);
+            readInts(channel, HEADER_BYTES + 8L * m, weight, m);
+            for (int e = 0; e < m; e++) {
+                if (from[e] < 1 || from[e] > numVertices || to[e] < 1 || to[e] > numVertices) {
+                    throw new IOException("edge " + e + " from " + from[e] + " to " + to[e]
+                            + " is not between vertices of 1..." + numVertices);
+                }
+            }
+
+            CsrGraph graph = new CsrGraph(numVertices + 1, from, to, weight, m);
+            return new DirectedMST(numVertices, source, graph);
+        }
+    }
+
+    private static void readInts(FileChannel channel, long offset, int[] dst, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, WINDOW / 4);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * done, 4L * n);
+            IntBuffer ints = window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.get(dst, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Convert the text format, "n m s" then "u v w" per line, in one pass.
+     * Each column is buffered separately and written at its own offset.
+     * The columns go to a temporary file next to path that is moved into
+     * place once complete, so path never holds a partial graph.
+     *
+     * @param reader text graph
+     * @param path   binary graph to write
+     * @return number of edges written
+     * @throws IOException if the edge count does not match the header
+     */
+    public static long convert(BufferedReader reader, Path path) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IOException("empty input");
+        }
+        String[] firstParams = line.trim().split("[\\s\\t]+");
+        int numVertices = Integer.parseInt(firstParams[0]);
+        long numEdges = Long.parseLong(firstParams[1]);
+        int source = Integer.parseInt(firstParams[2]);
+
+        Path target = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long count;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                count = write(reader, channel, numVertices, source, numEdges);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return count;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long write(BufferedReader reader, FileChannel channel, int numVertices, int source,
+                              long numEdges) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(numVertices).putInt(source).putLong(numEdges);
+        header.flip();
+        channel.write(header, 0);
+
+        ColumnWriter tails = new ColumnWriter(channel, HEADER_BYTES);
+        ColumnWriter heads = new ColumnWriter(channel, HEADER_BYTES + 4 * numEdges);
+        ColumnWriter weights = new ColumnWriter(channel, HEADER_BYTES + 8 * numEdges);
+
+        long count = 0;
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals("")) {
+            String[] params = line.trim().split("[\\s\\t]+");
+            tails.put(Integer.parseInt(params[0]));
+            heads.put(Integer.parseInt(params[1]));
+            weights.put(Integer.parseInt(params[2]));
+            count++;
+            if (count > numEdges) {
+                break;
+            }
+        }
+        if (count != numEdges) {
+            throw new IOException("The claimed number of edge " + numEdges + " not equals to actual number");
+        }
+        tails.flush();
+        heads.flush();
+        weights.flush();
+        return count;
+    }
+
+    /**
+     * Buffered writer of one int column at a fixed position of the file
+     */
+    static class ColumnWriter {
+        FileChannel channel;
+        long position;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void put(int value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Convert a text graph, from file or stdin, into the binary format
+     *
+     * @param args [text graph] binary graph
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: BinaryGraphFormat [text graph] <binary graph>");
+            System.exit(1);
+        }
+        BufferedReader reader = args.length > 1
+                ? new BufferedReader(new FileReader(args[0]))
+                : new BufferedReader(new InputStreamReader(System.in));
+        Path out = Paths.get(args[args.length - 1]);
+
+        long begin = System.currentTimeMillis();
+        long count = convert(reader, out);
+        long end = System.currentTimeMillis();
+        System.out.println(count + " " + (end - begin));
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.Arrays;
+
+/**
+ * Minimum arborescence on a {@link CompressedGraph}, which is only read.
+ * <p>
+ * The rounds are those of the contraction engine of {@link DirectedMST}:
+ * {@link #transformWeight()} takes the cheapest incoming edge off every
+ * edge into a node, {@link #bfsMSTUsingZeroWeight()} spreads from source
+ * over the edges that are left at 0, and the cycles of cheapest edges among
+ * the nodes it does not reach are contracted, all of them in one round as
+ * in {@link RoundArborescence}. Both scans decode the lists of a vertex
+ * front to back.
+ * <p>
+ * The weights are never written back. The reduction of an edge is the sum
+ * of the picks of the nodes its head is in, kept as offsets in the
+ * union-find of the contraction, so edges are reduced as they are decoded.
+ * Only the nodes contracted in a round pick again, and only the vertices a
+ * round reaches are scanned, each once over the whole solve.
+ *
+ * @author Jun Yu
+ */
+public class CompressedArborescence {
+    CompressedGraph graph;
+    int numVertices;
+    int source;
+
+    // union-find over vertices 1...n and contracted cycles n...; the reduction of x
+    // less that of find[x], of the node itself at a root
+    int[] find;
+    long[] offset;
+    int[] path;
+
+    // vertices of every node in a list, ended by 0
+    int[] firstMember, lastMember, nextMember;
+
+    // contraction forest, the members of super-vertex x are members[memberStart[x - n]...]
+    int[] forestParent;
+    int[] members;
+    int[] memberStart;
+    int numMembers;
+    int numNodes;
+
+    // edge into each node: its cheapest, then the one it was reached over
+    int[] inTail, inHead, inWeight;
+
+    boolean[] reached;
+    // vertices reached and not scanned yet
+    int[] queue;
+    int queueHead, queueTail;
+
+    // nodes that pick in this round
+    int[] fresh;
+    int numFresh;
+
+    // stamp of the walk that reached a node, walks of a round are above the round's base
+    int[] seen;
+    int stamp;
+
+    CompressedGraph.Cursor cursor = new CompressedGraph.Cursor();
+    long sum;
+    int rounds;
+
+    public CompressedArborescence(CompressedGraph graph, int source) {
+        this.graph = graph;
+        this.numVertices = graph.numVertices;
+        this.source = source;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() {
+        int n = numVertices + 1;
+        int nodes = 2 * n;
+        find = new int[nodes];
+        offset = new long[nodes];
+        path = new int[nodes];
+        firstMember = new int[nodes];
+        lastMember = new int[nodes];
+        nextMember = new int[n];
+        forestParent = new int[nodes];
+        Arrays.fill(forestParent, -1);
+        members = new int[nodes];
+        memberStart = new int[n + 1];
+        inTail = new int[nodes];
+        inHead = new int[nodes];
+        inWeight = new int[nodes];
+        reached = new boolean[nodes];
+        queue = new int[n];
+        fresh = new int[n];
+        seen = new int[nodes];
+        for (int x = 0; x < nodes; x++) {
+            find[x] = x;
+        }
+        for (int v = 1; v < n; v++) {
+            firstMember[v] = lastMember[v] = v;
+            if (v != source) {
+                fresh[numFresh++] = v;
+            }
+        }
+        reached[source] = true;
+        queue[queueTail++] = source;
+
+        int next = n;
+        sum = 0;
+        while (true) {
+            rounds++;
+            sum += transformWeight();
+            bfsMSTUsingZeroWeight();
+            int firstNew = next;
+            next = contractCycles(n, next);
+            if (next == firstNew) {
+                break;
+            }
+        }
+        numNodes = next;
+        return sum;
+    }
+
+    /**
+     * Every node that is new in this round picks its cheapest incoming
+     * edge from outside, which is then taken off all its incoming edges
+     *
+     * @return total reduction
+     */
+    public long transformWeight() {
+        long total = 0;
+        for (int i = 0; i < numFresh; i++) {
+            int x = fresh[i];
+            long min = Long.MAX_VALUE;
+            for (int v = firstMember[x]; v != 0; v = nextMember[v]) {
+                long reduction = potential(v);
+                graph.incoming(cursor, v);
+                while (cursor.next()) {
+                    long r = cursor.weight - reduction;
+                    if (r < min && find(cursor.neighbor) != x) {
+                        min = r;
+                        inTail[x] = cursor.neighbor;
+                        inHead[x] = v;
+                        inWeight[x] = cursor.weight;
+                    }
+                }
+            }
+            if (min == Long.MAX_VALUE) {
+                throw new IllegalStateException("vertex " + firstMember[x] + " is not reachable from " + source);
+            }
+            offset[x] += min;
+            total += min;
+        }
+        return total;
+    }
+
+    /**
+     * Reach what the new picks and the vertices not scanned yet lead to over
+     * edges of reduced weight 0
+     */
+    public void bfsMSTUsingZeroWeight() {
+        for (int i = 0; i < numFresh; i++) {
+            int x = fresh[i];
+            // the tail was scanned before this pick went down to 0
+            if (!reached[x] && reached[find(inTail[x])]) {
+                reach(x, inTail[x], inHead[x], inWeight[x]);
+            }
+        }
+        while (queueHead < queueTail) {
+            int u = queue[queueHead++];
+            graph.outgoing(cursor, u);
+            while (cursor.next()) {
+                int v = cursor.neighbor;
+                long reduction = potential(v);
+                int x = find[v];
+                if (!reached[x] && cursor.weight == reduction) {
+                    reach(x, u, v, cursor.weight);
+                }
+            }
+        }
+    }
+
+    private void reach(int x, int tail, int head, int weight) {
+        reached[x] = true;
+        inTail[x] = tail;
+        inHead[x] = head;
+        inWeight[x] = weight;
+        for (int v = firstMember[x]; v != 0; v = nextMember[v]) {
+            queue[queueTail++] = v;
+        }
+    }
+
+    /**
+     * Contract every cycle of picks among the nodes not reached, a new one
+     * goes through a node that just picked
+     *
+     * @return next free id
+     */
+    private int contractCycles(int n, int next) {
+        int firstNew = next;
+        int base = stamp;
+        for (int i = 0; i < numFresh; i++) {
+            int walk = ++stamp;
+            int u = fresh[i];
+            while (!reached[u] && seen[u] <= base) {
+                seen[u] = walk;
+                u = find(inTail[u]);
+            }
+            if (!reached[u] && seen[u] == walk) {
+                // found cycle, contract into new node x
+                int x = next++;
+                int w_index = u;
+                do {
+                    members[numMembers++] = w_index;
+                    w_index = find(inTail[w_index]);
+                } while (w_index != u);
+                memberStart[x - n + 1] = numMembers;
+            }
+        }
+
+        numFresh = 0;
+        for (int x = firstNew; x < next; x++) {
+            for (int i = memberStart[x - n]; i < memberStart[x - n + 1]; i++) {
+                int u = members[i];
+                forestParent[u] = x;
+                find[u] = x;
+                if (firstMember[x] == 0) {
+                    firstMember[x] = firstMember[u];
+                } else {
+                    nextMember[lastMember[x]] = firstMember[u];
+                }
+                lastMember[x] = lastMember[u];
+            }
+            fresh[numFresh++] = x;
+        }
+        return next;
+    }
+
+    /**
+     * @return node that v is contracted into by now
+     */
+    private int find(int v) {
+        int root = v;
+        while (find[root] != root) {
+            root = find[root];
+        }
+        // offsets become relative to the root, from the top down
+        int k = 0;
+        for (int x = v; x != root && find[x] != root; x = find[x]) {
+            path[k++] = x;
+        }
+        while (k > 0) {
+            int x = path[--k];
+            offset[x] += offset[find[x]];
+            find[x] = root;
+        }
+        return root;
+    }
+
+    /**
+     * @return reduction of the edges into vertex v
+     */
+    private long potential(int v) {
+        int root = find(v);
+        return v == root ? offset[v] : offset[v] + offset[root];
+    }
+
+    /**
+     * Add the contracted cycles and the super-vertices to stats
+     */
+    void report(SolverStats stats) {
+        ContractionForest.report(stats, numVertices + 1, numNodes, memberStart);
+    }
+
+    /**
+     * Dismantle the contraction forest from the top, see
+     * {@link ContractionForest#expand}
+     *
+     * @return the tree, with the weight of the last solve
+     */
+    public Arborescence result() {
+        int n = numVertices + 1;
+        int[] parent = new int[n];
+        int[] weight = new int[n];
+        Arrays.fill(parent, -1);
+        ContractionForest.expand(n, numNodes, source, forestParent, members, memberStart, x -> inHead[x], (x, v) -> {
+            parent[v] = inTail[x];
+            weight[v] = inWeight[x];
+        });
+        return new Arborescence(numVertices, source, parent, weight, sum);
+    }
+}
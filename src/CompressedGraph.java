@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Read-only directed multigraph with both views compressed, for graphs too
+ * big for the 32 bytes per edge of an indexed {@link CsrGraph}.
+ * <p>
+ * Each view lists the neighbors of every vertex in increasing order, as
+ * variable-length gaps of 7 bits per byte, so a power-law graph with close
+ * ids takes one or two bytes per neighbor. The weights are a stream of
+ * their own in the same order, zigzag encoded so small negative weights
+ * stay small too. A list never crosses a chunk of its stream, so a scan
+ * decodes one byte array front to back.
+ * <p>
+ * There are no edge ids: an edge is its tail, head and weight. Lists are
+ * decoded with a {@link Cursor}, sequentially.
+ * <p>
+ * A graph is built from a file by {@link #read(EdgeFile)} without loading
+ * its edges: besides the streams, the build holds a scratch of a long per
+ * edge for an eighth of the edges per view, and 4 bytes per vertex.
+ *
+ * @author Jun Yu
+ */
+public class CompressedGraph {
+    // bytes per chunk of a stream, 1 GB
+    static final int SHIFT = 30;
+    static final int MASK = (1 << SHIFT) - 1;
+    // edges in the scratch of a view while building, at least
+    static final int MIN_SCRATCH = 1 << 20;
+
+    int numVertices;
+    long numEdges;
+
+    // tails by head, heads by tail
+    View in, out;
+
+    // most bytes held at once while building, streams and scratch
+    long buildBytes;
+
+    /**
+     * Compress the edges of graph that are not deleted
+     *
+     * @param numVertices vertices 1...numVertices
+     */
+    public static CompressedGraph of(CsrGraph graph, int numVertices) {
+        int m = graph.numEdges;
+        int[] from = graph.from;
+        int[] to = graph.to;
+        int[] weight = graph.weight;
+        long live = 0;
+        for (int e = 0; e < m; e++) {
+            if (!graph.isDeleted(e)) {
+                live++;
+            }
+        }
+        CompressedGraph compressed = new CompressedGraph(numVertices, live, scratch(live));
+        for (int e = 0; e < m; e++) {
+            if (!graph.isDeleted(e)) {
+                compressed.count(from[e], to[e]);
+            }
+        }
+        while (compressed.nextRange()) {
+            for (int e = 0; e < m; e++) {
+                if (!graph.isDeleted(e)) {
+                    compressed.add(from[e], to[e], weight[e]);
+                }
+            }
+            compressed.encodeRange();
+        }
+        compressed.finish();
+        return compressed;
+    }
+
+    /**
+     * Compress a graph file without loading it. One pass counts the degrees,
+     * then every pass collects and encodes the lists of as many vertices as
+     * fit the scratch, which holds an eighth of the edges, so it takes at
+     * most about 10 passes.
+     *
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static CompressedGraph read(EdgeFile file) throws IOException {
+        return read(file, scratch(file.numEdges));
+    }
+
+    /**
+     * @param scratch edges collected per view and pass
+     */
+    static CompressedGraph read(EdgeFile file, int scratch) throws IOException {
+        CompressedGraph compressed = new CompressedGraph(file.numVertices, file.numEdges, scratch);
+        file.pass((e, src, dst, w) -> compressed.count(src, dst));
+        while (compressed.nextRange()) {
+            file.pass((e, src, dst, w) -> compressed.add(src, dst, w));
+            compressed.encodeRange();
+        }
+        compressed.finish();
+        return compressed;
+    }
+
+    /**
+     * @return an eighth of the edges, at least {@link #MIN_SCRATCH}
+     */
+    static int scratch(long numEdges) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(MIN_SCRATCH, (numEdges + 7) / 8));
+    }
+
+    private CompressedGraph(int numVertices, long numEdges, int scratch) {
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        in = new View(numVertices, (int) Math.min(scratch, numEdges));
+        out = new View(numVertices, (int) Math.min(scratch, numEdges));
+    }
+
+    private void count(int src, int dst) {
+        in.degree[dst]++;
+        out.degree[src]++;
+    }
+
+    /**
+     * @return false if both views are encoded
+     */
+    private boolean nextRange() {
+        boolean more = in.nextRange();
+        return out.nextRange() || more;
+    }
+
+    private void add(int src, int dst, int weight) {
+        in.add(dst, src, weight);
+        out.add(src, dst, weight);
+    }
+
+    private void encodeRange() {
+        in.encodeRange();
+        out.encodeRange();
+        buildBytes = Math.max(buildBytes, in.bytesUsed() + in.scratchBytes() + out.bytesUsed() + out.scratchBytes());
+    }
+
+    private void finish() {
+        in.finish();
+        out.finish();
+    }
+
+    /**
+     * @return bytes held by both views
+     */
+    public long bytesUsed() {
+        return in.bytesUsed() + out.bytesUsed();
+    }
+
+    /**
+     * One line with the bytes per edge of each view, the most the build held
+     * at once, and what an indexed {@link CsrGraph} of the same size takes
+     */
+    public String report() {
+        double edges = Math.max(numEdges, 1);
+        return String.format("compressed %.2f bytes/edge (in %.2f, out %.2f), build peak %.2f bytes/edge,"
+                        + " indexed csr %.2f bytes/edge",
+                bytesUsed() / edges, in.bytesUsed() / edges, out.bytesUsed() / edges, buildBytes / edges,
+                CsrGraph.indexedBytes(numVertices + 1, (int) Math.min(numEdges, Integer.MAX_VALUE - 8)) / edges);
+    }
+
+    /**
+     * Neighbor and weight streams of one direction, with the degree and
+     * where the lists of every vertex start
+     */
+    static class View {
+        int[] degree;
+        long[] neighborStart;
+        long[] weightStart;
+        Stream neighbors = new Stream();
+        Stream weights = new Stream();
+
+        // vertices lo...hi - 1 are collected in this pass, the next edge of v goes to pairs[fill[v]]
+        int lo, hi = 1;
+        int[] fill;
+        long[] pairs;
+
+        View(int numVertices, int scratch) {
+            int n = numVertices + 1;
+            degree = new int[n];
+            neighborStart = new long[n];
+            weightStart = new long[n];
+            fill = new int[n];
+            pairs = new long[scratch];
+        }
+
+        /**
+         * Take the vertices after the last range whose lists fit the
+         * scratch, at least one
+         *
+         * @return false if there are none left
+         */
+        boolean nextRange() {
+            int n = degree.length;
+            lo = hi;
+            if (lo >= n) {
+                return false;
+            }
+            long used = 0;
+            while (hi < n && (hi == lo || used + degree[hi] <= pairs.length)) {
+                fill[hi] = (int) used;
+                used += degree[hi++];
+            }
+            if (used > pairs.length) {
+                // one vertex with more edges than the scratch
+                pairs = new long[(int) used];
+            }
+            return true;
+        }
+
+        /**
+         * Keep the edge if key is in the range
+         *
+         * @param key   endpoint the lists belong to
+         * @param other endpoint listed
+         */
+        void add(int key, int other, int weight) {
+            if (key >= lo && key < hi) {
+                // neighbor above, so the list sorts by neighbor
+                pairs[fill[key]++] = ((long) other << 32) | (weight & 0xffffffffL);
+            }
+        }
+
+        void encodeRange() {
+            long edges = 0;
+            for (int v = lo; v < hi; v++) {
+                edges += degree[v];
+            }
+            neighbors.reserve(5 * edges);
+            weights.reserve(5 * edges);
+            int begin = 0;
+            for (int v = lo; v < hi; v++) {
+                int end = begin + degree[v];
+                Arrays.sort(pairs, begin, end);
+                // a varint of an int takes at most 5 bytes
+                neighborStart[v] = neighbors.begin(5 * (end - begin));
+                weightStart[v] = weights.begin(5 * (end - begin));
+                int previous = 0;
+                for (int i = begin; i < end; i++) {
+                    int u = (int) (pairs[i] >>> 32);
+                    int w = (int) pairs[i];
+                    neighbors.put(u - previous);
+                    weights.put((w << 1) ^ (w >> 31));
+                    previous = u;
+                }
+                begin = end;
+            }
+        }
+
+        void finish() {
+            neighbors.trim();
+            weights.trim();
+            fill = null;
+            pairs = null;
+        }
+
+        long scratchBytes() {
+            return fill == null ? 0 : fill.length * 4L + pairs.length * 8L;
+        }
+
+        long bytesUsed() {
+            return degree.length * 20L + neighbors.bytesUsed() + weights.bytesUsed();
+        }
+    }
+
+    /**
+     * Varints in chunks of bytes
+     */
+    static class Stream {
+        byte[][] chunks = new byte[1][64];
+        int last;
+        int size;
+
+        /**
+         * Make room for a list of at most maxBytes in the current chunk, or
+         * start a new one
+         *
+         * @return position of the list
+         */
+        long begin(int maxBytes) {
+            byte[] chunk = chunks[last];
+            if (size + maxBytes > chunk.length) {
+                if (size + maxBytes <= 1 << SHIFT) {
+                    // grow in place until the chunk is full size
+                    int capacity = (int) Math.min(1L << SHIFT, Math.max((long) size + maxBytes, 2L * chunk.length));
+                    chunks[last] = Arrays.copyOf(chunk, capacity);
+                } else {
+                    chunks[last] = Arrays.copyOf(chunk, size);
+                    chunks = Arrays.copyOf(chunks, last + 2);
+                    last++;
+                    chunks[last] = new byte[Math.max(64, maxBytes)];
+                    size = 0;
+                }
+            }
+            return ((long) last << SHIFT) | size;
+        }
+
+        /**
+         * Trim the current chunk and start one of at most maxBytes, up to a
+         * full chunk, so a stream built in ranges does not grow by doubling
+         */
+        void reserve(long maxBytes) {
+            int capacity = (int) Math.max(64, Math.min(1L << SHIFT, maxBytes));
+            if (size > 0) {
+                chunks[last] = Arrays.copyOf(chunks[last], size);
+                chunks = Arrays.copyOf(chunks, last + 2);
+                last++;
+                size = 0;
+            }
+            chunks[last] = new byte[capacity];
+        }
+
+        void put(int value) {
+            byte[] chunk = chunks[last];
+            while ((value & ~0x7f) != 0) {
+                chunk[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            chunk[size++] = (byte) value;
+        }
+
+        void trim() {
+            chunks[last] = Arrays.copyOf(chunks[last], size);
+        }
+
+        long bytesUsed() {
+            long bytes = 0;
+            for (byte[] chunk : chunks) {
+                bytes += chunk.length;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Position in the lists of one vertex, the neighbor and its weight are
+     * decoded by {@link #next()}
+     */
+    public static final class Cursor {
+        byte[] neighborChunk, weightChunk;
+        int neighborPos, weightPos;
+        int remaining;
+
+        // edge the cursor is on
+        int neighbor;
+        int weight;
+
+        /**
+         * Move to the first edge of v in view
+         *
+         * @return this
+         */
+        Cursor seek(View view, int v) {
+            long p = view.neighborStart[v];
+            neighborChunk = view.neighbors.chunks[(int) (p >>> SHIFT)];
+            neighborPos = (int) (p & MASK);
+            p = view.weightStart[v];
+            weightChunk = view.weights.chunks[(int) (p >>> SHIFT)];
+            weightPos = (int) (p & MASK);
+            remaining = view.degree[v];
+            neighbor = 0;
+            return this;
+        }
+
+        /**
+         * Decode the next edge into {@link #neighbor} and {@link #weight}
+         *
+         * @return false if the list is done
+         */
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            byte[] chunk = neighborChunk;
+            int p = neighborPos;
+            int b = chunk[p++];
+            int value = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = chunk[p++];
+                value |= (b & 0x7f) << shift;
+            }
+            neighborPos = p;
+            neighbor += value;
+
+            chunk = weightChunk;
+            p = weightPos;
+            b = chunk[p++];
+            value = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = chunk[p++];
+                value |= (b & 0x7f) << shift;
+            }
+            weightPos = p;
+            weight = (value >>> 1) ^ -(value & 1);
+            return true;
+        }
+    }
+
+    /**
+     * @return cursor on the incoming edges of v, {@link Cursor#neighbor} is the tail
+     */
+    public Cursor incoming(Cursor cursor, int v) {
+        return cursor.seek(in, v);
+    }
+
+    /**
+     * @return cursor on the outgoing edges of v, {@link Cursor#neighbor} is the head
+     */
+    public Cursor outgoing(Cursor cursor, int v) {
+        return cursor.seek(out, v);
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The contraction forest of the engines that contract a round or a pass
+ * at a time. Vertices 1...n - 1 are its leaves, every contracted cycle is a
+ * node x from n on whose members are
+ * {@code members[memberStart[x - n]...memberStart[x - n + 1]]}, and
+ * {@code forestParent[x]} is the node x went into, -1 for none.
+ *
+ * @author Jun Yu
+ */
+final class ContractionForest {
+    /**
+     * Receiver of the picks that make the tree
+     */
+    interface Keep {
+        /**
+         * @param x node whose pick is a tree edge
+         * @param v vertex the pick enters
+         */
+        void pick(int x, int v);
+    }
+
+    private ContractionForest() {
+    }
+
+    /**
+     * Dismantle the forest from the top. The edge picked by a node enters
+     * one vertex and replaces the picks of every node on the way down to
+     * it, the other members on the way keep their own.
+     *
+     * @param numNodes nodes are 1...numNodes - 1
+     * @param head     vertex entered by the pick of node x
+     * @param keep     told of one pick per vertex but source
+     */
+    static void expand(int n, int numNodes, int source, int[] forestParent, int[] members, int[] memberStart,
+                       IntUnaryOperator head, Keep keep) {
+        int[] tops = new int[numNodes];
+        int numTops = 0;
+        for (int x = 1; x < numNodes; x++) {
+            if (forestParent[x] < 0 && x != source) {
+                tops[numTops++] = x;
+            }
+        }
+
+        while (numTops > 0) {
+            int x = tops[--numTops];
+            int v = head.applyAsInt(x);
+            keep.pick(x, v);
+
+            int node = v;
+            while (node != x) {
+                int p = forestParent[node];
+                for (int i = memberStart[p - n]; i < memberStart[p - n + 1]; i++) {
+                    if (members[i] != node) {
+                        tops[numTops++] = members[i];
+                    }
+                }
+                node = p;
+            }
+        }
+    }
+
+    /**
+     * {@link #expand} with picks that are edge ids
+     *
+     * @param pick edge picked by every node
+     * @param to   heads of the edges
+     * @return edge id into every vertex, -1 for source
+     */
+    static int[] parentEdges(int n, int numNodes, int source, int[] forestParent, int[] members, int[] memberStart,
+                             int[] pick, int[] to) {
+        int[] parentEdges = new int[n];
+        Arrays.fill(parentEdges, -1);
+        expand(n, numNodes, source, forestParent, members, memberStart,
+                x -> to[pick[x]], (x, v) -> parentEdges[v] = pick[x]);
+        return parentEdges;
+    }
+
+    /**
+     * Add the contracted cycles and the super-vertices to stats
+     */
+    static void report(SolverStats stats, int n, int numNodes, int[] memberStart) {
+        for (int x = n; x < numNodes; x++) {
+            stats.cycle(memberStart[x - n + 1] - memberStart[x - n]);
+        }
+        stats.vertices(numNodes - 1);
+    }
+}
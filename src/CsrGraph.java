@@ -0,0 +1,545 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Directed multigraph on primitive arrays.
+ * <p>
+ * Every edge has an id that is shared by the incoming view of its head and
+ * the outgoing view of its tail, so a weight change is seen from both sides.
+ * Both views are compressed sparse rows over edge ids. Each vertex owns a
+ * [start, end) segment with some spare room up to its limit; a segment that
+ * overflows is moved to the tail of the array.
+ *
+ * @author Jun Yu
+ */
+public class CsrGraph implements EdgeStore {
+    // loops over the weights of a segment, vectorized when the JVM allows
+    static final WeightKernels KERNELS = WeightKernels.load();
+
+    // edge id -> tail, head and weight
+    int[] from;
+    int[] to;
+    int[] weight;
+    int numEdges;
+
+    // vertex -> segment of edge ids in inEdges / outEdges
+    int[] inStart, inEnd, inLimit;
+    int[] outStart, outEnd, outLimit;
+    int[] inEdges, outEdges;
+    int inTop, outTop;
+
+    // edge id -> slot in inEdges / outEdges
+    int[] inPos, outPos;
+
+    // vertex slots in use, index 0 is ignored
+    int numVertices;
+    boolean indexed;
+
+    // edges deleted for good, no engine sees them; null until the first one
+    BitSet deleted;
+
+    // undo log of redirected edges, (edge id, previous endpoint)
+    int[] headLog = new int[16];
+    int headLogTop;
+    int[] tailLog = new int[16];
+    int tailLogTop;
+
+    /**
+     * @param numVertices  vertex slots, including the ignored 0 index
+     * @param edgeCapacity expected number of edges
+     */
+    public CsrGraph(int numVertices, int edgeCapacity) {
+        this.numVertices = numVertices;
+        edgeCapacity = Math.max(edgeCapacity, 16);
+        from = new int[edgeCapacity];
+        to = new int[edgeCapacity];
+        weight = new int[edgeCapacity];
+    }
+
+    /**
+     * Take over edge arrays filled by a loader
+     *
+     * @param numVertices vertex slots, including the ignored 0 index
+     * @param from        tails
+     * @param to          heads
+     * @param weight      weights
+     * @param numEdges    edges in use
+     */
+    public CsrGraph(int numVertices, int[] from, int[] to, int[] weight, int numEdges) {
+        this.numVertices = numVertices;
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.numEdges = numEdges;
+    }
+
+    /**
+     * Add directed edge, before or after the index is built
+     *
+     * @param src    index of source vertex
+     * @param dst    index of destination vertex
+     * @param weight int
+     * @return edge id
+     */
+    public int addEdge(int src, int dst, int weight) {
+        if (numEdges == from.length) {
+            growEdges(numEdges + (numEdges >> 1));
+        }
+        int e = numEdges++;
+        this.from[e] = src;
+        this.to[e] = dst;
+        this.weight[e] = weight;
+
+        if (indexed) {
+            appendIn(dst, e);
+            appendOut(src, e);
+        }
+        return e;
+    }
+
+    private void growEdges(int capacity) {
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        if (indexed) {
+            inPos = Arrays.copyOf(inPos, capacity);
+            outPos = Arrays.copyOf(outPos, capacity);
+        }
+    }
+
+    /**
+     * Build both views by counting sort over edge ids
+     */
+    public void buildIndex() {
+        int capacity = numVertices + numVertices / 2 + 1;
+        inStart = new int[capacity];
+        inEnd = new int[capacity];
+        inLimit = new int[capacity];
+        outStart = new int[capacity];
+        outEnd = new int[capacity];
+        outLimit = new int[capacity];
+        inPos = new int[from.length];
+        outPos = new int[from.length];
+
+        // headroom for the segments of contracted vertices
+        int slots = numEdges + numEdges / 2 + 16;
+        inEdges = new int[slots];
+        outEdges = new int[slots];
+
+        for (int e = 0; e < numEdges; e++) {
+            if (isDeleted(e)) {
+                continue;
+            }
+            inEnd[to[e]]++;
+            outEnd[from[e]]++;
+        }
+
+        int inSum = 0;
+        int outSum = 0;
+        for (int v = 0; v < numVertices; v++) {
+            inStart[v] = inSum;
+            inSum += inEnd[v];
+            inEnd[v] = inStart[v];
+            inLimit[v] = inSum;
+
+            outStart[v] = outSum;
+            outSum += outEnd[v];
+            outEnd[v] = outStart[v];
+            outLimit[v] = outSum;
+        }
+        inTop = inSum;
+        outTop = outSum;
+
+        for (int e = 0; e < numEdges; e++) {
+            if (isDeleted(e)) {
+                inPos[e] = outPos[e] = -1;
+                continue;
+            }
+            int p = inEnd[to[e]]++;
+            inEdges[p] = e;
+            inPos[e] = p;
+
+            p = outEnd[from[e]]++;
+            outEdges[p] = e;
+            outPos[e] = p;
+        }
+        indexed = true;
+    }
+
+    /**
+     * Add a vertex with empty segments
+     *
+     * @param inCapacity  room reserved for incoming edges
+     * @param outCapacity room reserved for outgoing edges
+     * @return index of new vertex
+     */
+    public int addVertex(int inCapacity, int outCapacity) {
+        if (numVertices == inStart.length) {
+            int capacity = numVertices + (numVertices >> 1) + 1;
+            inStart = Arrays.copyOf(inStart, capacity);
+            inEnd = Arrays.copyOf(inEnd, capacity);
+            inLimit = Arrays.copyOf(inLimit, capacity);
+            outStart = Arrays.copyOf(outStart, capacity);
+            outEnd = Arrays.copyOf(outEnd, capacity);
+            outLimit = Arrays.copyOf(outLimit, capacity);
+        }
+        int x = numVertices++;
+        inStart[x] = inEnd[x] = inLimit[x] = 0;
+        outStart[x] = outEnd[x] = outLimit[x] = 0;
+
+        reserveIn(inCapacity);
+        inStart[x] = inEnd[x] = inTop;
+        inTop += inCapacity;
+        inLimit[x] = inTop;
+
+        reserveOut(outCapacity);
+        outStart[x] = outEnd[x] = outTop;
+        outTop += outCapacity;
+        outLimit[x] = outTop;
+
+        return x;
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        if (size <= array.length) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(size, array.length + (array.length >> 1)));
+    }
+
+    /**
+     * Make room for extra slots at the tail of inEdges. Segments left behind
+     * by moved vertices are squeezed out in place before the array grows,
+     * so a contraction only allocates when the live edges do not fit.
+     */
+    private void reserveIn(int extra) {
+        if (inTop + extra <= inEdges.length) {
+            return;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            if (inEnd[v] == inStart[v]) {
+                inStart[v] = inEnd[v] = inLimit[v] = 0;
+            }
+        }
+        // slide the segments down in the order they lie in the array,
+        // a slot is live iff inPos points back at it
+        int top = 0;
+        int p = 0;
+        while (p < inTop) {
+            int e = inEdges[p];
+            int v = to[e];
+            if (inPos[e] != p || inStart[v] != p) {
+                p++;
+                continue;
+            }
+            int len = inEnd[v] - p;
+            System.arraycopy(inEdges, p, inEdges, top, len);
+            for (int q = top; q < top + len; q++) {
+                inPos[inEdges[q]] = q;
+            }
+            inStart[v] = top;
+            top += len;
+            inEnd[v] = inLimit[v] = top;
+            p += len;
+        }
+        inTop = top;
+        if (inTop + extra > inEdges.length) {
+            inEdges = Arrays.copyOf(inEdges, (inTop + extra) * 3 / 2);
+        }
+    }
+
+    private void reserveOut(int extra) {
+        if (outTop + extra <= outEdges.length) {
+            return;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            if (outEnd[v] == outStart[v]) {
+                outStart[v] = outEnd[v] = outLimit[v] = 0;
+            }
+        }
+        int top = 0;
+        int p = 0;
+        while (p < outTop) {
+            int e = outEdges[p];
+            int v = from[e];
+            if (outPos[e] != p || outStart[v] != p) {
+                p++;
+                continue;
+            }
+            int len = outEnd[v] - p;
+            System.arraycopy(outEdges, p, outEdges, top, len);
+            for (int q = top; q < top + len; q++) {
+                outPos[outEdges[q]] = q;
+            }
+            outStart[v] = top;
+            top += len;
+            outEnd[v] = outLimit[v] = top;
+            p += len;
+        }
+        outTop = top;
+        if (outTop + extra > outEdges.length) {
+            outEdges = Arrays.copyOf(outEdges, (outTop + extra) * 3 / 2);
+        }
+    }
+
+    private void appendIn(int v, int e) {
+        if (inEnd[v] == inLimit[v]) {
+            // move segment to the tail with twice the room
+            int len = inEnd[v] - inStart[v];
+            int capacity = Math.max(4, len * 2);
+            reserveIn(capacity);
+            System.arraycopy(inEdges, inStart[v], inEdges, inTop, len);
+            for (int p = inTop; p < inTop + len; p++) {
+                inPos[inEdges[p]] = p;
+            }
+            inStart[v] = inTop;
+            inEnd[v] = inTop + len;
+            inTop += capacity;
+            inLimit[v] = inTop;
+        }
+        int p = inEnd[v]++;
+        inEdges[p] = e;
+        inPos[e] = p;
+    }
+
+    private void appendOut(int v, int e) {
+        if (outEnd[v] == outLimit[v]) {
+            int len = outEnd[v] - outStart[v];
+            int capacity = Math.max(4, len * 2);
+            reserveOut(capacity);
+            System.arraycopy(outEdges, outStart[v], outEdges, outTop, len);
+            for (int p = outTop; p < outTop + len; p++) {
+                outPos[outEdges[p]] = p;
+            }
+            outStart[v] = outTop;
+            outEnd[v] = outTop + len;
+            outTop += capacity;
+            outLimit[v] = outTop;
+        }
+        int p = outEnd[v]++;
+        outEdges[p] = e;
+        outPos[e] = p;
+    }
+
+    /**
+     * Unlink edge from the incoming view of its head in O(1).
+     * The order of the head's remaining edges changes.
+     */
+    private void unlinkIn(int e) {
+        int v = to[e];
+        int p = inPos[e];
+        int last = --inEnd[v];
+        int moved = inEdges[last];
+        inEdges[p] = moved;
+        inPos[moved] = p;
+    }
+
+    private void unlinkOut(int e) {
+        int v = from[e];
+        int p = outPos[e];
+        int last = --outEnd[v];
+        int moved = outEdges[last];
+        outEdges[p] = moved;
+        outPos[moved] = p;
+    }
+
+    /**
+     * Remove edge from both views. The id stays allocated.
+     *
+     * @param e edge id
+     */
+    public void removeEdge(int e) {
+        unlinkIn(e);
+        unlinkOut(e);
+        inPos[e] = -1;
+        outPos[e] = -1;
+    }
+
+    public boolean isRemoved(int e) {
+        return inPos[e] < 0;
+    }
+
+    /**
+     * Delete edge from the graph itself, unlike removeEdge which is part of
+     * a contraction. The id stays allocated and is skipped from now on.
+     *
+     * @param e edge id
+     */
+    public void deleteEdge(int e) {
+        if (deleted == null) {
+            deleted = new BitSet(numEdges);
+        }
+        if (indexed && !isRemoved(e)) {
+            removeEdge(e);
+        }
+        deleted.set(e);
+    }
+
+    @Override
+    public int numEdges() {
+        return numEdges;
+    }
+
+    @Override
+    public int from(int e) {
+        return from[e];
+    }
+
+    @Override
+    public int to(int e) {
+        return to[e];
+    }
+
+    @Override
+    public int weight(int e) {
+        return weight[e];
+    }
+
+    @Override
+    public boolean isDeleted(int e) {
+        return deleted != null && deleted.get(e);
+    }
+
+    /**
+     * Let edge point to another head, and log the old one for undo
+     *
+     * @param e edge id
+     * @param x new head
+     */
+    public void redirectHead(int e, int x) {
+        headLog = ensure(headLog, headLogTop + 2);
+        headLog[headLogTop++] = e;
+        headLog[headLogTop++] = to[e];
+
+        unlinkIn(e);
+        to[e] = x;
+        appendIn(x, e);
+    }
+
+    /**
+     * Let edge leave from another tail, and log the old one for undo
+     *
+     * @param e edge id
+     * @param x new tail
+     */
+    public void redirectTail(int e, int x) {
+        tailLog = ensure(tailLog, tailLogTop + 2);
+        tailLog[tailLogTop++] = e;
+        tailLog[tailLogTop++] = from[e];
+
+        unlinkOut(e);
+        from[e] = x;
+        appendOut(x, e);
+    }
+
+    /**
+     * @param x current head
+     * @return edge id of the latest head redirect if it still points to x, otherwise -1
+     */
+    public int lastHeadRedirect(int x) {
+        if (headLogTop == 0) {
+            return -1;
+        }
+        int e = headLog[headLogTop - 2];
+        return to[e] == x ? e : -1;
+    }
+
+    /**
+     * @param x current tail
+     * @return edge id of the latest tail redirect if it still leaves x, otherwise -1
+     */
+    public int lastTailRedirect(int x) {
+        if (tailLogTop == 0) {
+            return -1;
+        }
+        int e = tailLog[tailLogTop - 2];
+        return from[e] == x ? e : -1;
+    }
+
+    /**
+     * Undo the latest head redirect
+     *
+     * @return the restored head
+     */
+    public int undoHeadRedirect() {
+        int old = headLog[--headLogTop];
+        int e = headLog[--headLogTop];
+        if (isRemoved(e)) {
+            // dropped by a later contraction, only the endpoint comes back
+            to[e] = old;
+            return old;
+        }
+        unlinkIn(e);
+        to[e] = old;
+        appendIn(old, e);
+        return old;
+    }
+
+    /**
+     * Undo the latest tail redirect
+     *
+     * @return the restored tail
+     */
+    public int undoTailRedirect() {
+        int old = tailLog[--tailLogTop];
+        int e = tailLog[--tailLogTop];
+        if (isRemoved(e)) {
+            from[e] = old;
+            return old;
+        }
+        unlinkOut(e);
+        from[e] = old;
+        appendOut(old, e);
+        return old;
+    }
+
+    public int inDegree(int v) {
+        return inEnd[v] - inStart[v];
+    }
+
+    public int outDegree(int v) {
+        return outEnd[v] - outStart[v];
+    }
+
+    public int minIncomingWeight(int v) {
+        return KERNELS.min(weight, inEdges, inStart[v], inEnd[v]);
+    }
+
+    /**
+     * Take delta off the weight of every edge coming into v
+     */
+    public void subtractIncoming(int v, int delta) {
+        KERNELS.subtract(weight, inEdges, inStart[v], inEnd[v], delta);
+    }
+
+    /**
+     * @param v head
+     * @return id of one zero-weight edge coming into v, otherwise -1
+     */
+    public int incomingZeroWeightEdge(int v) {
+        int p = KERNELS.nextZero(weight, inEdges, inStart[v], inEnd[v]);
+        return p < inEnd[v] ? inEdges[p] : -1;
+    }
+
+    /**
+     * @return bytes held by the arrays of this graph
+     */
+    public long bytesUsed() {
+        long ints = from.length * 3L + headLog.length + tailLog.length;
+        if (indexed) {
+            ints += inStart.length * 6L + inEdges.length + outEdges.length + inPos.length + outPos.length;
+        }
+        return ints * 4;
+    }
+
+    /**
+     * @return bytes of the arrays of a graph of this size after {@link #buildIndex()}
+     */
+    public static long indexedBytes(int numVertices, int numEdges) {
+        long edges = Math.max(numEdges, 16);
+        long slots = numEdges + numEdges / 2 + 16;
+        long vertices = numVertices + numVertices / 2 + 1;
+        // three columns and two positions per edge, two views with headroom, six arrays per vertex
+        return (edges * 5 + slots * 2 + vertices * 6) * 4;
+    }
+}
@@ -1,4 +1,12 @@
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -6,23 +14,102 @@ import java.util.*;
  *         Created by Jun Yu on 10/31/14.
  */
 public class DirectedMST {
-    ArrayList<Vertex> vertices;
+    /**
+     * Algorithm used by {@link #solve(Engine)}
+     */
+    public enum Engine {
+        // shrink one zero-weight cycle per round, O(VE)
+        CONTRACTION,
+        // Tarjan's contraction with leftist heaps and union-find, O(E log V)
+        TARJAN,
+        // contraction on Fibonacci heaps built in O(E), O(E log V) like TARJAN
+        FIBONACCI,
+        // Chu-Liu/Edmonds, all cycles contracted per round, rounds rebuilt in parallel
+        ROUNDS,
+        // Tarjan's contraction with its heaps and union-find outside the Java heap
+        OFF_HEAP,
+        // rounds of the contraction engine on varint-compressed adjacency, the graph is only read
+        COMPRESSED,
+        // pick by density, see forDensity
+        AUTO;
+
+        /**
+         * Fibonacci heaps build in O(E) instead of O(E log V), but the
+         * engine on them is O(E log V) all the same and its constants are
+         * larger. Complete graphs on 1000 and 3000 vertices solve 1.7x and
+         * 1.2x slower with it than with TARJAN, one on 5000 vertices about
+         * as fast, so no density is worth it.
+         *
+         * @param numVertices number of vertices
+         * @param numEdges    number of edges
+         * @return engine for a graph of this density
+         */
+        public static Engine forDensity(int numVertices, int numEdges) {
+            return TARJAN;
+        }
+    }
+
+    VertexList vertices;
+    CsrGraph graph;
     int numVertices;
     int source;
 
     long weightReduction;
 
-    HashMap<Integer, Pair<Integer>> minIncomingEdgesToCycle = new HashMap<>();
-    HashMap<Integer, Pair<Integer>> minOutgoingEdgesFromCycle = new HashMap<>();
+    // solution of the round engine, it proves the tree optimal until an update breaks the proof
+    RoundArborescence certificate;
+    boolean stale;
+    // the contraction engine leaves reduced weights and a contracted graph behind
+    boolean weightsReduced;
+    // weights by edge id from before the contraction engine reduced them
+    int[] originalWeight;
+
+    // bytes per edge of the last solve with the compressed engine, null before
+    String compression;
+
+    // phase timers and counters of the last solve, null when off
+    SolverStats stats;
+
+    // found by the last solvePruned / solveBranching
+    int[] unreachable = new int[0];
+    int[] roots = new int[0];
+
+    // scratch indexed by vertex
+    int[] queue = new int[0];
+    boolean[] inCycle = new boolean[0];
+    int[] minIncomingEdge = new int[0];
+    int[] minOutgoingEdge = new int[0];
+    // path of walkBackward, a vertex is on it if its stamp is the current one
+    int[] walkStamp = new int[0];
+    int[] walkNext = new int[0];
+    int stamp;
+
+    // contraction stack, the members of cycle c are cycleMembers[cycleStart[c]...cycleStart[c + 1]]
+    // and it became contractedVertices[c]. A vertex is in at most one cycle, so all of it is
+    // indexed by vertex and grows with the scratch.
+    int[] cycleMembers = new int[0];
+    int[] cycleStart = new int[1];
+    int[] contractedVertices = new int[0];
+    int numCycles;
 
     public DirectedMST(int num, int source) {
+        this(num, 0, source);
+    }
+
+    /**
+     * @param num      number of vertices
+     * @param numEdges expected number of edges, to size the edge arrays
+     * @param source   index
+     */
+    public DirectedMST(int num, int numEdges, int source) {
         if (num < 0) {
-            vertices = new ArrayList<>();
+            vertices = new VertexList();
             vertices.add(new Vertex(0));
+            graph = new CsrGraph(1, 0);
             return;
         }
 
-        vertices = new ArrayList<>(num + num / 2);
+        vertices = new VertexList(num + num / 2);
         vertices.add(new Vertex(0)); // ignore 0 index
         this.source = source;
 
@@ -30,60 +117,211 @@ public class DirectedMST {
             vertices.add(new Vertex(i + 1));
         }
         numVertices = vertices.size() - 1;
+        graph = new CsrGraph(vertices.size(), numEdges);
     }
 
-    private DirectedMST(ArrayList<Vertex> vertices, int originalNum, int source) {
-        this.vertices = vertices;
-        this.numVertices = originalNum;
-        this.source = source;
-        this.weightReduction = 0;
+    /**
+     * @param num    number of vertices
+     * @param source index
+     * @param graph  edges of the vertices, loaded elsewhere
+     */
+    public DirectedMST(int num, int source, CsrGraph graph) {
+        this(num, 0, source);
+        this.graph = graph;
+    }
 
-        // clear MST for recursion
-        for (Vertex v : vertices) {
-            v.known = false;
-            v.pred = -1;
-            v.pathMST.clear();
-            v.reachableFromS = false;
+    /**
+     * Find minimum arborescence with the given engine,
+     * the tree is left in pred / predEdge of the vertices
+     *
+     * @param engine algorithm
+     * @return weight of MST
+     */
+    public long solve(Engine engine) {
+        certificate = null;
+        if (engine == Engine.AUTO) {
+            engine = Engine.forDensity(numVertices, graph.numEdges);
+        }
+        if (engine == Engine.CONTRACTION) {
+            return procedure();
+        }
+        SolverStats stats = startStats(engine);
+        long begin = stats == null ? 0 : System.nanoTime();
+        switch (engine) {
+            case FIBONACCI:
+                FibonacciArborescence fibonacci = new FibonacciArborescence(graph, numVertices, source);
+                weightReduction = fibonacci.solve();
+                setTree(fibonacci.parentEdges());
+                if (stats != null) {
+                    fibonacci.report(stats);
+                }
+                break;
+            case ROUNDS:
+                RoundArborescence rounds = new RoundArborescence(graph, numVertices, source);
+                weightReduction = rounds.solve();
+                setTree(rounds.parentEdges());
+                rounds.buildCertificate();
+                certificate = rounds;
+                stale = false;
+                if (stats != null) {
+                    rounds.report(stats);
+                }
+                break;
+            case OFF_HEAP:
+                OffHeapArborescence offHeap = new OffHeapArborescence(graph, numVertices, source);
+                weightReduction = offHeap.solve();
+                offHeap.writeTree(vertices);
+                if (stats != null) {
+                    offHeap.report(stats);
+                }
+                break;
+            case COMPRESSED:
+                CompressedGraph compressedGraph = CompressedGraph.of(graph, numVertices);
+                compression = compressedGraph.report();
+                CompressedArborescence compressed = new CompressedArborescence(compressedGraph, source);
+                weightReduction = compressed.solve();
+                setTree(parentEdges(compressed.result()));
+                if (stats != null) {
+                    compressed.report(stats);
+                }
+                break;
+            default:
+                TarjanArborescence tarjan = new TarjanArborescence(graph, numVertices, source);
+                weightReduction = tarjan.solve();
+                setTree(tarjan.parentEdges());
+                if (stats != null) {
+                    tarjan.report(stats);
+                }
+        }
+        if (stats != null) {
+            stats.lap(SolverStats.Phase.SOLVE, begin);
+            stats.finish(weightReduction);
+        }
+        return weightReduction;
+    }
+
+    /**
+     * @return stats cleared for a solve, null if neither {@link #stats}
+     * nor a flight recording asks for them
+     */
+    private SolverStats startStats(Engine engine) {
+        SolverStats s = stats;
+        if (s == null) {
+            if (!SolverStats.recording()) {
+                return null;
+            }
+            s = new SolverStats();
+        }
+        s.begin(engine.name(), numVertices, graph.numEdges);
+        return s;
+    }
+
+    /**
+     * @param parentEdges edge id into every vertex, -1 for source
+     */
+    void setTree(int[] parentEdges) {
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            Vertex v = vertices.get(v_index);
+            int e = parentEdges[v_index];
+            v.predEdge = e;
+            v.pred = e < 0 ? v_index : graph.from[e];
         }
     }
 
     public long procedure() {
-        weightReduction = transformWeight();
-        bfsMSTUsingZeroWeight(source);
-
-//        System.out.println("Before verify");
-//        printTentativeMST(source);
-//        System.out.println("---Graph---");
-//        printGraph();
-//        System.out.println("---Graph---");
-//        System.out.println("---Before verify");
-
-        // if all vertices reachable from s
-        int index = verifyMST(source);
-        if (index < 0) {
-            return weightReduction;
+        SolverStats stats = startStats(Engine.CONTRACTION);
+        long begin = stats == null ? 0 : System.nanoTime();
+        long t = begin;
+
+        if (!graph.indexed) {
+            graph.buildIndex();
         }
+        // a cycle nobody reaches would be shrunk and dropped silently
+        boolean[] reached = reachableFromSource();
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            if (!reached[v_index]) {
+                throw new IllegalStateException("vertex " + v_index + " is not reachable from " + source);
+            }
+        }
+        weightReduction = 0;
+        if (!weightsReduced) {
+            originalWeight = Arrays.copyOf(graph.weight, graph.numEdges);
+        }
+        weightsReduced = true;
+        numCycles = 0;
 
-        List<Integer> cycle = walkBackward(index);
+        // shrink until every vertex is reachable from s using only 0 edges
+        while (true) {
+            if (stats != null) {
+                t = System.nanoTime();
+            }
+            weightReduction += transformWeight();
+            if (stats != null) {
+                t = stats.lap(SolverStats.Phase.TRANSFORM, t);
+            }
+            bfsMSTUsingZeroWeight(source);
+            if (stats != null) {
+                t = stats.lap(SolverStats.Phase.ZERO_BFS, t);
+            }
 
-        int x_index = shrinkCycle(cycle);
+//            System.out.println("Before verify");
+//            printTentativeMST(source);
+//            System.out.println("---Graph---");
+//            printGraph();
+//            System.out.println("---Graph---");
+//            System.out.println("---Before verify");
+
+            // if all vertices reachable from s
+            int index = verifyMST(source);
+            if (stats != null) {
+                t = stats.lap(SolverStats.Phase.VERIFY, t);
+            }
+            if (index < 0) {
+                break;
+            }
+
+            if (stats != null) {
+                stats.beginContraction(numCycles + 1);
+            }
+            int cycle = walkBackward(index);
+            if (stats != null) {
+                t = stats.lap(SolverStats.Phase.WALK, t);
+            }
 
-        // recursion for for MST in smaller graph
-        DirectedMST smallerGraph = new DirectedMST(this.vertices, this.numVertices, this.source);
-        weightReduction += smallerGraph.procedure();
+            // the smaller graph continues in the next round
+            shrinkCycle(cycle);
+            if (stats != null) {
+                int size = cycleStart[cycle + 1] - cycleStart[cycle];
+                stats.lap(SolverStats.Phase.SHRINK, t);
+                stats.cycle(size);
+                stats.vertices(vertices.size() - 1);
+                stats.endContraction(size, vertices.size() - 1);
+            }
+        }
 
-//        System.out.println("After recursion");
-//        printTentativeMST(source);
-//        System.out.println("---After recursion");
+        // expand in reverse order of shrinking
+        while (numCycles > 0) {
+            numCycles--;
+            recoverCycle(numCycles, contractedVertices[numCycles]);
+            if (stats != null) {
+                t = stats.lap(SolverStats.Phase.RECOVER, t);
+            }
 
-        recoverCycle(cycle, x_index);
+//            System.out.println("After recovery");
+//            printTentativeMST(source);
+//            System.out.println("---After recovery");
+        }
 
+        if (stats != null) {
+            stats.lap(SolverStats.Phase.SOLVE, begin);
+            stats.finish(weightReduction);
+        }
         return weightReduction;
     }
 
     /**
      * Traverse all vertices, if all are reachable from s, then return weight of MST.
-     * Otherwise dive into further procedure: shrink recursion and expand,
+     * Otherwise dive into further procedure: shrink, loop and expand,
      * and eventually return weight of MST.
      *
      * @param source index
@@ -101,18 +339,442 @@ public class DirectedMST {
     }
 
     /**
-     * Add directed edge with weight for both source and destination vertices
+     * Add directed edge with weight, shared by source and destination vertices.
+     * After a solve the tree is kept if the new edge can not improve it.
      *
      * @param src    index of source vertex
      * @param dst    index of destination vertex
      * @param weight int
+     * @return edge id
+     */
+    public int addEdge(int src, int dst, int weight) {
+        int e = graph.addEdge(src, dst, weight);
+        if (certificate != null && !stale && weight < certificate.reduction(src, dst)) {
+            int tree = certificate.in[dst];
+            stale = !repair(dst, graph.weight[tree]);
+        }
+        return e;
+    }
+
+    /**
+     * Change the weight of an edge. The tree is kept when the change can not
+     * make another tree cheaper: a tree edge getting cheaper, any other edge
+     * getting dearer, or getting cheaper but not below its reduction.
+     * Otherwise, if the head is in no contracted cycle, it picks its cheapest
+     * edge again, see {@link RoundArborescence#repick}. Only if that fails is
+     * the tree solved again on the next {@link #currentWeight()}.
+     *
+     * @param e      edge id
+     * @param weight new weight
+     */
+    public void updateEdgeWeight(int e, int weight) {
+        checkWeights();
+        int old = graph.weight[e];
+        graph.weight[e] = weight;
+        if (certificate == null || stale || graph.isDeleted(e)) {
+            return;
+        }
+        int v = graph.to[e];
+        if (certificate.isTreeEdge(e)) {
+            if (weight <= old) {
+                certificate.shiftVertex(v, weight - old);
+                weightReduction += weight - old;
+            } else {
+                stale = !repair(v, old);
+            }
+        } else if (weight < old && weight < certificate.reduction(graph.from[e], v)) {
+            stale = !repair(v, graph.weight[certificate.in[v]]);
+        }
+    }
+
+    /**
+     * Delete an edge, the id is not reused. Deleting a tree edge into a
+     * vertex in no contracted cycle picks again as {@link #updateEdgeWeight}
+     * does, deleting one into a cycle needs a new solve.
+     *
+     * @param e edge id
      */
-    public void addEdge(int src, int dst, int weight) {
-        Vertex srcV = vertices.get(src);
-        srcV.addOutAdj(dst, weight);
+    public void removeEdge(int e) {
+        checkWeights();
+        if (graph.isDeleted(e)) {
+            return;
+        }
+        graph.deleteEdge(e);
+        if (certificate != null && !stale && certificate.isTreeEdge(e)) {
+            stale = !repair(graph.to[e], graph.weight[e]);
+        }
+    }
 
-        Vertex dstV = vertices.get(dst);
-        dstV.addInAdj(src, weight);
+    /**
+     * Let v pick its tree edge again and move the tree and its weight along
+     *
+     * @param old weight the tree edge into v had
+     * @return false if v could not pick without a new solve
+     */
+    private boolean repair(int v, int old) {
+        int e = certificate.repick(v);
+        if (e < 0) {
+            return false;
+        }
+        Vertex vertex = vertices.get(v);
+        vertex.pred = graph.from[e];
+        vertex.predEdge = e;
+        weightReduction += graph.weight[e] - old;
+        return true;
+    }
+
+    /**
+     * Dual that proves the tree of the last solve optimal, for an audit with
+     * {@link DualCertificate#verify} that costs a pass over the edges
+     *
+     * @return dual, null unless the round engine solved and no update broke its proof since
+     */
+    public DualCertificate dualCertificate() {
+        return certificate == null || stale ? null : certificate.dual();
+    }
+
+    /**
+     * Weight of minimum arborescence after the updates so far, solving with
+     * the round engine only if an update broke the last solution. The tree
+     * is in pred / predEdge of the vertices.
+     *
+     * @return weight of MST
+     */
+    public long currentWeight() {
+        if (certificate == null || stale) {
+            checkWeights();
+            solve(Engine.ROUNDS);
+        }
+        return weightReduction;
+    }
+
+    /**
+     * Solve only the part reachable from source. One pass over the edges
+     * finds the unreachable vertices, they are left out of the solve and
+     * listed in {@link #unreachable}, with no edge into them in the tree.
+     *
+     * @param engine algorithm for the reachable part
+     * @return weight of MST of the reachable part
+     */
+    public long solvePruned(Engine engine) {
+        return solvePreprocessed(engine, new GraphPreprocessor(EnumSet.of(GraphPreprocessor.Step.UNREACHABLE)));
+    }
+
+    /**
+     * Run the preprocessor and solve what it leaves. The tree refers to the
+     * edge ids of this graph, which is not changed; vertices it left out are
+     * listed in {@link #unreachable}, with no edge into them in the tree.
+     *
+     * @param engine       algorithm for the cleaned graph
+     * @param preprocessor steps to run, with the counts of what they removed afterwards
+     * @return weight of MST
+     */
+    public long solvePreprocessed(Engine engine, GraphPreprocessor preprocessor) {
+        if (!preprocessor.run(graph, numVertices, source)) {
+            unreachable = new int[0];
+            return solve(engine);
+        }
+        unreachable = preprocessor.unreachable();
+
+        DirectedMST part = new DirectedMST(preprocessor.numVertices, preprocessor.source, preprocessor.graph());
+        part.stats = stats;
+        weightReduction = part.solve(engine);
+        int[] label = preprocessor.label;
+        int[] original = preprocessor.original;
+        int[] parentEdges = new int[numVertices + 1];
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            int e = label[v_index] > 0 ? part.vertices.get(label[v_index]).predEdge : -1;
+            parentEdges[v_index] = e < 0 ? -1 : original[e];
+        }
+        setTree(parentEdges);
+        certificate = null;
+        return weightReduction;
+    }
+
+    /**
+     * Solve, or take the tree from cache if this graph with this source was
+     * solved before. A cached tree is matched back to edge ids with one pass
+     * over the edges; if some tree edge is not found, the graph is solved.
+     *
+     * @param engine algorithm on a miss
+     * @param cache  trees by graph content
+     * @return weight of MST
+     */
+    public long solveCached(Engine engine, ResultCache cache) throws IOException {
+        checkWeights();
+        // before the solve, the contraction engine changes the weights
+        ResultCache.Key key = ResultCache.key(graph, numVertices, source);
+        Arborescence tree = cache.get(key);
+        if (tree != null) {
+            int[] parentEdges = parentEdges(tree);
+            if (parentEdges != null) {
+                setTree(parentEdges);
+                certificate = null;
+                weightReduction = tree.totalWeight;
+                return weightReduction;
+            }
+        }
+        long weight = solve(engine);
+        cache.put(key, result());
+        return weight;
+    }
+
+    /**
+     * Match a tree given by tails and weights back to edge ids, with one
+     * pass over the edges
+     *
+     * @return edge id into every vertex, -1 for source, null if some tree edge is not in the graph
+     */
+    int[] parentEdges(Arborescence tree) {
+        int[] parentEdges = new int[numVertices + 1];
+        Arrays.fill(parentEdges, -1);
+        int found = 0;
+        for (int e = 0; e < graph.numEdges; e++) {
+            int v = graph.to[e];
+            if (parentEdges[v] < 0 && v != source && !graph.isDeleted(e)
+                    && graph.from[e] == tree.parent[v] && graph.weight[e] == tree.weight[v]) {
+                parentEdges[v] = e;
+                found++;
+            }
+        }
+        return found == numVertices - 1 ? parentEdges : null;
+    }
+
+    /**
+     * Solve with the edges split over worker processes, the tree is left in
+     * pred / predEdge of the vertices
+     *
+     * @param numWorkers processes
+     * @param port       where to wait for workers started with --worker, 0 to start them on this machine
+     * @return weight of MST
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solveDistributed(int numWorkers, int port) throws IOException {
+        return solveDistributed(numWorkers, null, port);
+    }
+
+    /**
+     * @param host       address to wait for workers on, null for loopback only
+     * @param port       where to wait for workers started with --worker, 0 to start them on this machine
+     */
+    public long solveDistributed(int numWorkers, String host, int port) throws IOException {
+        checkWeights();
+        certificate = null;
+        SolverStats s = stats;
+        if (s != null) {
+            s.begin("DISTRIBUTED", numVertices, graph.numEdges);
+        }
+        long begin = System.nanoTime();
+        DistributedArborescence solver = new DistributedArborescence(graph, numVertices, source);
+        if (port == 0) {
+            weightReduction = solver.solve(numWorkers);
+        } else {
+            InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+            try (ServerSocket server = new ServerSocket()) {
+                server.bind(new InetSocketAddress(address, port), numWorkers);
+                weightReduction = solver.solve(server, numWorkers);
+            }
+        }
+        setTree(solver.parentEdges());
+        System.err.println("workers " + numWorkers + ", rounds " + solver.rounds + ", sent "
+                + solver.bytesSent / 1024 + " KB, received " + solver.bytesReceived / 1024 + " KB");
+        if (s != null) {
+            s.lap(SolverStats.Phase.SOLVE, begin);
+            solver.report(s);
+            s.finish(weightReduction);
+        }
+        return weightReduction;
+    }
+
+    /**
+     * Contract the graph once for queries with any root, {@link #source} is not used
+     *
+     * @return minimum arborescences by root
+     */
+    public AllRootsArborescence allRoots() {
+        checkWeights();
+        return new AllRootsArborescence(graph, numVertices).build();
+    }
+
+    /**
+     * The k lightest arborescences, lightest first, computed as they are
+     * taken. The graph is only read.
+     *
+     * @param k          trees wanted
+     * @param maxPending subproblems kept waiting at most, k or more loses nothing
+     * @return iterator over the trees
+     */
+    public KBestArborescences kBest(int k, int maxPending) {
+        checkWeights();
+        return new KBestArborescences(graph, numVertices, source, k, maxPending);
+    }
+
+    /**
+     * Minimum spanning branching: a forest in which source and as few other
+     * vertices as possible are roots, and of those forests the lightest.
+     * <p>
+     * A new root gets an edge to source lighter than any edge, and an edge
+     * to every other vertex heavier than the weight of any n edges apart.
+     * Then one more root always costs more than it can save, and solving
+     * from the new root gives the branching. The roots are listed in
+     * {@link #roots}, source first, with no edge into them in the tree.
+     * <p>
+     * If those edges are further apart from the others than an int spans,
+     * and for {@link Engine#TARJAN}, they are long edges in the heaps of
+     * {@link TarjanArborescence#solveBranching} instead, whatever the engine.
+     *
+     * @param engine algorithm
+     * @return weight of the branching
+     */
+    public long solveBranching(Engine engine) {
+        checkWeights();
+        int m = 0;
+        long min = 0;
+        long max = 0;
+        for (int e = 0; e < graph.numEdges; e++) {
+            if (!graph.isDeleted(e)) {
+                long w = graph.weight[e];
+                min = m == 0 ? w : Math.min(min, w);
+                max = m == 0 ? w : Math.max(max, w);
+                m++;
+            }
+        }
+        long toSource = min - 1;
+        long penalty = (long) numVertices * (max - min) + Math.max(max, 0) + 1;
+        if (engine == Engine.AUTO) {
+            engine = Engine.forDensity(numVertices, m + numVertices);
+        }
+        int[] parentEdges;
+        // the engines reduce weights in ints, by as much as the edges are apart
+        if (engine == Engine.TARJAN || toSource < Integer.MIN_VALUE || penalty > Integer.MAX_VALUE
+                || penalty - toSource > Integer.MAX_VALUE) {
+            SolverStats stats = startStats(Engine.TARJAN);
+            long begin = stats == null ? 0 : System.nanoTime();
+            TarjanArborescence tarjan = new TarjanArborescence(graph, numVertices, source);
+            weightReduction = tarjan.solveBranching(penalty);
+            parentEdges = Arrays.copyOf(tarjan.parentEdges(), numVertices + 1);
+            if (stats != null) {
+                tarjan.report(stats);
+                stats.lap(SolverStats.Phase.SOLVE, begin);
+                stats.finish(weightReduction);
+            }
+        } else {
+            parentEdges = solveRooted(engine, m, toSource, (int) penalty);
+        }
+
+        int numRoots = 1;
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            if (parentEdges[v_index] < 0 && v_index != source) {
+                numRoots++;
+            }
+        }
+        roots = new int[numRoots];
+        roots[0] = source;
+        int k = 1;
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            if (parentEdges[v_index] < 0 && v_index != source) {
+                roots[k++] = v_index;
+            }
+        }
+        setTree(parentEdges);
+        certificate = null;
+        return weightReduction;
+    }
+
+    /**
+     * Solve from a new root with int edges to every vertex, as described at
+     * {@link #solveBranching}
+     *
+     * @param m live edges
+     * @return edge id into every vertex, -1 for roots
+     */
+    private int[] solveRooted(Engine engine, int m, long toSource, int penalty) {
+        int root = numVertices + 1;
+        int[] from = new int[m + numVertices];
+        int[] to = new int[m + numVertices];
+        int[] weight = new int[m + numVertices];
+        int[] original = new int[m];
+        m = 0;
+        for (int e = 0; e < graph.numEdges; e++) {
+            if (!graph.isDeleted(e)) {
+                from[m] = graph.from[e];
+                to[m] = graph.to[e];
+                weight[m] = graph.weight[e];
+                original[m++] = e;
+            }
+        }
+        int numOriginal = m;
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            from[m] = root;
+            to[m] = v_index;
+            weight[m++] = (int) (v_index == source ? toSource : penalty);
+        }
+
+        DirectedMST rooted = new DirectedMST(root, root, new CsrGraph(root + 1, from, to, weight, m));
+        rooted.stats = stats;
+        long total = rooted.solve(engine);
+        int[] parentEdges = new int[numVertices + 1];
+        int numRoots = 0;
+        for (int v_index = 1; v_index <= numVertices; v_index++) {
+            int e = rooted.vertices.get(v_index).predEdge;
+            if (e >= numOriginal) {
+                parentEdges[v_index] = -1;
+                numRoots++;
+            } else {
+                parentEdges[v_index] = original[e];
+            }
+        }
+        weightReduction = total - toSource - (numRoots - 1) * (long) penalty;
+        return parentEdges;
+    }
+
+    /**
+     * Breadth first search over outgoing edges, grouped by tail with a counting sort
+     *
+     * @return whether each vertex is reachable from source
+     */
+    boolean[] reachableFromSource() {
+        int n = numVertices + 1;
+        int[] outStart = new int[n + 1];
+        for (int e = 0; e < graph.numEdges; e++) {
+            if (!graph.isDeleted(e)) {
+                outStart[graph.from[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            outStart[v + 1] += outStart[v];
+        }
+        int[] out = new int[outStart[n]];
+        int[] fill = Arrays.copyOf(outStart, n);
+        for (int e = 0; e < graph.numEdges; e++) {
+            if (!graph.isDeleted(e)) {
+                out[fill[graph.from[e]]++] = graph.to[e];
+            }
+        }
+
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        reached[source] = true;
+        queue[tail++] = source;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int p = outStart[u]; p < outStart[u + 1]; p++) {
+                int v = out[p];
+                if (!reached[v]) {
+                    reached[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return reached;
+    }
+
+    private void checkWeights() {
+        if (weightsReduced) {
+            throw new IllegalStateException("graph was changed in place by the contraction engine");
+        }
     }
 
     /**
@@ -129,31 +791,44 @@ public class DirectedMST {
             if (u == source) {
                 continue;
             }
-            Vertex vertex = vertices.get(u);
             // TODO should d_u be a function or a variable?
-            int d_u = vertex.minIncomingWeight();
+            if (graph.inEnd[u] == graph.inStart[u]) {
+                // members of shrunk cycles keep their 0 edges, so nothing ever reaches u
+                throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+            }
+            int d_u = graph.minIncomingWeight(u);
             if (d_u == 0) {
                 // no need to reduce
                 continue;
             }
 
-            // for each p in V
-            ListIterator<Integer> inItor = vertex.inAdj.listIterator();
-            ListIterator<Integer> inWeightItor = vertex.inAdjWeight.listIterator();
-            while (inItor.hasNext()) {
-                int p = inItor.next();
-                int weight = inWeightItor.next();
-                // set for incoming edge of u
-                inWeightItor.set(weight - d_u);
-                // set for outgoing edge of p, actually they are the same edge
-                vertices.get(p).changeOutgoingWeight(u, -d_u);
-            }
+            // for each p in V, the incoming edge of u is the outgoing edge of p
+            graph.subtractIncoming(u, d_u);
             sum += d_u;
         }
 
         return sum;
     }
 
+    private void ensureScratch() {
+        int size = vertices.size();
+        if (queue.length < size) {
+            int capacity = size + size / 2;
+            queue = new int[capacity];
+            inCycle = Arrays.copyOf(inCycle, capacity);
+            int old = minIncomingEdge.length;
+            minIncomingEdge = Arrays.copyOf(minIncomingEdge, capacity);
+            minOutgoingEdge = Arrays.copyOf(minOutgoingEdge, capacity);
+            Arrays.fill(minIncomingEdge, old, capacity, -1);
+            Arrays.fill(minOutgoingEdge, old, capacity, -1);
+            walkStamp = Arrays.copyOf(walkStamp, capacity);
+            walkNext = new int[capacity];
+            cycleMembers = Arrays.copyOf(cycleMembers, capacity);
+            cycleStart = Arrays.copyOf(cycleStart, capacity + 1);
+            contractedVertices = Arrays.copyOf(contractedVertices, capacity);
+        }
+    }
+
     /**
      * BST of graph, which source is source
      *
@@ -161,298 +836,298 @@ public class DirectedMST {
      * @return -1 if all are reachable from s, otherwise the index that not reachable from s just using 0 edge
      */
     public int bfsMSTReachableFromS(int source) {
-        for (Vertex v : vertices) {
-            v.known = false;
-        }
+        ensureScratch();
+        int[] outEdges = graph.outEdges;
+        int[] to = graph.to;
 
         Vertex s = vertices.get(source);
         s.known = true;
 
-        LinkedList<Integer> queue = new LinkedList<>();
-        queue.add(source);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
 
-        while (!queue.isEmpty()) {
-            int u_index = queue.remove();
-            Vertex u = vertices.get(u_index);
+        while (head < tail) {
+            int u_index = queue[head++];
 
-            for (Integer v_index : u.outAdj) {
+            for (int p = graph.outStart[u_index]; p < graph.outEnd[u_index]; p++) {
+                int v_index = to[outEdges[p]];
                 Vertex v = vertices.get(v_index);
 
                 if (!v.reachableFromS) {
+                    clearKnown(tail);
                     return v_index;
                 }
 
                 if (!v.known) {
                     v.known = true;
-                    queue.add(v_index);
+                    queue[tail++] = v_index;
                 }
             }
         }
+        clearKnown(tail);
         return -1;
     }
 
+    /**
+     * Reset known of the vertices a BFS put in queue,
+     * so a round costs nothing for vertices it does not reach
+     *
+     * @param tail number of vertices in queue
+     */
+    private void clearKnown(int tail) {
+        for (int i = 0; i < tail; i++) {
+            vertices.get(queue[i]).known = false;
+        }
+    }
+
     /**
      * BST of graph using only 0-weight edge, which source is source
      *
      * @param source index
      */
     public void bfsMSTUsingZeroWeight(int source) {
-        for (Vertex v : vertices) {
-            v.known = false;
-        }
+        ensureScratch();
+        int[] outEdges = graph.outEdges;
+        int[] to = graph.to;
+        int[] weight = graph.weight;
+        WeightKernels kernels = CsrGraph.KERNELS;
 
         Vertex s = vertices.get(source);
         s.known = true;
         s.pred = source;
+        s.predEdge = -1;
         s.reachableFromS = true;
 
-        LinkedList<Integer> queue = new LinkedList<>();
-        queue.add(source);
-
-        while (!queue.isEmpty()) {
-            int u_index = queue.remove();
-            Vertex u = vertices.get(u_index);
-            Iterator<Integer> adjItor = u.outAdj.iterator();
-            Iterator<Integer> adjWeightItor = u.outAdjWeight.iterator();
-
-            // every vertex in queue is reachable from s using only 0-weight edges
-            while (adjItor.hasNext()) {
-                int v_index = adjItor.next();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int u_index = queue[head++];
+
+            // every vertex in queue is reachable from s using only 0-weight edges;
+            // v is reachable from u using only 0-weight edges iff weight = 0,
+            // that means v is reachable from s
+            int end = graph.outEnd[u_index];
+            for (int p = kernels.nextZero(weight, outEdges, graph.outStart[u_index], end); p < end;
+                 p = kernels.nextZero(weight, outEdges, p + 1, end)) {
+                int e = outEdges[p];
+                int v_index = to[e];
                 Vertex v = vertices.get(v_index);
-                int weight = adjWeightItor.next();
-
-                // v is reachable from u using only 0-weight edges iff weight = 0,
-                // that means v is reachable from s
-                if (weight == 0) {
-                    v.reachableFromS = true;
-                    // add vertex, to which o-weight pointer, and unknown to queue
-                    if (!v.known) {
-                        v.known = true;
-                        v.pred = u_index;
-                        u.pathMST.add(v_index);
-                        queue.add(v_index);
-                    }
+                v.reachableFromS = true;
+                // add vertex, to which o-weight pointer, and unknown to queue
+                if (!v.known) {
+                    v.known = true;
+                    v.pred = u_index;
+                    v.predEdge = e;
+                    queue[tail++] = v_index;
                 }
             }
         }
+        clearKnown(tail);
     }
 
     /**
-     * Walk backward from one of the vertices that are not reachable from s
+     * Walk backward from one of the vertices that are not reachable from s,
+     * and push the cycle it runs into on the contraction stack
      *
      * @param z_index not reachable just using 0 edge
-     * @return cycle
+     * @return cycle, every vertex is the successor of the next one
      */
-    public List<Integer> walkBackward(int z_index) {
-        Vertex z = vertices.get(z_index);
-
-        assert z != null;
-
-        List<Integer> tempList = new LinkedList<>();
-        int v_index;
-        Vertex v = z;
-        tempList.add(z_index);
-
-        // find a node that repeats in backward search
-        while (true) {
-            int zeroEdgeVertex = v.getOneIncomingZeroWeightEdgeVertex();
-            assert zeroEdgeVertex != -1;
-
-            v_index = zeroEdgeVertex;
-            v = vertices.get(zeroEdgeVertex);
-
-            if (tempList.contains(zeroEdgeVertex)) {
-                break; // v repeated
-            }
-
-            tempList.add(zeroEdgeVertex);
+    public int walkBackward(int z_index) {
+        ensureScratch();
+        if (++stamp == 0) {
+            Arrays.fill(walkStamp, 0);
+            stamp = 1;
         }
 
-        // find the cycle begins at v
-        // what need to do is truncate temp list begin at v;
-        int v_in_tempList = tempList.indexOf(v_index);
-        assert v_in_tempList != -1;
-
-        List<Integer> cycle = new LinkedList<>();
-        ListIterator<Integer> itor = tempList.listIterator(v_in_tempList);
-        while (itor.hasNext()) {
-            int v_in_cycle = itor.next();
-            cycle.add(v_in_cycle);
+        // find a node that repeats in backward search
+        int v_index = z_index;
+        while (walkStamp[v_index] != stamp) {
+            int zeroEdge = graph.incomingZeroWeightEdge(v_index);
+            assert zeroEdge != -1;
+
+            walkStamp[v_index] = stamp;
+            walkNext[v_index] = graph.from[zeroEdge];
+            v_index = walkNext[v_index];
         }
 
-        return cycle;
-    }
-
-    class Pair<T> {
-        T from, to;
-
-        public Pair(T from, T to) {
-            this.from = from;
-            this.to = to;
-        }
+        // the cycle begins at v, go round it once more
+        int top = cycleStart[numCycles];
+        int u_index = v_index;
+        do {
+            cycleMembers[top++] = u_index;
+            u_index = walkNext[u_index];
+        } while (u_index != v_index);
+        cycleStart[numCycles + 1] = top;
+        return numCycles++;
     }
 
     /**
-     * Shrink cycle C into a single node
+     * Shrink cycle C into a single node.
+     * The cheapest edge between C and every other vertex is redirected to the
+     * new node, the other edges between them are dropped.
      *
-     * @param cycle cycle to be shrunk
+     * @param cycle on the contraction stack, every vertex is the successor of the next one
      * @return index of new node
      */
-    public int shrinkCycle(List<Integer> cycle) {
-        // key node not in the cycle -> new minimum edge
-        HashMap<Integer, Integer> imcomingVisitedWeight = new HashMap<>();
-        HashMap<Integer, Integer> outgoingVisitedWeight = new HashMap<>();
-        // record the edge corresponding to this minimum weight in the graph before shrinking
-        Pair<Integer> minIncomingEdge;
-        Pair<Integer> minOutgoingEdge;
-
+    public int shrinkCycle(int cycle) {
+        ensureScratch();
+        int[] from = graph.from;
+        int[] to = graph.to;
+        int[] weight = graph.weight;
+
+        // the stack only grows by copying, so this stays valid when the scratch grows
+        int[] members = cycleMembers;
+        int start = cycleStart[cycle];
+        int k = cycleStart[cycle + 1] - start;
+        for (int i = 0; i < k; i++) {
+            inCycle[members[start + i]] = true;
+        }
 
-        // for each vertex in cycle
-        for (Integer u_index : cycle) {
+        // first find the minimum edge of each vertex not in the cycle
+        int numIncoming = 0;
+        int numOutgoing = 0;
+        for (int i = 0; i < k; i++) {
+            int u_index = members[start + i];
+            // the edge of the cycle into u, which MST uses after recovery
+            int next_index = members[start + (i + 1) % k];
             Vertex u = vertices.get(u_index);
-
-            Iterator<Integer> adjItor = u.inAdj.iterator();
-            Iterator<Integer> adjWeightItor = u.inAdjWeight.iterator();
+            u.predEdge = -1;
 
             // for all incoming edge of u
-            while (adjItor.hasNext()) {
-                int v_index = adjItor.next();
-                Vertex v = vertices.get(v_index);
-                int weight = adjWeightItor.next();
+            for (int p = graph.inStart[u_index]; p < graph.inEnd[u_index]; p++) {
+                int e = graph.inEdges[p];
+                int v_index = from[e];
 
                 // skip vertex that in cycle
-                if (cycle.contains(v_index)) {
+                if (inCycle[v_index]) {
+                    if (u.predEdge < 0 && v_index == next_index && weight[e] == 0) {
+                        u.predEdge = e;
+                    }
                     continue;
                 }
 
-                // remove incoming edge to cycle
-                adjItor.remove();
-                adjWeightItor.remove();
-                // remove outgoing edge from vertex not in cycle
-                v.removeOutAdj(u_index);
-
-                if (!imcomingVisitedWeight.containsKey(v_index)) {
-                    minIncomingEdge = new Pair<>(v_index, u_index);
-                    this.minIncomingEdgesToCycle.put(v_index, minIncomingEdge);
-                    imcomingVisitedWeight.put(v_index, weight);
-                }
-
-                if (imcomingVisitedWeight.get(v_index) > weight) {
-                    minIncomingEdge = new Pair<>(v_index, u_index);
-                    this.minIncomingEdgesToCycle.put(v_index, minIncomingEdge);
-                    imcomingVisitedWeight.put(v_index, weight);
+                int min = minIncomingEdge[v_index];
+                if (min < 0) {
+                    numIncoming++;
+                    minIncomingEdge[v_index] = e;
+                } else if (weight[e] < weight[min]) {
+                    minIncomingEdge[v_index] = e;
                 }
             }
-        }
-
-        // for each vertex in cycle
-        for (Integer u_index : cycle) {
-            Vertex u = vertices.get(u_index);
-
-            Iterator<Integer> adjItor = u.outAdj.iterator();
-            Iterator<Integer> adjWeightItor = u.outAdjWeight.iterator();
 
             // for all outgoing edge of u
-            while (adjItor.hasNext()) {
-                int v_index = adjItor.next();
-                Vertex v = vertices.get(v_index);
-                int weight = adjWeightItor.next();
+            for (int p = graph.outStart[u_index]; p < graph.outEnd[u_index]; p++) {
+                int e = graph.outEdges[p];
+                int v_index = to[e];
 
                 // skip vertex that in cycle
-                if (cycle.contains(v_index)) {
+                if (inCycle[v_index]) {
                     continue;
                 }
 
-                // remove outgoings edge to cycle
-                adjItor.remove();
-                adjWeightItor.remove();
-                // remove incoming edge in vertex not in cycle
-                v.removeInAdj(u_index);
-
-                if (!outgoingVisitedWeight.containsKey(v_index)) {
-                    minOutgoingEdge = new Pair<>(u_index, v_index);
-                    this.minOutgoingEdgesFromCycle.put(v_index, minOutgoingEdge);
-                    outgoingVisitedWeight.put(v_index, weight);
-                }
-
-                if (outgoingVisitedWeight.get(v_index) > weight) {
-                    minOutgoingEdge = new Pair<>(u_index, v_index);
-                    this.minOutgoingEdgesFromCycle.put(v_index, minOutgoingEdge);
-                    outgoingVisitedWeight.put(v_index, weight);
+                int min = minOutgoingEdge[v_index];
+                if (min < 0) {
+                    numOutgoing++;
+                    minOutgoingEdge[v_index] = e;
+                } else if (weight[e] < weight[min]) {
+                    minOutgoingEdge[v_index] = e;
                 }
             }
         }
 
         // insert new vertex x
-        Vertex x = new Vertex(vertices.size());
-        int x_index = vertices.size();
+        int x_index = graph.addVertex(numIncoming, numOutgoing);
+        Vertex x = new Vertex(x_index);
         vertices.add(x);
+        ensureScratch();
+
+        // second move the minimum edges onto x, and drop the others
+        for (int i = 0; i < k; i++) {
+            int u_index = members[start + i];
+
+            // For each edge (u,a) in the graph, with u not in C and a in C, introduce the edge (u,x) of weight w(u,a)
+            int p = graph.inStart[u_index];
+            while (p < graph.inEnd[u_index]) {
+                int e = graph.inEdges[p];
+                int v_index = from[e];
+                if (inCycle[v_index]) {
+                    p++;
+                } else if (minIncomingEdge[v_index] == e) {
+                    graph.redirectHead(e, x_index);
+                } else {
+                    graph.removeEdge(e);
+                }
+            }
 
-        // For each edge (u,a) in the graph, with u not in C and a in C, introduce the edge (u,x) of weight w(u,a)
-        for (Map.Entry<Integer, Integer> pair : imcomingVisitedWeight.entrySet()) {
-            int u_index = pair.getKey();
-            addEdge(u_index, x_index, pair.getValue());
+            // For each edge (a,u) in the graph, with a in C and u not in C, introduce the edge (x,u) of weight w(a,u)
+            p = graph.outStart[u_index];
+            while (p < graph.outEnd[u_index]) {
+                int e = graph.outEdges[p];
+                int v_index = to[e];
+                if (inCycle[v_index]) {
+                    p++;
+                } else if (minOutgoingEdge[v_index] == e) {
+                    graph.redirectTail(e, x_index);
+                } else {
+                    graph.removeEdge(e);
+                }
+            }
         }
 
-        // For each edge (a,u) in the graph, with a in C and u not in C, introduce the edge (x,u) of weight w(a,u)
-        for (Map.Entry<Integer, Integer> pair : outgoingVisitedWeight.entrySet()) {
-            int u_index = pair.getKey();
-            addEdge(x_index, u_index, pair.getValue());
+        // clear scratch through the edges of x
+        for (int p = graph.inStart[x_index]; p < graph.inEnd[x_index]; p++) {
+            minIncomingEdge[from[graph.inEdges[p]]] = -1;
+        }
+        for (int p = graph.outStart[x_index]; p < graph.outEnd[x_index]; p++) {
+            minOutgoingEdge[to[graph.outEdges[p]]] = -1;
+        }
+        for (int i = 0; i < k; i++) {
+            inCycle[members[start + i]] = false;
         }
-
 
         // the direction of path is the reverse of cycle list
-
+        contractedVertices[cycle] = x_index;
         return x_index;
     }
 
     /**
      * Include the cycle into MST
      *
-     * @param cycle   the zero cycle
+     * @param cycle   the zero cycle, on the contraction stack
      * @param x_index to which cycle shrunk
      */
-    public void recoverCycle(List<Integer> cycle, int x_index) {
+    public void recoverCycle(int cycle, int x_index) {
         // include the cycle into MST
         Vertex x = vertices.get(x_index);
 
-        // MST has exactly one edge into x
-        int pred_x_index = x.pred;
-        Vertex u = vertices.get(pred_x_index);
-        Pair<Integer> incoming = minIncomingEdgesToCycle.get(pred_x_index);
-
-        // first link cycle in MST
-        int prev_index = cycle.get(0);
-        Vertex prev = vertices.get(prev_index);
-        ListIterator<Integer> revItor = cycle.listIterator(cycle.size());
-        while (revItor.hasPrevious()) {
-            int next_index = revItor.previous();
-            Vertex next = vertices.get(next_index);
-            prev.pathMST.add(next_index);
-            next.pred = prev_index;
-            prev_index = next_index;
-            prev = next;
-        }
-
-        // second break the edge from the cycle
-        int a_index = incoming.to;
-        Vertex a = vertices.get(a_index);
-        int prevToBeBreak_index = a.pred;
-        Vertex prevToBeBreak = vertices.get(prevToBeBreak_index);
-        prevToBeBreak.pathMST.remove((Integer) a_index);
-
-        // third recover incoming edge in MST
-        a.pred = pred_x_index;
-        u.pathMST.remove((Integer) x_index);
-        u.pathMST.add(a_index);
+        // first link cycle in MST, through the edges recorded when shrinking
+        for (int i = cycleStart[cycle]; i < cycleStart[cycle + 1]; i++) {
+            Vertex v = vertices.get(cycleMembers[i]);
+            v.pred = graph.from[v.predEdge];
+        }
 
-        // fourth recover outgoing edge in MST
-        for (int vertexNotInCycleFromX_index : x.pathMST) {
-            Vertex vertexNotInCycleFromX = vertices.get(vertexNotInCycleFromX_index);
-            Pair<Integer> outgoingPair = minOutgoingEdgesFromCycle.get(vertexNotInCycleFromX_index);
+        // MST has exactly one edge into x,
+        // second break the edge from the cycle and third recover incoming edge in MST
+        int e;
+        while ((e = graph.lastHeadRedirect(x_index)) >= 0) {
+            int a_index = graph.undoHeadRedirect();
+            if (e == x.predEdge) {
+                Vertex a = vertices.get(a_index);
+                a.pred = x.pred;
+                a.predEdge = e;
+            }
+        }
 
-            vertexNotInCycleFromX.pred = outgoingPair.from;
-            vertices.get(outgoingPair.from).pathMST.add(vertexNotInCycleFromX_index);
+        // fourth recover outgoing edge in MST
+        while ((e = graph.lastTailRedirect(x_index)) >= 0) {
+            int from_index = graph.undoTailRedirect();
+            Vertex vertexNotInCycleFromX = vertices.get(graph.to[e]);
+            if (vertexNotInCycleFromX.predEdge == e) {
+                vertexNotInCycleFromX.pred = from_index;
+            }
         }
     }
 
@@ -461,15 +1136,35 @@ public class DirectedMST {
      * @param source index
      */
     public void printTentativeMST(int source) {
+        // children of every vertex, by counting sort on pred
+        int size = vertices.size();
+        int[] childStart = new int[size + 1];
+        for (int v = 1; v < size; v++) {
+            int pred = vertices.get(v).pred;
+            if (v != source && pred > 0) {
+                childStart[pred + 1]++;
+            }
+        }
+        for (int v = 0; v < size; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] children = new int[childStart[size]];
+        int[] fill = Arrays.copyOf(childStart, size);
+        for (int v = 1; v < size; v++) {
+            int pred = vertices.get(v).pred;
+            if (v != source && pred > 0) {
+                children[fill[pred]++] = v;
+            }
+        }
+
         Queue<Integer> queue = new LinkedList<>();
 
         queue.add(source);
         while (!queue.isEmpty()) {
             int u_index = queue.remove();
-            Vertex u = vertices.get(u_index);
 
-            Collections.sort(u.pathMST);
-            for (int v_index : u.pathMST) {
+            for (int p = childStart[u_index]; p < childStart[u_index + 1]; p++) {
+                int v_index = children[p];
                 System.out.println(String.format("(%d,%d)", u_index, v_index));
                 queue.add(v_index);
             }
@@ -494,13 +1189,11 @@ public class DirectedMST {
 
         while (!queue.isEmpty()) {
             int u_index = queue.remove();
-            Vertex u = vertices.get(u_index);
 
-            Iterator<Integer> iterAdj = u.outAdj.iterator();
-            Iterator<Integer> iterAdjWeight = u.outAdjWeight.iterator();
-            while (iterAdj.hasNext()) {
-                int v_index = iterAdj.next();
-                int weight = iterAdjWeight.next();
+            for (int p = graph.outStart[u_index]; p < graph.outEnd[u_index]; p++) {
+                int e = graph.outEdges[p];
+                int v_index = graph.to[e];
+                int weight = graph.weight[e];
                 Vertex v = vertices.get(v_index);
 
                 if (weight == 0) {
@@ -516,6 +1209,10 @@ public class DirectedMST {
             }
         }
         System.out.println("Count of zero weight = " + zeroCount);
+
+        for (Vertex v : vertices) {
+            v.known = false;
+        }
     }
 
     /**
@@ -523,93 +1220,582 @@ public class DirectedMST {
      * @param source index
      */
     public void printMSTByHeads(int source) {
-        Queue<Integer> queue = new LinkedList<>();
-        ArrayList<Pair<Integer>> edges = new ArrayList<>();
+        ArborescenceWriter writer = new ArborescenceWriter(System.out);
+        try {
+            writer.writeText(result());
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        queue.add(source);
-        while (!queue.isEmpty()) {
-            int u_index = queue.remove();
-            Vertex u = vertices.get(u_index);
+    /**
+     * Tree of the last solve as parent and weight columns, with the weights
+     * the edges had before the solve. Roots of a branching and unreachable
+     * vertices have no parent.
+     *
+     * @return tree
+     */
+    public Arborescence result() {
+        Arborescence tree = Arborescence.of(vertices, graph, numVertices, source, weightReduction);
+        if (weightsReduced) {
+            for (int v_index = 1; v_index <= numVertices; v_index++) {
+                if (tree.parent[v_index] >= 0) {
+                    tree.weight[v_index] = originalWeight[vertices.get(v_index).predEdge];
+                }
+            }
+        }
+        return tree;
+    }
 
-            Collections.sort(u.pathMST);
-            for (int v_index : u.pathMST) {
+    /**
+     * @return heap in use after a full collection, in bytes
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 
-                edges.add(new Pair<>(u_index, v_index));
-                queue.add(v_index);
+    /**
+     * @return most heap in use since the start of the JVM, summed over the
+     * heap pools, in bytes
+     */
+    static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
             }
         }
+        return peak;
+    }
+
+    /**
+     * Read graph in text format, "n m s" then "u v w" per line
+     *
+     * @param reader text graph
+     * @return graph, null if input is empty
+     */
+    public static DirectedMST readText(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null || line.equals("")) {
+            return null;
+        }
+
+        line = line.trim();
+        String[] firstParams = line.split("[\\s\\t]+");
+        assert firstParams.length == 3;
+
+        int numVertices = Integer.valueOf(firstParams[0]);
+        int numEdges = Integer.valueOf(firstParams[1]);
+        int source = Integer.valueOf(firstParams[2]);
+
+        DirectedMST graph = new DirectedMST(numVertices, numEdges, source);
+
+        int count = 0;
+        while ((line = reader.readLine()) != null && !line.equals("")) {
+            count++;
+
+            line = line.trim();
+            String[] params = line.split("[\\s\\t]+");
+            assert params.length == 3;
 
-        Collections.sort(edges, new Comparator<Pair<Integer>>() {
-            @Override
-            public int compare(Pair<Integer> o1, Pair<Integer> o2) {
-                return o1.to - o2.to;
+            int src = Integer.valueOf(params[0]);
+            int dst = Integer.valueOf(params[1]);
+            int weight = Integer.valueOf(params[2]);
+
+            graph.addEdge(src, dst, weight);
+        }
+
+        if (count != numEdges) {
+            throw new IOException("The claimed number of edge " + numEdges + " not equals to actual number " + count);
+        }
+        return graph;
+    }
+
+    /**
+     * Load and solve a graph with nothing but a few objects on the heap,
+     * edges and solver state live in off-heap columns
+     *
+     * @param path   graph, text from stdin if null
+     * @param binary    whether path is in the binary format, which is mapped as is
+     * @param stats     whether to print the counters as JSON
+     * @param out       file for the whole tree, null if none
+     * @param outBinary whether out is written in binary
+     */
+    static void solveOffHeap(String path, boolean binary, boolean stats, String out, boolean outBinary)
+            throws IOException {
+        OffHeapEdges edges;
+        if (binary) {
+            edges = OffHeapEdges.map(Paths.get(path));
+        } else if (path != null) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+                edges = OffHeapEdges.readText(reader);
             }
-        });
+        } else {
+            edges = OffHeapEdges.readText(new BufferedReader(new InputStreamReader(System.in)));
+        }
+        if (edges == null) {
+            return;
+        }
 
-        for (Pair<Integer> pair : edges) {
-            System.out.println(String.format("(%d,%d)", pair.from, pair.to));
+        System.err.println("heap before solve: " + usedHeap() / 1024 + " KB");
+        SolverStats counters = stats ? new SolverStats() : null;
+        if (counters != null) {
+            counters.begin(Engine.OFF_HEAP.name(), edges.numVertices, edges.numEdges);
+        }
+        long begin = System.currentTimeMillis();
+        long beginNanos = System.nanoTime();
+        OffHeapArborescence solver = new OffHeapArborescence(edges, edges.numVertices, edges.source);
+        long weightMST = solver.solve();
+        OffHeapVertexStore tree = new OffHeapVertexStore(edges.numVertices + 1);
+        solver.writeTree(tree);
+        long end = System.currentTimeMillis();
+        if (counters != null) {
+            counters.lap(SolverStats.Phase.SOLVE, beginNanos);
+        }
+        System.out.println(weightMST + " " + (end - begin));
+
+        System.err.println("heap after solve: " + usedHeap() / 1024 + " KB, off-heap "
+                + (edges.bytesUsed() + solver.bytesUsed() + tree.bytesUsed()) / 1024 + " KB");
+        if (counters != null) {
+            solver.report(counters);
+            counters.finish(weightMST);
+            System.err.println(counters.toJson());
+        }
+        if (out != null || edges.numVertices <= 50) {
+            // the columns of the result are on the heap, only built when asked for
+            Arborescence result = Arborescence.of(tree, edges, edges.numVertices, edges.source, weightMST);
+            if (out != null) {
+                writeResult(result, out, outBinary);
+            }
+            if (edges.numVertices <= 50) {
+                ArborescenceWriter writer = new ArborescenceWriter(System.out);
+                writer.writeText(result);
+                writer.flush();
+            }
         }
     }
 
-    public static void main(String[] args) {
+    /**
+     * Solve a graph that does not fit in memory, its edges are read from the
+     * file once per pass and only state per vertex is kept
+     *
+     * @param path       graph file
+     * @param binary     whether path is in the binary format
+     * @param candidates candidate edges per vertex kept in memory
+     * @param stats      whether to print the counters as JSON
+     * @param out        file for the whole tree, null if none
+     * @param outBinary  whether out is written in binary
+     */
+    static void solveSemiExternal(String path, boolean binary, int candidates, boolean stats, String out,
+                                  boolean outBinary) throws IOException {
+        SemiExternalArborescence solver = new SemiExternalArborescence(Paths.get(path), binary, candidates);
+        SolverStats counters = stats ? new SolverStats() : null;
+        if (counters != null) {
+            counters.begin("SEMI_EXTERNAL", solver.numVertices, (int) Math.min(solver.numEdges, Integer.MAX_VALUE));
+        }
+        long begin = System.currentTimeMillis();
+        long beginNanos = System.nanoTime();
+        long weightMST = solver.solve();
+        long end = System.currentTimeMillis();
+        if (counters != null) {
+            counters.lap(SolverStats.Phase.SOLVE, beginNanos);
+        }
+        System.out.println(weightMST + " " + (end - begin));
+
+        System.err.println("passes: " + solver.passes + ", read " + solver.bytesRead / 1024 + " KB, heap "
+                + usedHeap() / 1024 + " KB, vertex state " + solver.bytesUsed() / 1024 + " KB");
+        if (counters != null) {
+            solver.report(counters);
+            counters.finish(weightMST);
+            System.err.println(counters.toJson());
+        }
+        Arborescence tree = solver.result();
+        if (out != null) {
+            writeResult(tree, out, outBinary);
+        }
+        if (solver.numVertices <= 50) {
+            ArborescenceWriter writer = new ArborescenceWriter(System.out);
+            writer.writeText(tree);
+            writer.flush();
+        }
+    }
 
-        BufferedReader reader = null;
+    /**
+     * Compress a graph file straight into a {@link CompressedGraph}, its
+     * edges are never loaded as columns, and solve it with
+     * {@link CompressedArborescence}
+     *
+     * @param path      graph file
+     * @param binary    whether path is in the binary format
+     * @param stats     whether to print the counters as JSON
+     * @param out       file for the whole tree, null if none
+     * @param outBinary whether out is written in binary
+     */
+    static void solveCompressed(String path, boolean binary, boolean stats, String out, boolean outBinary)
+            throws IOException {
+        EdgeFile file = new EdgeFile(Paths.get(path), binary);
+        CompressedGraph graph = CompressedGraph.read(file);
+        System.err.println("heap before solve: " + usedHeap() / 1024 + " KB");
+        SolverStats counters = stats ? new SolverStats() : null;
+        if (counters != null) {
+            counters.begin(Engine.COMPRESSED.name(), file.numVertices, (int) Math.min(file.numEdges, Integer.MAX_VALUE));
+        }
+        long begin = System.currentTimeMillis();
+        long beginNanos = System.nanoTime();
+        CompressedArborescence solver = new CompressedArborescence(graph, file.source);
+        long weightMST = solver.solve();
+        long end = System.currentTimeMillis();
+        if (counters != null) {
+            counters.lap(SolverStats.Phase.SOLVE, beginNanos);
+        }
+        System.out.println(weightMST + " " + (end - begin));
+
+        System.err.println(graph.report());
+        System.err.println("read " + file.bytesRead / 1024 + " KB, heap after solve: " + usedHeap() / 1024
+                + " KB, peak heap " + peakHeap() / 1024 + " KB");
+        if (counters != null) {
+            solver.report(counters);
+            counters.finish(weightMST);
+            System.err.println(counters.toJson());
+        }
+        Arborescence tree = solver.result();
+        if (out != null) {
+            writeResult(tree, out, outBinary);
+        }
+        if (file.numVertices <= 50) {
+            ArborescenceWriter writer = new ArborescenceWriter(System.out);
+            writer.writeText(tree);
+            writer.flush();
+        }
+    }
 
-        if (args.length > 0) {
-            try {
-                reader = new BufferedReader(new FileReader(args[0]));
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            }
-        } else {
-            reader = new BufferedReader(new InputStreamReader(System.in));
+    /**
+     * Solve every graph of a file or stdin with {@link BatchSolver}, results
+     * on stdout in input order, throughput on stderr
+     */
+    static void solveBatch(String path, int threads, boolean tree, ResultCache cache) throws IOException {
+        BatchSolver solver = new BatchSolver(threads, tree);
+        solver.cache = cache;
+        long begin = System.nanoTime();
+        try (InputStream in = path == null ? System.in : Files.newInputStream(Paths.get(path))) {
+            solver.run(in, System.out);
         }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.err.printf("solved %d graphs (%d errors) on %d threads in %.3f s, %.0f graphs/s%n",
+                solver.numGraphs, solver.numErrors, threads, seconds, solver.numGraphs / seconds);
+        if (cache != null) {
+            System.err.println(cache.report());
+        }
+    }
 
-        DirectedMST graph = null;
+    /**
+     * One "root weight" line per root, "root none" if it does not reach every
+     * vertex, followed by the edges of its tree if tree is set
+     *
+     * @param roots vertices to ask for, null for all
+     */
+    static void printAllRoots(DirectedMST graph, int[] roots, int threads, boolean tree)
+            throws IOException, InterruptedException {
+        long begin = System.currentTimeMillis();
+        AllRootsArborescence all = graph.allRoots();
+        long built = System.currentTimeMillis();
+        if (roots == null) {
+            roots = new int[graph.numVertices];
+            for (int r = 1; r <= graph.numVertices; r++) {
+                roots[r - 1] = r;
+            }
+        }
+        ArborescenceWriter writer = new ArborescenceWriter(System.out);
+        int answered = 0;
+        // trees are expanded a block at a time, all of them at once may not fit
+        int block = tree ? threads * 64 : roots.length;
+        for (int start = 0; start < roots.length; start += block) {
+            int[] part = Arrays.copyOfRange(roots, start, Math.min(roots.length, start + block));
+            int[] valid = Arrays.stream(part).filter(all::isRoot).toArray();
+            Arborescence[] trees = tree ? all.trees(valid, threads) : null;
+            int next = 0;
+            for (int r : part) {
+                if (!all.isRoot(r)) {
+                    writer.writeLine(r + " none");
+                    continue;
+                }
+                writer.writeLine(r + " " + all.weight(r));
+                if (tree) {
+                    writer.writeText(trees[next++]);
+                }
+            }
+            answered += valid.length;
+        }
+        writer.flush();
+        System.err.println("contracted in " + (built - begin) + " ms, " + answered + " of " + roots.length
+                + " roots answered in " + (System.currentTimeMillis() - built) + " ms");
+    }
 
-        String line;
-        assert reader != null;
-        try {
-            line = reader.readLine();
-            if (line == null || line.equals("")) {
-                System.exit(0);
+    /**
+     * One "rank weight" line per tree, followed by its edges if tree is set
+     */
+    static void printKBest(KBestArborescences trees, boolean tree) throws IOException {
+        ArborescenceWriter writer = new ArborescenceWriter(System.out);
+        long begin = System.currentTimeMillis();
+        int rank = 0;
+        while (trees.hasNext()) {
+            Arborescence next = trees.next();
+            writer.writeLine(++rank + " " + next.totalWeight());
+            if (tree) {
+                writer.writeText(next);
             }
+        }
+        writer.flush();
+        System.err.println(rank + " trees in " + (System.currentTimeMillis() - begin) + " ms"
+                + (trees.isExact() ? "" : ", inexact: the memory bound dropped subproblems"));
+    }
 
-            line = line.trim();
-            String[] firstParams = line.split("[\\s\\t]+");
-            assert firstParams.length == 3;
+    /**
+     * Write the whole tree to a file and report how long it took
+     */
+    static void writeResult(Arborescence tree, String out, boolean binary) throws IOException {
+        long begin = System.currentTimeMillis();
+        ArborescenceWriter.write(tree, Paths.get(out), binary);
+        System.err.println("wrote " + out + " in " + (System.currentTimeMillis() - begin) + " ms");
+    }
 
-            int numVertices = Integer.valueOf(firstParams[0]);
-            int numEdges = Integer.valueOf(firstParams[1]);
-            int source = Integer.valueOf(firstParams[2]);
+    public static void main(String[] args) {
 
-            graph = new DirectedMST(numVertices, source);
+        String path = null;
+        Engine engine = Engine.CONTRACTION;
+        boolean binary = false;
+        boolean prune = false;
+        boolean branching = false;
+        boolean stats = false;
+        boolean offHeap = false;
+        boolean semiExternal = false;
+        int candidates = SemiExternalArborescence.DEFAULT_CANDIDATES;
+        String out = null;
+        boolean outBinary = false;
+        int threads = 1;
+        boolean batch = false;
+        boolean threadsGiven = false;
+        boolean tree = false;
+        GraphPreprocessor preprocessor = null;
+        int kBest = 0;
+        int maxPending = Integer.MAX_VALUE;
+        String cacheDirectory = null;
+        boolean allRoots = false;
+        int[] roots = null;
+        int cacheSize = 64;
+        int distributed = 0;
+        int port = 0;
+        String bind = null;
+        String worker = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = Engine.valueOf(arg.substring("--engine=".length()).toUpperCase());
+            } else if (arg.equals("--binary")) {
+                binary = true;
+            } else if (arg.equals("--prune")) {
+                prune = true;
+            } else if (arg.equals("--branching")) {
+                branching = true;
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--off-heap")) {
+                offHeap = true;
+            } else if (arg.equals("--semi-external")) {
+                semiExternal = true;
+            } else if (arg.startsWith("--candidates=")) {
+                candidates = Integer.parseInt(arg.substring("--candidates=".length()));
+            } else if (arg.startsWith("--out=")) {
+                out = arg.substring("--out=".length());
+            } else if (arg.equals("--out-binary")) {
+                outBinary = true;
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+                threadsGiven = true;
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.equals("--tree")) {
+                tree = true;
+            } else if (arg.startsWith("--k-best=")) {
+                kBest = Integer.parseInt(arg.substring("--k-best=".length()));
+            } else if (arg.startsWith("--max-pending=")) {
+                maxPending = Integer.parseInt(arg.substring("--max-pending=".length()));
+            } else if (arg.equals("--all-roots")) {
+                allRoots = true;
+            } else if (arg.startsWith("--roots=")) {
+                allRoots = true;
+                roots = Arrays.stream(arg.substring("--roots=".length()).split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--cache-size=")) {
+                cacheSize = Integer.parseInt(arg.substring("--cache-size=".length()));
+            } else if (arg.startsWith("--distributed=")) {
+                distributed = Integer.parseInt(arg.substring("--distributed=".length()));
+            } else if (arg.startsWith("--port=")) {
+                // [host:]port, loopback unless a host is given
+                String value = arg.substring("--port=".length());
+                int colon = value.lastIndexOf(':');
+                if (colon >= 0) {
+                    bind = value.substring(0, colon);
+                }
+                port = Integer.parseInt(value.substring(colon + 1));
+            } else if (arg.startsWith("--worker=")) {
+                worker = arg.substring("--worker=".length());
+            } else if (arg.equals("--preprocess")) {
+                preprocessor = GraphPreprocessor.all();
+            } else if (arg.startsWith("--preprocess=")) {
+                preprocessor = GraphPreprocessor.parse(arg.substring("--preprocess=".length()));
+            } else {
+                path = arg;
+            }
+        }
 
-            int count = 0;
-            while ((line = reader.readLine()) != null && !line.equals("")) {
-                count++;
+        if (worker != null) {
+            try {
+                int colon = worker.lastIndexOf(':');
+                DistributedArborescence.work(worker.substring(0, colon), Integer.parseInt(worker.substring(colon + 1)));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
-                line = line.trim();
-                String[] params = line.split("[\\s\\t]+");
-                assert params.length == 3;
+        if (batch) {
+            try {
+                ResultCache cache = cacheDirectory == null ? null
+                        : new ResultCache(cacheSize, Paths.get(cacheDirectory));
+                solveBatch(path, threadsGiven ? threads : Runtime.getRuntime().availableProcessors(), tree, cache);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
-                int src = Integer.valueOf(params[0]);
-                int dst = Integer.valueOf(params[1]);
-                int weight = Integer.valueOf(params[2]);
+        if (semiExternal && path != null) {
+            try {
+                solveSemiExternal(path, binary, candidates, stats, out, outBinary);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
-                graph.addEdge(src, dst, weight);
+        if (offHeap) {
+            try {
+                solveOffHeap(path, binary, stats, out, outBinary);
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+            return;
+        }
+
+        // a plain solve of a file with the compressed engine never loads the edges
+        if (engine == Engine.COMPRESSED && path != null && !branching && !prune && preprocessor == null
+                && kBest == 0 && !allRoots && distributed == 0 && cacheDirectory == null) {
+            try {
+                solveCompressed(path, binary, stats, out, outBinary);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
-            assert count == numEdges : "The claimed number of edge not equals to actual number";
+        DirectedMST graph = null;
+        try {
+            if (binary) {
+                graph = BinaryGraphFormat.load(Paths.get(path));
+            } else if (path != null && threads > 1) {
+                graph = new ParallelTextLoader(threads).load(Paths.get(path));
+            } else if (path != null) {
+                graph = readText(new BufferedReader(new FileReader(path)));
+            } else {
+                graph = readText(new BufferedReader(new InputStreamReader(System.in)));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
 
+        if (graph != null && allRoots) {
+            try {
+                printAllRoots(graph, roots, threadsGiven ? threads : Runtime.getRuntime().availableProcessors(), tree);
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (graph != null && kBest > 0) {
+            try {
+                printKBest(graph.kBest(kBest, maxPending), tree);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         if (graph != null) {
+            System.err.println("heap before solve: " + usedHeap() / 1024 + " KB");
+            if (stats) {
+                graph.stats = new SolverStats();
+            }
             long begin = System.currentTimeMillis();
-            long weightMST = graph.procedure();
+            if (preprocessor != null && prune) {
+                preprocessor.steps.add(GraphPreprocessor.Step.UNREACHABLE);
+            }
+            long weightMST;
+            if (distributed > 0) {
+                try {
+                    weightMST = graph.solveDistributed(distributed, bind, port);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+            } else if (cacheDirectory != null && !branching && preprocessor == null && !prune) {
+                try {
+                    ResultCache cache = new ResultCache(cacheSize, Paths.get(cacheDirectory));
+                    weightMST = graph.solveCached(engine, cache);
+                    System.err.println(cache.report());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+            } else {
+                weightMST = branching ? graph.solveBranching(engine)
+                        : preprocessor != null ? graph.solvePreprocessed(engine, preprocessor)
+                        : prune ? graph.solvePruned(engine) : graph.solve(engine);
+            }
             long end = System.currentTimeMillis();
             System.out.println(weightMST + " " + (end - begin));
+            if (graph.compression != null) {
+                System.err.println(graph.compression);
+            }
+            if (preprocessor != null && !branching) {
+                System.err.println(preprocessor.report());
+            }
+            if (prune || preprocessor != null && preprocessor.steps.contains(GraphPreprocessor.Step.UNREACHABLE)) {
+                System.err.println("unreachable vertices: " + graph.unreachable.length
+                        + (graph.unreachable.length <= 50 ? " " + Arrays.toString(graph.unreachable) : ""));
+            }
+            if (branching) {
+                System.err.println("roots: " + graph.roots.length
+                        + (graph.roots.length <= 50 ? " " + Arrays.toString(graph.roots) : ""));
+            }
+            System.err.println("heap after solve: " + usedHeap() / 1024 + " KB, graph arrays "
+                    + graph.graph.bytesUsed() / 1024 + " KB, peak heap " + peakHeap() / 1024 + " KB");
+            if (stats) {
+                // one line of JSON, for scripts
+                System.err.println(graph.stats.toJson());
+            }
+            if (out != null) {
+                try {
+                    writeResult(graph.result(), out, outBinary);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
             if (graph.numVertices <= 50) {
                 graph.printMSTByHeads(graph.source);
             }
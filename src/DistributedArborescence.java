@@ -0,0 +1,694 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimum arborescence by Chu-Liu/Edmonds rounds with the edges split over
+ * worker processes, the same rounds as {@link RoundArborescence}.
+ * <p>
+ * The edges are partitioned by head over the workers, which are JVMs of
+ * their own, started on this machine or connecting from elsewhere, and
+ * spoken to over a socket. A worker holds its edges grouped by head and
+ * does the work that is linear in the edges: every round it builds the
+ * incoming edges of the new super-vertices from its part of the members,
+ * reduced by their picks, and sends back its cheapest edge into each. The
+ * coordinator takes the cheapest of those per vertex, finds the cycles of
+ * the picks, which cross partitions, and sends the new cycles back to all
+ * workers. It only keeps state per vertex: the contraction forest, the
+ * edge chosen into each node and its reduced weight. The forest is
+ * dismantled from the top on the coordinator at the end.
+ * <p>
+ * Messages are little blocks of ints and longs over one connection per
+ * worker. A worker opens with MAGIC and VERSION and the coordinator answers
+ * with the same, either side drops a connection that does not:
+ * <pre>
+ *   INIT  n, source, then blocks of (tail, head, weight, id), a block of 0 ends
+ *   ROUND number of cycles, per cycle its id, size, members and their picks
+ *   DONE
+ * </pre>
+ * After INIT and after every ROUND the worker answers with its picks, a
+ * count and (node, reduced weight, edge id) for every node it has an edge
+ * into.
+ *
+ * @author Jun Yu
+ */
+public class DistributedArborescence {
+    static final int MAGIC = 0x57534d44; // "DMSW"
+    static final int VERSION = 1;
+
+    static final int INIT = 1;
+    static final int ROUND = 2;
+    static final int DONE = 3;
+
+    // edges per block sent to a worker
+    static final int BLOCK = 1 << 14;
+    // how long to wait for workers to connect
+    static final int ACCEPT_TIMEOUT_MILLIS = 60_000;
+    // how long a new connection has to say it is a worker
+    static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    CsrGraph graph;
+    int numVertices;
+    int source;
+
+    // contraction forest, the members of super-vertex x are members[memberStart[x - n]...]
+    int[] forestParent;
+    int[] members;
+    int[] memberStart;
+
+    // cheapest incoming edge of each vertex or super-vertex over all workers, and its reduced weight
+    int[] in;
+    long[] pickWeight;
+
+    int numNodes;
+    int rounds;
+    // bytes sent to and received from the workers
+    long bytesSent;
+    long bytesReceived;
+
+    public DistributedArborescence(CsrGraph graph, int numVertices, int source) {
+        this.graph = graph;
+        this.numVertices = numVertices;
+        this.source = source;
+    }
+
+    /**
+     * Start worker JVMs on this machine with the class path of this one and solve
+     *
+     * @param numWorkers processes
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve(int numWorkers) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, numWorkers, InetAddress.getLoopbackAddress())) {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            String address = "127.0.0.1:" + server.getLocalPort();
+            List<Process> processes = new ArrayList<>();
+            try {
+                for (int i = 0; i < numWorkers; i++) {
+                    ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            "DirectedMST", "--worker=" + address);
+                    builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                    processes.add(builder.start());
+                }
+                return solve(server, numWorkers);
+            } finally {
+                for (Process process : processes) {
+                    process.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Solve with workers that connect to server, started by someone else
+     * with {@link #work(String, int)}. Connections that do not open with
+     * the handshake of a worker of this version are closed and not counted.
+     *
+     * @param numWorkers connections to wait for
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve(ServerSocket server, int numWorkers) throws IOException {
+        server.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+        Link[] workers = new Link[numWorkers];
+        try {
+            for (int i = 0; i < numWorkers; ) {
+                Link link = new Link(server.accept());
+                if (link.accept()) {
+                    workers[i++] = link;
+                } else {
+                    link.close();
+                }
+            }
+            return solve(workers);
+        } finally {
+            for (Link worker : workers) {
+                if (worker != null) {
+                    bytesSent += worker.out.size();
+                    bytesReceived += worker.received;
+                    worker.close();
+                }
+            }
+        }
+    }
+
+    private long solve(Link[] workers) throws IOException {
+        int n = numVertices + 1;
+        int nodes = 2 * n;
+        int numWorkers = workers.length;
+        forestParent = new int[nodes];
+        Arrays.fill(forestParent, -1);
+        members = new int[nodes];
+        memberStart = new int[n + 1];
+        in = new int[nodes];
+        pickWeight = new long[nodes];
+        int[] seen = new int[nodes];
+        int stamp = 0;
+
+        // edges by head, without self loops, edges into source and deleted edges
+        for (Link worker : workers) {
+            worker.out.writeInt(INIT);
+            worker.out.writeInt(n);
+            worker.out.writeInt(source);
+        }
+        int[][] blocks = new int[numWorkers][4 * BLOCK];
+        int[] fill = new int[numWorkers];
+        for (int e = 0; e < graph.numEdges; e++) {
+            int v = graph.to[e];
+            if (v == source || graph.from[e] == v || graph.isDeleted(e)) {
+                continue;
+            }
+            int k = v % numWorkers;
+            int[] block = blocks[k];
+            int i = 4 * fill[k];
+            block[i] = graph.from[e];
+            block[i + 1] = v;
+            block[i + 2] = graph.weight[e];
+            block[i + 3] = e;
+            if (++fill[k] == BLOCK) {
+                workers[k].writeBlock(block, BLOCK);
+                fill[k] = 0;
+            }
+        }
+        for (int k = 0; k < numWorkers; k++) {
+            if (fill[k] > 0) {
+                workers[k].writeBlock(blocks[k], fill[k]);
+            }
+            workers[k].writeBlock(blocks[k], 0);
+            workers[k].out.flush();
+        }
+
+        // first round, every vertex picks
+        int[] fresh = new int[n];
+        int numFresh = 0;
+        for (int v = 1; v < n; v++) {
+            if (v != source) {
+                fresh[numFresh++] = v;
+            }
+        }
+        gatherPicks(workers, fresh, numFresh);
+
+        int next = n;
+        int numMembers = 0;
+        long sum = 0;
+
+        while (true) {
+            rounds++;
+            for (int i = 0; i < numFresh; i++) {
+                int u = fresh[i];
+                if (in[u] < 0) {
+                    throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+                }
+                sum += pickWeight[u];
+            }
+
+            // a new cycle goes through a vertex that just picked, walk from those
+            int firstNew = next;
+            int base = stamp;
+            for (int i = 0; i < numFresh; i++) {
+                int walk = ++stamp;
+                int u = fresh[i];
+                while (u != source && seen[u] <= base) {
+                    seen[u] = walk;
+                    u = top(graph.from[in[u]]);
+                }
+                if (u != source && seen[u] == walk) {
+                    // found cycle, contract into new node x
+                    int x = next++;
+                    int w_index = u;
+                    do {
+                        members[numMembers++] = w_index;
+                        w_index = top(graph.from[in[w_index]]);
+                    } while (w_index != u);
+                    memberStart[x - n + 1] = numMembers;
+                }
+            }
+            if (next == firstNew) {
+                break;
+            }
+
+            // the members are read by the walks above, they join their cycle only now
+            numFresh = 0;
+            for (int x = firstNew; x < next; x++) {
+                for (int i = memberStart[x - n]; i < memberStart[x - n + 1]; i++) {
+                    forestParent[members[i]] = x;
+                }
+                fresh[numFresh++] = x;
+            }
+            for (Link worker : workers) {
+                DataOutputStream out = worker.out;
+                out.writeInt(ROUND);
+                out.writeInt(next - firstNew);
+                for (int x = firstNew; x < next; x++) {
+                    out.writeInt(x);
+                    out.writeInt(memberStart[x - n + 1] - memberStart[x - n]);
+                    for (int i = memberStart[x - n]; i < memberStart[x - n + 1]; i++) {
+                        out.writeInt(members[i]);
+                        out.writeLong(pickWeight[members[i]]);
+                    }
+                }
+                out.flush();
+            }
+            gatherPicks(workers, fresh, numFresh);
+        }
+
+        for (Link worker : workers) {
+            worker.out.writeInt(DONE);
+            worker.out.flush();
+        }
+        numNodes = next;
+        in = ContractionForest.parentEdges(n, next, source, forestParent, members, memberStart, in, graph.to);
+        return sum;
+    }
+
+    /**
+     * Read the picks of every worker and keep the cheapest per node, the
+     * lowest edge id on a tie so that the tree does not depend on the split
+     */
+    private void gatherPicks(Link[] workers, int[] fresh, int numFresh) throws IOException {
+        for (int i = 0; i < numFresh; i++) {
+            in[fresh[i]] = -1;
+            pickWeight[fresh[i]] = Long.MAX_VALUE;
+        }
+        for (Link worker : workers) {
+            int count = worker.readInt();
+            for (int i = 0; i < count; i++) {
+                int x = worker.readInt();
+                long r = worker.readLong();
+                int e = worker.readInt();
+                if (r < pickWeight[x] || r == pickWeight[x] && e < in[x]) {
+                    pickWeight[x] = r;
+                    in[x] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return edge id into every vertex in the arborescence, -1 for source
+     */
+    public int[] parentEdges() {
+        return in;
+    }
+
+    /**
+     * Add the contracted cycles and the super-vertices to stats
+     */
+    void report(SolverStats stats) {
+        ContractionForest.report(stats, numVertices + 1, numNodes, memberStart);
+    }
+
+    /**
+     * @return vertex that u is contracted into by now
+     */
+    private int top(int u) {
+        while (forestParent[u] >= 0) {
+            u = forestParent[u];
+        }
+        return u;
+    }
+
+    /**
+     * Serve one coordinator at host:port until it is done
+     *
+     * @param host coordinator
+     * @param port where it listens
+     */
+    public static void work(String host, int port) throws IOException {
+        try (Link coordinator = new Link(new Socket())) {
+            coordinator.socket.connect(new InetSocketAddress(host, port));
+            coordinator.open();
+            coordinator.out.writeInt(MAGIC);
+            coordinator.out.writeInt(VERSION);
+            coordinator.out.flush();
+            if (coordinator.readInt() != MAGIC || coordinator.readInt() != VERSION) {
+                throw new IOException(host + ":" + port + " is not a coordinator of version " + VERSION);
+            }
+            Worker worker = null;
+            while (true) {
+                int type;
+                try {
+                    type = coordinator.readInt();
+                } catch (EOFException e) {
+                    // the coordinator gave up, on an unreachable vertex say
+                    return;
+                }
+                if (type == INIT) {
+                    worker = new Worker(coordinator.readInt(), coordinator.readInt());
+                    worker.load(coordinator);
+                } else if (type == ROUND && worker != null) {
+                    worker.round(coordinator);
+                } else if (type == DONE) {
+                    return;
+                } else {
+                    throw new IOException("unexpected message " + type);
+                }
+                worker.sendPicks(coordinator);
+            }
+        }
+    }
+
+    /**
+     * The edges of one partition, the incoming edges of every vertex and
+     * super-vertex in a segment of one arena as in {@link RoundArborescence}
+     */
+    static class Worker {
+        int n;
+        int source;
+
+        // [segStart, segEnd) of the arena: tail as it was when copied, reduced weight, original edge id
+        int[] segStart;
+        int[] segEnd;
+        int[] tail;
+        long[] reduced;
+        int[] original;
+        int arenaTop;
+
+        // mirror of the forest of the coordinator
+        int[] forestParent;
+
+        // nodes built in the last round, and what each of them picked
+        int[] fresh;
+        int numFresh;
+        int[] pick;
+
+        // the super-vertex that last copied an edge from a tail and where it went
+        int[] owner;
+        int[] slot;
+
+        // members of the cycles of a round with their picks
+        int[] members = new int[16];
+        long[] memberPicks = new long[16];
+
+        Worker(int n, int source) {
+            this.n = n;
+            this.source = source;
+            int nodes = 2 * n;
+            segStart = new int[nodes];
+            segEnd = new int[nodes];
+            forestParent = new int[nodes];
+            Arrays.fill(forestParent, -1);
+            fresh = new int[n];
+            pick = new int[nodes];
+            owner = new int[nodes];
+            slot = new int[nodes];
+        }
+
+        /**
+         * Read the edges of the partition and group them by head
+         */
+        void load(Link coordinator) throws IOException {
+            int capacity = 16;
+            int[] from = new int[capacity];
+            int[] to = new int[capacity];
+            int[] weight = new int[capacity];
+            int[] id = new int[capacity];
+            int m = 0;
+            int count;
+            while ((count = coordinator.readInt()) > 0) {
+                if (m + count > capacity) {
+                    capacity = Math.max(m + count, capacity * 2);
+                    from = Arrays.copyOf(from, capacity);
+                    to = Arrays.copyOf(to, capacity);
+                    weight = Arrays.copyOf(weight, capacity);
+                    id = Arrays.copyOf(id, capacity);
+                }
+                ByteBuffer block = coordinator.readBlock(count);
+                for (int i = 0; i < count; i++, m++) {
+                    from[m] = block.getInt();
+                    to[m] = block.getInt();
+                    weight[m] = block.getInt();
+                    id[m] = block.getInt();
+                }
+            }
+
+            for (int e = 0; e < m; e++) {
+                segEnd[to[e]]++;
+            }
+            for (int v = 1; v < n; v++) {
+                segStart[v] = segEnd[v - 1];
+                segEnd[v] += segStart[v];
+            }
+            arenaTop = segEnd[n - 1];
+            capacity = Math.max(arenaTop, 16);
+            tail = new int[capacity];
+            reduced = new long[capacity];
+            original = new int[capacity];
+            int[] fill = Arrays.copyOf(segStart, n);
+            for (int e = 0; e < m; e++) {
+                int i = fill[to[e]]++;
+                tail[i] = from[e];
+                reduced[i] = weight[e];
+                original[i] = id[e];
+            }
+
+            numFresh = 0;
+            for (int v = 1; v < n; v++) {
+                if (segEnd[v] > segStart[v]) {
+                    fresh[numFresh++] = v;
+                    pickCheapest(v);
+                }
+            }
+        }
+
+        /**
+         * Read the new cycles and build their incoming edges from the part of
+         * the members held here
+         */
+        void round(Link coordinator) throws IOException {
+            int numCycles = coordinator.readInt();
+            int[] ids = new int[numCycles];
+            int[] start = new int[numCycles + 1];
+            int numMembers = 0;
+            int needed = 0;
+            for (int c = 0; c < numCycles; c++) {
+                int x = coordinator.readInt();
+                int size = coordinator.readInt();
+                ids[c] = x;
+                if (numMembers + size > members.length) {
+                    int capacity = Math.max(numMembers + size, members.length * 2);
+                    members = Arrays.copyOf(members, capacity);
+                    memberPicks = Arrays.copyOf(memberPicks, capacity);
+                }
+                for (int i = 0; i < size; i++) {
+                    int u = coordinator.readInt();
+                    members[numMembers] = u;
+                    memberPicks[numMembers++] = coordinator.readLong();
+                    forestParent[u] = x;
+                    needed += segEnd[u] - segStart[u];
+                }
+                start[c + 1] = numMembers;
+            }
+
+            reserve(needed, ids[0]);
+            numFresh = 0;
+            for (int c = 0; c < numCycles; c++) {
+                int x = ids[c];
+                contract(x, start[c], start[c + 1]);
+                if (segEnd[x] > segStart[x]) {
+                    fresh[numFresh++] = x;
+                }
+            }
+        }
+
+        /**
+         * Copy the edges into the members of x from outside, reduced by the
+         * pick of the member, then let x pick. Of the edges from one tail
+         * only the cheapest is kept.
+         */
+        private void contract(int x, int begin, int end) {
+            int o = arenaTop;
+            segStart[x] = o;
+            for (int i = begin; i < end; i++) {
+                int u = members[i];
+                long w = memberPicks[i];
+                for (int j = segStart[u]; j < segEnd[u]; j++) {
+                    int t = top(tail[j]);
+                    if (t == x) {
+                        continue;
+                    }
+                    long r = reduced[j] - w;
+                    if (owner[t] == x) {
+                        int k = slot[t];
+                        if (r < reduced[k] || r == reduced[k] && original[j] < original[k]) {
+                            reduced[k] = r;
+                            original[k] = original[j];
+                        }
+                        continue;
+                    }
+                    owner[t] = x;
+                    slot[t] = o;
+                    tail[o] = t;
+                    reduced[o] = r;
+                    original[o] = original[j];
+                    o++;
+                }
+            }
+            segEnd[x] = o;
+            arenaTop = o;
+            pickCheapest(x);
+        }
+
+        private void pickCheapest(int u) {
+            long min = Long.MAX_VALUE;
+            int arg = -1;
+            for (int i = segStart[u]; i < segEnd[u]; i++) {
+                if (reduced[i] < min || arg >= 0 && reduced[i] == min && original[i] < original[arg]) {
+                    min = reduced[i];
+                    arg = i;
+                }
+            }
+            pick[u] = arg;
+        }
+
+        void sendPicks(Link coordinator) throws IOException {
+            DataOutputStream out = coordinator.out;
+            out.writeInt(numFresh);
+            for (int i = 0; i < numFresh; i++) {
+                int x = fresh[i];
+                out.writeInt(x);
+                out.writeLong(reduced[pick[x]]);
+                out.writeInt(original[pick[x]]);
+            }
+            out.flush();
+        }
+
+        /**
+         * Make room for needed more edges at the top of the arena, moving the
+         * live segments down over the dead ones first
+         *
+         * @param firstNew first id created in this round
+         */
+        private void reserve(int needed, int firstNew) {
+            if (arenaTop + needed <= tail.length) {
+                return;
+            }
+            int top = 0;
+            for (int u = 1; u < firstNew; u++) {
+                if (forestParent[u] >= 0 && forestParent[u] < firstNew) {
+                    // contracted in an earlier round, its edges were copied already
+                    segStart[u] = segEnd[u] = 0;
+                    continue;
+                }
+                // segments lie in the arena in id order, moving down never overwrites a live one
+                int size = segEnd[u] - segStart[u];
+                System.arraycopy(tail, segStart[u], tail, top, size);
+                System.arraycopy(reduced, segStart[u], reduced, top, size);
+                System.arraycopy(original, segStart[u], original, top, size);
+                segStart[u] = top;
+                segEnd[u] = top + size;
+                top += size;
+            }
+            arenaTop = top;
+            if (arenaTop + needed > tail.length) {
+                int capacity = Math.max(arenaTop + needed, tail.length * 2);
+                tail = Arrays.copyOf(tail, capacity);
+                reduced = Arrays.copyOf(reduced, capacity);
+                original = Arrays.copyOf(original, capacity);
+            }
+        }
+
+        private int top(int u) {
+            while (forestParent[u] >= 0) {
+                u = forestParent[u];
+            }
+            return u;
+        }
+    }
+
+    /**
+     * One end of a connection, buffered both ways
+     */
+    static class Link implements AutoCloseable {
+        Socket socket;
+        DataInputStream in;
+        DataOutputStream out;
+        long received;
+        byte[] bytes = new byte[16 * BLOCK];
+        ByteBuffer view = ByteBuffer.wrap(bytes);
+
+        Link(Socket socket) throws IOException {
+            this.socket = socket;
+            if (socket.isConnected()) {
+                open();
+            }
+        }
+
+        void open() throws IOException {
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+
+        /**
+         * Check the handshake of a worker that just connected and answer it
+         *
+         * @return false if it is not a worker of this version
+         */
+        boolean accept() throws IOException {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            try {
+                if (readInt() != MAGIC || readInt() != VERSION) {
+                    return false;
+                }
+            } catch (IOException e) {
+                // closed, silent or too short
+                return false;
+            }
+            socket.setSoTimeout(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+            return true;
+        }
+
+        int readInt() throws IOException {
+            received += 4;
+            return in.readInt();
+        }
+
+        long readLong() throws IOException {
+            received += 8;
+            return in.readLong();
+        }
+
+        /**
+         * Count, then count edges of four ints each
+         */
+        void writeBlock(int[] block, int count) throws IOException {
+            out.writeInt(count);
+            view.clear();
+            view.asIntBuffer().put(block, 0, 4 * count);
+            out.write(bytes, 0, 16 * count);
+        }
+
+        /**
+         * @return the count edges of a block after its count
+         */
+        ByteBuffer readBlock(int count) throws IOException {
+            in.readFully(bytes, 0, 16 * count);
+            received += 16L * count;
+            view.clear().limit(16 * count);
+            return view;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+import java.util.Arrays;
+
+/**
+ * Dual solution that proves an arborescence minimum, exported by
+ * {@link RoundArborescence#dual()}.
+ * <p>
+ * The sets of the dual are laminar: the vertices 1...numVertices and the
+ * contracted cycles from numVertices + 1 on, with {@code forestParent[x]}
+ * the smallest set that holds x, -1 for none. {@code value[x]} is taken off
+ * every edge that enters x, into one of its vertices from outside it. The
+ * dual is feasible if no cycle has a negative value and no edge is left
+ * below 0; every arborescence then weighs at least the sum of the values,
+ * so a tree that weighs exactly that is optimal.
+ *
+ * @author Jun Yu
+ */
+public class DualCertificate {
+    int numVertices;
+    int source;
+    int[] forestParent;
+    long[] value;
+
+    /**
+     * @param forestParent smallest set above every vertex or cycle, -1 for none, index 0 unused
+     * @param value        dual of every vertex or cycle
+     */
+    public DualCertificate(int numVertices, int source, int[] forestParent, long[] value) {
+        this.numVertices = numVertices;
+        this.source = source;
+        this.forestParent = forestParent;
+        this.value = value;
+    }
+
+    /**
+     * @return sum of the values, the least weight of any arborescence
+     */
+    public long objective() {
+        long sum = 0;
+        for (int x = 1; x < value.length; x++) {
+            if (x != source) {
+                sum += value[x];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Check that tree is an arborescence of edges, that the dual is
+     * feasible and that the two weigh the same, in one pass over the edges.
+     * An edge with both ends under the same cycle only enters the sets below
+     * their common ancestor; those edges take a second pass, and the
+     * ancestors are found offline with a union-find over a walk of the
+     * forest.
+     *
+     * @param edges graph that was solved, deleted edges are skipped
+     * @param tree  its solution
+     * @return null if tree is proven minimum, otherwise what is wrong
+     */
+    public String verify(EdgeStore edges, Arborescence tree) {
+        int n = numVertices + 1;
+        int numNodes = forestParent.length;
+        int m = edges.numEdges();
+        if (tree.numVertices != numVertices || tree.source != source || numNodes < n || value.length != numNodes) {
+            return "tree and dual are not over the same vertices";
+        }
+
+        // the forest: every set above its members, no negative cycle and source in no set
+        if (forestParent[source] >= 0) {
+            return "source is in cycle " + forestParent[source];
+        }
+        for (int x = 1; x < numNodes; x++) {
+            int p = forestParent[x];
+            if (p >= 0 && (p <= x || p < n || p >= numNodes)) {
+                return "set " + x + " is in " + p + ", which is not a cycle above it";
+            }
+            if (x >= n && value[x] < 0) {
+                return "cycle " + x + " has the negative value " + value[x];
+            }
+        }
+        // sum of the values from every set up to its top, and the top; a parent has a larger id
+        long[] potential = new long[numNodes];
+        int[] top = new int[numNodes];
+        for (int x = numNodes - 1; x > 0; x--) {
+            long own = x == source ? 0 : value[x];
+            int p = forestParent[x];
+            potential[x] = p < 0 ? own : own + potential[p];
+            top[x] = p < 0 ? x : top[p];
+        }
+
+        // one pass over the edges: the edge of the tree into every vertex, and
+        // no edge below 0 in the dual. An edge between two tops enters every set
+        // above its head, the others wait for the common ancestor of their ends
+        boolean[] found = new boolean[n];
+        found[source] = true;
+        int[] queryStart = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            if (edges.isDeleted(e)) {
+                continue;
+            }
+            int u = edges.from(e);
+            int v = edges.to(e);
+            int w = edges.weight(e);
+            if (!found[v] && tree.parent[v] == u && tree.weight[v] == w) {
+                found[v] = true;
+            }
+            if (v == source || u == v) {
+                // enters no set
+                continue;
+            }
+            if (top[u] != top[v]) {
+                if (w < potential[v]) {
+                    return violated(edges, e, potential[v]);
+                }
+            } else {
+                queryStart[u + 1]++;
+                queryStart[v + 1]++;
+            }
+        }
+
+        // the tree: every vertex but source found, and no cycle
+        long weight = 0;
+        for (int v = 1; v < n; v++) {
+            if (!found[v] || (v == source) != (tree.parent[v] < 0)) {
+                return "vertex " + v + " has no edge of the graph into it in the tree";
+            }
+            if (v != source) {
+                weight += tree.weight[v];
+            }
+        }
+        // 0 unseen, 1 on the walk, 2 reaches source
+        byte[] state = new byte[n];
+        int[] walk = new int[n];
+        state[source] = 2;
+        for (int v = 1; v < n; v++) {
+            int length = 0;
+            int u = v;
+            while (state[u] == 0) {
+                state[u] = 1;
+                walk[length++] = u;
+                u = tree.parent[u];
+            }
+            if (state[u] == 1) {
+                return "the tree has a cycle through vertex " + u;
+            }
+            while (length > 0) {
+                state[walk[--length]] = 2;
+            }
+        }
+        if (weight != tree.totalWeight) {
+            return "the tree weighs " + weight + ", not " + tree.totalWeight;
+        }
+
+        for (int v = 0; v < n; v++) {
+            queryStart[v + 1] += queryStart[v];
+        }
+        int[] queries = new int[queryStart[n]];
+        if (queries.length == 0) {
+            return checkObjective(weight);
+        }
+        int[] fill = Arrays.copyOf(queryStart, n);
+        for (int e = 0; e < m; e++) {
+            int u = edges.from(e);
+            int v = edges.to(e);
+            if (!edges.isDeleted(e) && v != source && u != v && top[u] == top[v]) {
+                queries[fill[u]++] = e;
+                queries[fill[v]++] = e;
+            }
+        }
+        int[] childStart = new int[numNodes + 1];
+        for (int x = 1; x < numNodes; x++) {
+            if (forestParent[x] >= 0) {
+                childStart[forestParent[x] + 1]++;
+            }
+        }
+        for (int x = 0; x < numNodes; x++) {
+            childStart[x + 1] += childStart[x];
+        }
+        int[] children = new int[childStart[numNodes]];
+        int[] nextChild = Arrays.copyOf(childStart, numNodes);
+        for (int x = 1; x < numNodes; x++) {
+            if (forestParent[x] >= 0) {
+                children[nextChild[forestParent[x]]++] = x;
+            }
+        }
+
+        // walk every cycle at the top; a finished node is joined to its parent,
+        // so the root of a finished vertex is its lowest ancestor still on the walk
+        int[] union = new int[numNodes];
+        boolean[] finished = new boolean[numNodes];
+        int[] stack = new int[numNodes];
+        System.arraycopy(childStart, 0, nextChild, 0, numNodes);
+        for (int x = 0; x < numNodes; x++) {
+            union[x] = x;
+        }
+        for (int t = 1; t < numNodes; t++) {
+            if (forestParent[t] >= 0 || t < n) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = t;
+            while (depth > 0) {
+                int x = stack[depth - 1];
+                if (nextChild[x] < childStart[x + 1]) {
+                    stack[depth++] = children[nextChild[x]++];
+                    continue;
+                }
+                depth--;
+                finished[x] = true;
+                if (x < n) {
+                    for (int q = queryStart[x]; q < queryStart[x + 1]; q++) {
+                        int e = queries[q];
+                        int u = edges.from(e);
+                        int v = edges.to(e);
+                        int other = u == x ? v : u;
+                        if (!finished[other]) {
+                            // checked when the other end is finished
+                            continue;
+                        }
+                        long entered = potential[v] - potential[LeftistHeaps.find(union, other)];
+                        if (edges.weight(e) < entered) {
+                            return violated(edges, e, entered);
+                        }
+                    }
+                }
+                if (forestParent[x] >= 0) {
+                    union[x] = forestParent[x];
+                }
+            }
+        }
+
+        return checkObjective(weight);
+    }
+
+    private String checkObjective(long weight) {
+        long objective = objective();
+        if (objective != weight) {
+            return "the dual sums to " + objective + ", not to the weight " + weight + " of the tree";
+        }
+        return null;
+    }
+
+    private static String violated(EdgeStore edges, int e, long entered) {
+        return "edge " + e + " from " + edges.from(e) + " to " + edges.to(e) + " weighs " + edges.weight(e)
+                + ", less than the " + entered + " taken off it";
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graph file in the text format or in {@link BinaryGraphFormat}, read in
+ * sequential passes instead of being loaded. The header is read when the
+ * file is opened, every pass hands all edges to a {@link Visitor} in file
+ * order. Text ends at the end of the file or at the first empty line.
+ *
+ * @author Jun Yu
+ */
+public class EdgeFile {
+    // bytes read per column in one go from a binary file
+    static final int BLOCK = 1 << 20;
+    // bytes mapped at once from a text file
+    static final long WINDOW = 1L << 26;
+
+    Path path;
+    boolean binary;
+    int numVertices;
+    int source;
+    long numEdges;
+    // first byte after the header of a text file
+    long bodyStart;
+    // over all passes
+    long bytesRead;
+
+    /**
+     * Receiver of the edges of a pass, e is the position in the file from 0
+     */
+    public interface Visitor {
+        void edge(long e, int src, int dst, int weight);
+    }
+
+    /**
+     * Read the header only
+     *
+     * @param path   graph in the format of {@link BinaryGraphFormat} or in the text format
+     * @param binary whether path is binary
+     * @throws IOException if the header is malformed
+     */
+    public EdgeFile(Path path, boolean binary) throws IOException {
+        this.path = path;
+        this.binary = binary;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (binary) {
+                if (size < BinaryGraphFormat.HEADER_BYTES) {
+                    throw new IOException(path + " is not a binary graph");
+                }
+                ByteBuffer header = ByteBuffer.allocate(BinaryGraphFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, header, 0);
+                header.flip();
+                if (header.getInt() != BinaryGraphFormat.MAGIC) {
+                    throw new IOException(path + " is not a binary graph");
+                }
+                int version = header.getInt();
+                if (version != BinaryGraphFormat.VERSION) {
+                    throw new IOException("unsupported version " + version);
+                }
+                numVertices = header.getInt();
+                source = header.getInt();
+                numEdges = header.getLong();
+                if (numEdges < 0 || size != BinaryGraphFormat.HEADER_BYTES + numEdges * 12) {
+                    throw new IOException("size of " + path + " does not match " + numEdges + " edges");
+                }
+            } else {
+                if (size == 0) {
+                    throw new IOException(path + " is empty");
+                }
+                bodyStart = ParallelTextLoader.nextLine(channel, 0, size);
+                MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, bodyStart);
+                ParallelTextLoader.Scanner header = new ParallelTextLoader.Scanner(first, 0);
+                numVertices = header.nextInt();
+                numEdges = header.next();
+                source = header.nextInt();
+            }
+        }
+        if (numVertices < 1 || source < 1 || source > numVertices) {
+            throw new IOException("source " + source + " is not a vertex of 1..." + numVertices);
+        }
+    }
+
+    /**
+     * One sequential read of all edges
+     *
+     * @throws IOException if the file cannot be read, has a vertex out of
+     *                     range or does not hold the edges of its header
+     */
+    public void pass(Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long count = binary ? passBinary(channel, visitor) : passText(channel, visitor);
+            if (count != numEdges) {
+                throw new IOException("The claimed number of edge " + numEdges + " not equals to actual number " + count);
+            }
+        }
+    }
+
+    private long passBinary(FileChannel channel, Visitor visitor) throws IOException {
+        ByteBuffer tails = ByteBuffer.allocateDirect(BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer heads = ByteBuffer.allocateDirect(BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer weights = ByteBuffer.allocateDirect(BLOCK).order(ByteOrder.LITTLE_ENDIAN);
+        long start = BinaryGraphFormat.HEADER_BYTES;
+        long e = 0;
+        while (e < numEdges) {
+            int count = (int) Math.min(BLOCK / 4, numEdges - e);
+            tails.clear().limit(4 * count);
+            heads.clear().limit(4 * count);
+            weights.clear().limit(4 * count);
+            // the three columns are read in turn, each one front to back
+            readFully(channel, tails, start + 4 * e);
+            readFully(channel, heads, start + 4 * (numEdges + e));
+            readFully(channel, weights, start + 4 * (2 * numEdges + e));
+            for (int i = 0; i < count; i++) {
+                int src = tails.getInt(4 * i);
+                int dst = heads.getInt(4 * i);
+                if (src < 1 || src > numVertices || dst < 1 || dst > numVertices) {
+                    throw new IOException("edge " + (e + i) + " from " + src + " to " + dst
+                            + " is not between vertices of 1..." + numVertices);
+                }
+                visitor.edge(e + i, src, dst, weights.getInt(4 * i));
+            }
+            e += count;
+            bytesRead += 12L * count;
+        }
+        return e;
+    }
+
+    private long passText(FileChannel channel, Visitor visitor) throws IOException {
+        long size = channel.size();
+        long position = bodyStart;
+        long e = 0;
+        while (position < size) {
+            long end = position + WINDOW >= size ? size : ParallelTextLoader.nextLine(channel, position + WINDOW, size);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+            ParallelTextLoader.Scanner scanner = new ParallelTextLoader.Scanner(window, position);
+            while (scanner.nextLine()) {
+                int src = scanner.nextVertex(numVertices);
+                int dst = scanner.nextVertex(numVertices);
+                int w = scanner.nextInt();
+                scanner.endOfLine();
+                visitor.edge(e++, src, dst, w);
+            }
+            bytesRead += end - position;
+            position = end;
+            // the edges end at the first empty line
+            if (scanner.empty) {
+                break;
+            }
+        }
+        return e;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("unexpected end of file at byte " + position);
+            }
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Read access to the edges of a graph by id, on the heap in
+ * {@link CsrGraph} or outside it in {@link OffHeapEdges}
+ *
+ * @author Jun Yu
+ */
+public interface EdgeStore {
+
+    int numEdges();
+
+    int from(int e);
+
+    int to(int e);
+
+    int weight(int e);
+
+    /**
+     * @return whether the edge was deleted and has to be skipped
+     */
+    boolean isDeleted(int e);
+}
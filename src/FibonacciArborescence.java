@@ -0,0 +1,356 @@
+import java.util.Arrays;
+
+/**
+ * Minimum arborescence by contraction on Fibonacci heaps, after
+ * Gabow, Galil, Spencer and Tarjan.
+ * <p>
+ * Insert and meld are O(1), so building the heaps is O(E) and contracting a
+ * cycle costs only the melds. Keys are never rewritten: the reduced cost of
+ * an edge is its weight minus the potential of its head, and a union-find
+ * with path compression sums the reductions along the way from a vertex to
+ * its super-vertex. Parallel edges into a vertex are folded into one heap
+ * node while the heaps are built.
+ * <p>
+ * An edge that ends up inside a super-vertex still leaves its heap by
+ * delete-min, O(log E) amortized, so the bound is O(E log V) as for
+ * {@link TarjanArborescence}. The O(E + V log V) of Gabow et al. needs more
+ * bookkeeping to drop those edges without a delete-min, which is not done here.
+ *
+ * @author Jun Yu
+ */
+public class FibonacciArborescence {
+    CsrGraph graph;
+    int numVertices;
+    int source;
+
+    // Fibonacci heap nodes, one slot per edge id, holding the cheapest edge it stands for
+    int[] edgeOf;
+    int[] child, left, right, degree;
+    int[] heap;
+    int[] roots = new int[64];
+    int[] byDegree = new int[64];
+
+    // union-find over vertices and super-vertices, with reductions as potentials
+    int[] parent;
+    long[] potential;
+    int[] stack;
+
+    // contraction forest, the members of super-vertex x are members[memberStart[x - n]...]
+    int[] forestParent;
+    int[] members;
+    int[] memberStart;
+    // ids in use, vertices and super-vertices
+    int numNodes;
+
+    // cheapest incoming edge chosen for each vertex or super-vertex
+    int[] in;
+
+    public FibonacciArborescence(CsrGraph graph, int numVertices, int source) {
+        this.graph = graph;
+        this.numVertices = numVertices;
+        this.source = source;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() {
+        int n = numVertices + 1;
+        int nodes = 2 * n;
+        int m = graph.numEdges;
+
+        edgeOf = new int[m];
+        child = new int[m];
+        left = new int[m];
+        right = new int[m];
+        degree = new int[m];
+        heap = new int[nodes];
+        Arrays.fill(heap, -1);
+
+        parent = new int[nodes];
+        potential = new long[nodes];
+        stack = new int[nodes];
+        for (int v = 0; v < nodes; v++) {
+            parent[v] = v;
+        }
+        forestParent = new int[nodes];
+        Arrays.fill(forestParent, -1);
+        members = new int[nodes];
+        memberStart = new int[n + 1];
+        in = new int[nodes];
+        Arrays.fill(in, -1);
+
+        // group edge ids by head, counting sort
+        int[] headStart = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            if (!graph.isDeleted(e)) {
+                headStart[graph.to[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            headStart[v + 1] += headStart[v];
+        }
+        int[] byHead = new int[m];
+        int[] fill = Arrays.copyOf(headStart, n);
+        for (int e = 0; e < m; e++) {
+            if (!graph.isDeleted(e)) {
+                byHead[fill[graph.to[e]]++] = e;
+            }
+        }
+
+        // one node per tail, parallel edges only lower its key;
+        // no potentials yet, so keys are plain weights
+        int[] slotOfTail = new int[n];
+        Arrays.fill(slotOfTail, -1);
+        for (int v = 1; v < n; v++) {
+            if (v == source) {
+                continue;
+            }
+            int last = -1;
+            for (int p = headStart[v]; p < headStart[v + 1]; p++) {
+                int e = byHead[p];
+                int u = graph.from[e];
+                if (u == v) {
+                    continue;
+                }
+                int slot = slotOfTail[u];
+                if (slot >= 0 && graph.to[edgeOf[slot]] == v) {
+                    if (graph.weight[e] < graph.weight[edgeOf[slot]]) {
+                        decreaseKey(v, slot, e);
+                    }
+                    continue;
+                }
+                edgeOf[e] = e;
+                child[e] = -1;
+                // append to the circular root list
+                if (last < 0) {
+                    left[e] = right[e] = e;
+                    heap[v] = e;
+                } else {
+                    left[e] = last;
+                    right[e] = right[last];
+                    left[right[last]] = e;
+                    right[last] = e;
+                    if (graph.weight[e] < graph.weight[edgeOf[heap[v]]]) {
+                        heap[v] = e;
+                    }
+                }
+                last = e;
+                slotOfTail[u] = e;
+            }
+        }
+
+        int[] seen = new int[nodes];
+        Arrays.fill(seen, -1);
+        seen[source] = source;
+        int[] path = new int[nodes];
+        int next = n;
+        int numMembers = 0;
+
+        long sum = 0;
+        for (int s = 1; s < n; s++) {
+            int u = s;
+            int qi = 0;
+            while (seen[u] < 0) {
+                int top = heap[u];
+                if (top < 0) {
+                    throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+                }
+                int e = edgeOf[top];
+                heap[u] = deleteMin(top);
+                if (find(graph.from[e]) == u) {
+                    // edge inside a super-vertex
+                    continue;
+                }
+                long w = reducedCost(e);
+                // every other edge into u gets cheaper by w
+                potential[u] += w;
+                in[u] = e;
+                path[qi++] = u;
+                seen[u] = s;
+                sum += w;
+                u = find(graph.from[e]);
+
+                if (seen[u] == s) {
+                    // found cycle, contract into new node x
+                    int x = next++;
+                    int cycle = -1;
+                    int w_index;
+                    do {
+                        w_index = path[--qi];
+                        cycle = meld(cycle, heap[w_index]);
+                        parent[w_index] = x;
+                        forestParent[w_index] = x;
+                        members[numMembers++] = w_index;
+                    } while (w_index != u);
+                    memberStart[x - n + 1] = numMembers;
+                    heap[x] = cycle;
+                    u = x;
+                }
+            }
+        }
+
+        numNodes = next;
+        in = ContractionForest.parentEdges(n, next, source, forestParent, members, memberStart, in, graph.to);
+        return sum;
+    }
+
+    /**
+     * @return edge id into every vertex in the arborescence, -1 for source
+     */
+    public int[] parentEdges() {
+        return in;
+    }
+
+    /**
+     * Add the contracted cycles and the super-vertices to stats
+     */
+    void report(SolverStats stats) {
+        ContractionForest.report(stats, numVertices + 1, numNodes, memberStart);
+    }
+
+    private long reducedCost(int e) {
+        int v = graph.to[e];
+        int root = find(v);
+        long pot = potential[root];
+        if (v != root) {
+            pot += potential[v];
+        }
+        return graph.weight[e] - pot;
+    }
+
+    private long key(int slot) {
+        return reducedCost(edgeOf[slot]);
+    }
+
+    /**
+     * Find with path compression, a compressed vertex keeps the sum of
+     * potentials up to but excluding its root
+     */
+    private int find(int v) {
+        int top = 0;
+        while (parent[v] != v) {
+            stack[top++] = v;
+            v = parent[v];
+        }
+        int root = v;
+        long acc = 0;
+        for (int i = top - 1; i >= 0; i--) {
+            int node = stack[i];
+            acc += potential[node];
+            potential[node] = acc;
+            parent[node] = root;
+        }
+        return root;
+    }
+
+    private int meld(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        // splice the two circular root lists
+        int aRight = right[a];
+        int bLeft = left[b];
+        right[a] = b;
+        left[b] = a;
+        right[bLeft] = aRight;
+        left[aRight] = bLeft;
+        return key(b) < key(a) ? b : a;
+    }
+
+    private int deleteMin(int min) {
+        // children become roots
+        int c = child[min];
+        if (c >= 0) {
+            child[min] = -1;
+            degree[min] = 0;
+            meld(min, c);
+        }
+
+        if (right[min] == min) {
+            return -1;
+        }
+        int start = right[min];
+        left[start] = left[min];
+        right[left[min]] = start;
+        left[min] = right[min] = min;
+
+        // consolidate roots of equal degree
+        int maxDegree = 0;
+        int x = start;
+        int count = 0;
+        do {
+            roots = ensure(roots, count + 1);
+            roots[count++] = x;
+            x = right[x];
+        } while (x != start);
+
+        Arrays.fill(byDegree, -1);
+        for (int i = 0; i < count; i++) {
+            int a = roots[i];
+            int d = degree[a];
+            while (byDegree[d] >= 0) {
+                int b = byDegree[d];
+                if (key(b) < key(a)) {
+                    int t = a;
+                    a = b;
+                    b = t;
+                }
+                link(b, a);
+                byDegree[d++] = -1;
+            }
+            byDegree[d] = a;
+            maxDegree = Math.max(maxDegree, d);
+        }
+
+        int result = -1;
+        for (int d = 0; d <= maxDegree; d++) {
+            int a = byDegree[d];
+            if (a >= 0) {
+                left[a] = right[a] = a;
+                result = result < 0 ? a : meld(result, a);
+            }
+        }
+        return result;
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    /**
+     * Make root b a child of root a
+     */
+    private void link(int b, int a) {
+        left[b] = right[b] = b;
+        int c = child[a];
+        if (c < 0) {
+            child[a] = b;
+        } else {
+            right[b] = right[c];
+            left[right[c]] = b;
+            right[c] = b;
+            left[b] = c;
+        }
+        degree[a]++;
+    }
+
+    /**
+     * Let slot stand for a cheaper edge. Only called while the heaps are
+     * built, when every node is a root, so nothing is ever cut.
+     *
+     * @param v    vertex owning the heap
+     * @param slot heap node
+     * @param e    cheaper edge
+     */
+    private void decreaseKey(int v, int slot, int e) {
+        edgeOf[slot] = e;
+        if (key(slot) < key(heap[v])) {
+            heap[v] = slot;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generator of graphs in which every vertex is reachable from the
+ * source. Edges are produced one at a time and written out as they come,
+ * nothing is kept per edge, so the number of edges is only bounded by disk.
+ * <p>
+ * Every family starts with a random arborescence, each vertex hanging off an
+ * earlier one, and adds its own edges on top. Vertices are relabeled by a
+ * seeded affine permutation so the order of generation does not show in the
+ * ids. The same family, size, parameters and seed give the same file.
+ *
+ * @author Jun Yu
+ */
+public class GraphGenerator {
+
+    public enum Family {
+        /**
+         * uniformly random edges, {@code degree} edges per vertex
+         */
+        SPARSE,
+        /**
+         * in-degree of every vertex but source is {@code density} of the others
+         */
+        DENSE,
+        /**
+         * tails drawn from a Zipf law with {@code exponent}, {@code degree} edges per vertex
+         */
+        POWER_LAW,
+        /**
+         * path of 2-cycles that is contracted one vertex per round, source edges are expensive
+         */
+        NESTED_CYCLES
+    }
+
+    /**
+     * Receiver of generated edges
+     */
+    public interface EdgeSink {
+        void edge(int src, int dst, int weight) throws IOException;
+    }
+
+    Family family;
+    int numVertices;
+    long seed;
+
+    // parameters of the families, defaults unless set
+    int degree = 4;
+    double density = 0.5;
+    double exponent = 2.0;
+    int maxWeight = 1000;
+
+    // relabeling i -> 1 + (a * i + b) mod n
+    long a, b;
+
+    public GraphGenerator(Family family, int numVertices, long seed) {
+        if (numVertices < 1) {
+            throw new IllegalArgumentException("need at least one vertex");
+        }
+        this.family = family;
+        this.numVertices = numVertices;
+        this.seed = seed;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        a = 1 + random.nextLong(Math.max(1, numVertices - 1));
+        while (gcd(a, numVertices) != 1) {
+            a = 1 + random.nextLong(Math.max(1, numVertices - 1));
+        }
+        b = random.nextLong(numVertices);
+    }
+
+    private static long gcd(long x, long y) {
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return x;
+    }
+
+    private int label(long i) {
+        return 1 + (int) ((a * i + b) % numVertices);
+    }
+
+    public int source() {
+        return label(0);
+    }
+
+    /**
+     * @return in-degree of every vertex but source for DENSE
+     */
+    private int denseInDegree() {
+        long k = Math.round(density * (numVertices - 1));
+        return (int) Math.max(1, Math.min(numVertices - 1, k));
+    }
+
+    /**
+     * @return number of edges generate will produce
+     */
+    public long numEdges() {
+        long n = numVertices;
+        switch (family) {
+            case DENSE:
+                return (n - 1) * denseInDegree();
+            case NESTED_CYCLES:
+                return n < 3 ? n - 1 : 3 * n - 4;
+            default:
+                return n == 1 ? 0 : n * degree;
+        }
+    }
+
+    /**
+     * Produce all edges of the graph in a fixed order
+     *
+     * @param sink receiver of edges
+     */
+    public void generate(EdgeSink sink) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        int n = numVertices;
+        if (n == 1) {
+            return;
+        }
+
+        if ((family == Family.SPARSE || family == Family.POWER_LAW) && degree < 1) {
+            throw new IllegalArgumentException("degree must be at least 1");
+        }
+        if (family == Family.NESTED_CYCLES) {
+            nestedCycles(sink);
+            return;
+        }
+
+        // arborescence, internal vertex i hangs off one of 0..i-1
+        for (int i = 1; i < n; i++) {
+            sink.edge(label(random.nextInt(i)), label(i), random.nextInt(maxWeight + 1));
+        }
+
+        if (family == Family.DENSE) {
+            // choose k - 1 more tails of each vertex by selection sampling, in order
+            int k = denseInDegree();
+            for (int i = 1; i < n; i++) {
+                int needed = k - 1;
+                int left = n - 1;
+                for (int u = 0; u < n && needed > 0; u++) {
+                    if (u == i) {
+                        continue;
+                    }
+                    if (random.nextInt(left) < needed) {
+                        sink.edge(label(u), label(i), random.nextInt(maxWeight + 1));
+                        needed--;
+                    }
+                    left--;
+                }
+            }
+            return;
+        }
+
+        long extra = numEdges() - (n - 1);
+        double lower = 1 - exponent;
+        for (long e = 0; e < extra; e++) {
+            int u, v;
+            do {
+                if (family == Family.POWER_LAW) {
+                    // inverse transform of a continuous power law on [1, n + 1)
+                    double x = exponent == 1
+                            ? Math.pow(n + 1, random.nextDouble())
+                            : Math.pow((Math.pow(n + 1, lower) - 1) * random.nextDouble() + 1, 1 / lower);
+                    u = (int) Math.min(n - 1, (long) x - 1);
+                } else {
+                    u = random.nextInt(n);
+                }
+                v = random.nextInt(n);
+            } while (u == v);
+            sink.edge(label(u), label(v), random.nextInt(maxWeight + 1));
+        }
+    }
+
+    /**
+     * Path 1..n-1 with edges back of weight 1 and forward of weight 2, and
+     * an edge from 1 to n-1 of weight 2n. The last two vertices form the
+     * only 0 cycle of the first round. In every later round the cheapest
+     * edge into the super-vertex, reduced to 1, is the one from the vertex
+     * before it, which becomes the only 0 cycle with it. The edge from 1
+     * loses 1 per round and stays dearer until the last, so the contraction
+     * engine needs n - 2 rounds, each of a 2-cycle.
+     */
+    private void nestedCycles(EdgeSink sink) throws IOException {
+        int n = numVertices;
+        // more than any path through the cycles can cost
+        int expensive = (int) Math.min(Integer.MAX_VALUE, 4L * n + 8);
+        for (int i = 1; i < n; i++) {
+            sink.edge(label(0), label(i), expensive);
+        }
+        if (n < 3) {
+            return;
+        }
+        for (int i = 1; i + 1 < n; i++) {
+            sink.edge(label(i + 1), label(i), 1);
+            sink.edge(label(i), label(i + 1), 2);
+        }
+        sink.edge(label(1), label(n - 1), (int) Math.min(Integer.MAX_VALUE, 2L * n));
+    }
+
+    /**
+     * Write the text format, "n m s" then "u v w" per line
+     *
+     * @param out stream, not closed
+     */
+    public void writeText(OutputStream out) throws IOException {
+        TextWriter writer = new TextWriter(out);
+        writer.number(numVertices);
+        writer.space();
+        writer.number(numEdges());
+        writer.space();
+        writer.number(source());
+        writer.newLine();
+        generate((src, dst, weight) -> {
+            writer.number(src);
+            writer.space();
+            writer.number(dst);
+            writer.space();
+            writer.number(weight);
+            writer.newLine();
+        });
+        writer.flush();
+    }
+
+    /**
+     * Write the format of {@link BinaryGraphFormat}
+     *
+     * @param path binary graph to write
+     */
+    public void writeBinary(Path path) throws IOException {
+        long numEdges = numEdges();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(BinaryGraphFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(BinaryGraphFormat.MAGIC).putInt(BinaryGraphFormat.VERSION)
+                    .putInt(numVertices).putInt(source()).putLong(numEdges);
+            header.flip();
+            channel.write(header, 0);
+
+            int start = BinaryGraphFormat.HEADER_BYTES;
+            BinaryGraphFormat.ColumnWriter tails = new BinaryGraphFormat.ColumnWriter(channel, start);
+            BinaryGraphFormat.ColumnWriter heads = new BinaryGraphFormat.ColumnWriter(channel, start + 4 * numEdges);
+            BinaryGraphFormat.ColumnWriter weights = new BinaryGraphFormat.ColumnWriter(channel, start + 8 * numEdges);
+            generate((src, dst, weight) -> {
+                tails.put(src);
+                heads.put(dst);
+                weights.put(weight);
+            });
+            tails.flush();
+            heads.flush();
+            weights.flush();
+        }
+    }
+
+    /**
+     * ASCII output of non-negative numbers without going through String
+     */
+    static class TextWriter {
+        OutputStream out;
+        byte[] buffer = new byte[1 << 16];
+        int size;
+
+        TextWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void number(long value) throws IOException {
+            if (size + 21 > buffer.length) {
+                flush();
+            }
+            int end = size + 20;
+            int p = end;
+            do {
+                buffer[--p] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            System.arraycopy(buffer, p, buffer, size, end - p);
+            size += end - p;
+        }
+
+        void space() throws IOException {
+            put((byte) ' ');
+        }
+
+        void newLine() throws IOException {
+            put((byte) '\n');
+        }
+
+        private void put(byte b) throws IOException {
+            if (size == buffer.length) {
+                flush();
+            }
+            buffer[size++] = b;
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
+            out.flush();
+        }
+    }
+
+    /**
+     * GraphGenerator family vertices [--seed=S] [--degree=D] [--density=P]
+     * [--exponent=A] [--max-weight=W] [--binary] [output], text to stdout
+     * without output
+     */
+    public static void main(String[] args) throws IOException {
+        Family family = null;
+        int numVertices = -1;
+        long seed = 1;
+        boolean binary = false;
+        String path = null;
+        Double density = null, exponent = null;
+        Integer degree = null, maxWeight = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--degree=")) {
+                degree = Integer.parseInt(arg.substring("--degree=".length()));
+            } else if (arg.startsWith("--density=")) {
+                density = Double.parseDouble(arg.substring("--density=".length()));
+            } else if (arg.startsWith("--exponent=")) {
+                exponent = Double.parseDouble(arg.substring("--exponent=".length()));
+            } else if (arg.startsWith("--max-weight=")) {
+                maxWeight = Integer.parseInt(arg.substring("--max-weight=".length()));
+            } else if (arg.equals("--binary")) {
+                binary = true;
+            } else if (family == null) {
+                family = Family.valueOf(arg.toUpperCase());
+            } else if (numVertices < 0) {
+                numVertices = Integer.parseInt(arg);
+            } else {
+                path = arg;
+            }
+        }
+        if (family == null || numVertices < 0 || (binary && path == null)) {
+            System.err.println("usage: GraphGenerator sparse|dense|power_law|nested_cycles vertices"
+                    + " [--seed=S] [--degree=D] [--density=P] [--exponent=A] [--max-weight=W] [--binary] [output]");
+            System.exit(1);
+        }
+
+        GraphGenerator generator = new GraphGenerator(family, numVertices, seed);
+        if (degree != null) {
+            generator.degree = degree;
+        }
+        if (density != null) {
+            generator.density = density;
+        }
+        if (exponent != null) {
+            generator.exponent = exponent;
+        }
+        if (maxWeight != null) {
+            generator.maxWeight = maxWeight;
+        }
+
+        if (binary) {
+            generator.writeBinary(Paths.get(path));
+        } else if (path != null) {
+            try (OutputStream out = new FileOutputStream(path)) {
+                generator.writeText(out);
+            }
+        } else {
+            generator.writeText(System.out);
+        }
+    }
+}
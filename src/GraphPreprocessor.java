@@ -0,0 +1,269 @@
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Cleaning of a graph before it is solved, every step in linear time.
+ * None of the removed edges can be in a minimum arborescence, but they
+ * would be carried through every round of the engines.
+ * <p>
+ * The steps run in the order of {@link Step}. What is left is renumbered
+ * into new edge columns, with the original id of each edge in
+ * {@link #original} and the new index of each vertex in {@link #label}.
+ * The graph itself is not changed.
+ *
+ * @author Jun Yu
+ */
+public class GraphPreprocessor {
+
+    public enum Step {
+        // edges u -> u
+        SELF_LOOPS,
+        // edges into the source
+        SOURCE_EDGES,
+        // vertices not reachable from the source, and the edges out of them
+        UNREACHABLE,
+        // all but the cheapest edge of each (u, v), the lowest id on a tie
+        PARALLEL_EDGES
+    }
+
+    static final Step[] STEPS = Step.values();
+
+    EnumSet<Step> steps;
+
+    // edges removed by each step
+    int[] removed = new int[STEPS.length];
+    long nanos;
+
+    // left out vertices, in increasing order
+    int[] unreachable = new int[0];
+
+    // old vertex -> new vertex, 0 if left out
+    int[] label;
+    int numVertices;
+    int source;
+
+    // edges that are left, renumbered, and new edge id -> old edge id;
+    // null if nothing was removed
+    int[] from, to, weight, original;
+    int numEdges;
+
+    public GraphPreprocessor(EnumSet<Step> steps) {
+        this.steps = EnumSet.copyOf(steps);
+    }
+
+    /**
+     * @return preprocessor with every step
+     */
+    public static GraphPreprocessor all() {
+        return new GraphPreprocessor(EnumSet.allOf(Step.class));
+    }
+
+    /**
+     * Parse a comma separated list such as "self-loops,parallel-edges"
+     */
+    public static GraphPreprocessor parse(String list) {
+        EnumSet<Step> steps = EnumSet.noneOf(Step.class);
+        for (String name : list.split(",")) {
+            if (!name.isEmpty()) {
+                steps.add(Step.valueOf(name.trim().toUpperCase().replace('-', '_')));
+            }
+        }
+        return new GraphPreprocessor(steps);
+    }
+
+    /**
+     * Run the steps on the edges of graph that are not deleted
+     *
+     * @param graph       edges
+     * @param numVertices vertices 1...numVertices
+     * @param source      index
+     * @return whether anything was removed
+     */
+    public boolean run(CsrGraph graph, int numVertices, int source) {
+        long begin = System.nanoTime();
+        Arrays.fill(removed, 0);
+        int n = numVertices + 1;
+        int m = graph.numEdges;
+        int[] gFrom = graph.from;
+        int[] gTo = graph.to;
+        int[] gWeight = graph.weight;
+
+        boolean selfLoops = steps.contains(Step.SELF_LOOPS);
+        // no vertex is 0, so the test never hits when the step is off
+        int sourceHead = steps.contains(Step.SOURCE_EDGES) ? source : 0;
+        boolean[] keep = new boolean[m];
+        int numKept = 0;
+        for (int e = 0; e < m; e++) {
+            if (graph.isDeleted(e)) {
+                continue;
+            }
+            if (selfLoops && gFrom[e] == gTo[e]) {
+                removed[Step.SELF_LOOPS.ordinal()]++;
+            } else if (gTo[e] == sourceHead) {
+                removed[Step.SOURCE_EDGES.ordinal()]++;
+            } else {
+                keep[e] = true;
+                numKept++;
+            }
+        }
+
+        // kept edges grouped by tail with their heads, then by head with their ids
+        int[] start = new int[n + 1];
+        int[] group = new int[numKept];
+
+        label = new int[n];
+        int numReached = numVertices;
+        if (steps.contains(Step.UNREACHABLE)) {
+            groupBy(gFrom, gTo, keep, start, group, n);
+            // label doubles as the visited mark and queue is the order of the search
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            label[source] = 1;
+            queue[tail++] = source;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int p = start[u]; p < start[u + 1]; p++) {
+                    int v = group[p];
+                    if (label[v] == 0) {
+                        label[v] = 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            numReached = tail;
+            for (int e = 0; e < m; e++) {
+                // the head of an edge out of a reached vertex is reached too
+                if (keep[e] && label[gFrom[e]] == 0) {
+                    keep[e] = false;
+                    numKept--;
+                    removed[Step.UNREACHABLE.ordinal()]++;
+                }
+            }
+        } else {
+            Arrays.fill(label, 1);
+        }
+        unreachable = new int[numVertices - numReached];
+        int k = 0;
+        int next = 0;
+        for (int v = 1; v < n; v++) {
+            if (label[v] == 0) {
+                unreachable[k++] = v;
+            } else {
+                label[v] = ++next;
+            }
+        }
+        label[0] = 0;
+
+        if (steps.contains(Step.PARALLEL_EDGES)) {
+            groupBy(gTo, null, keep, start, group, n);
+            // best[u] is the cheapest edge u -> v seen so far while stamp[u] == v
+            int[] best = new int[n];
+            int[] stamp = new int[n];
+            for (int v = 1; v < n; v++) {
+                for (int p = start[v]; p < start[v + 1]; p++) {
+                    int e = group[p];
+                    int u = gFrom[e];
+                    if (stamp[u] != v) {
+                        stamp[u] = v;
+                        best[u] = e;
+                    } else {
+                        int b = best[u];
+                        if (gWeight[e] < gWeight[b]) {
+                            keep[b] = false;
+                            best[u] = e;
+                        } else {
+                            keep[e] = false;
+                        }
+                        numKept--;
+                        removed[Step.PARALLEL_EDGES.ordinal()]++;
+                    }
+                }
+            }
+        }
+
+        this.numVertices = next;
+        this.source = label[source];
+        int total = 0;
+        for (int count : removed) {
+            total += count;
+        }
+        nanos = System.nanoTime() - begin;
+        if (total == 0 && unreachable.length == 0) {
+            // the graph is solved as it is, no need for a copy
+            from = to = weight = original = null;
+            numEdges = numKept;
+            return false;
+        }
+
+        from = new int[numKept];
+        to = new int[numKept];
+        weight = new int[numKept];
+        original = new int[numKept];
+        numEdges = 0;
+        for (int e = 0; e < m; e++) {
+            if (keep[e]) {
+                from[numEdges] = label[gFrom[e]];
+                to[numEdges] = label[gTo[e]];
+                weight[numEdges] = gWeight[e];
+                original[numEdges++] = e;
+            }
+        }
+        nanos = System.nanoTime() - begin;
+        return true;
+    }
+
+    /**
+     * Counting sort of the kept edges by one endpoint into start / group
+     *
+     * @param value what to store of each edge, the edge id if null
+     */
+    private static void groupBy(int[] endpoint, int[] value, boolean[] keep, int[] start, int[] group, int n) {
+        Arrays.fill(start, 0);
+        for (int e = 0; e < keep.length; e++) {
+            if (keep[e]) {
+                start[endpoint[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] fill = Arrays.copyOf(start, n);
+        for (int e = 0; e < keep.length; e++) {
+            if (keep[e]) {
+                group[fill[endpoint[e]]++] = value == null ? e : value[e];
+            }
+        }
+    }
+
+    /**
+     * @return what is left as a graph of its own, after a run that removed something
+     */
+    public CsrGraph graph() {
+        return new CsrGraph(numVertices + 1, from, to, weight, numEdges);
+    }
+
+    /**
+     * @return edges removed by step
+     */
+    public int removed(Step step) {
+        return removed[step.ordinal()];
+    }
+
+    public int[] unreachable() {
+        return unreachable;
+    }
+
+    /**
+     * One line with the count of every step that ran
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("preprocess");
+        for (Step step : steps) {
+            sb.append(' ').append(step.name().toLowerCase().replace('_', '-')).append('=').append(removed(step));
+        }
+        sb.append(", edges left ").append(numEdges).append(", vertices left ").append(numVertices)
+                .append(", ").append(nanos / 1_000_000).append(" ms");
+        return sb.toString();
+    }
+}
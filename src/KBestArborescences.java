@@ -0,0 +1,430 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * The k lightest arborescences in nondecreasing weight, by Camerini,
+ * Fratta and Maffioli's branch and partition.
+ * <p>
+ * Each subproblem is the graph with some edges forced in and some left out.
+ * One contraction of a subproblem gives both its best tree and the edge e
+ * whose exclusion gives its second best, read off the contraction forest:
+ * for every node of the forest whose chosen edge stays in the tree, the
+ * cheapest edge entering it from outside its subtree in the tree, priced
+ * with the reductions of that node. After a tree is output its subproblem
+ * is split in two, with e forced in and with e left out, so every output
+ * costs two contractions instead of one solve per tree edge.
+ * <p>
+ * The trees come out one at a time through {@link Iterator}. At most
+ * maxPending subproblems wait in the queue; the heaviest ones beyond what
+ * the remaining trees can use are dropped for free, beyond that
+ * {@link #isExact()} turns false and some trees may be skipped.
+ *
+ * @author Jun Yu
+ */
+public class KBestArborescences implements Iterator<Arborescence> {
+    // deleted edges are skipped, null for bare columns
+    CsrGraph graph;
+    int[] from, to, weight;
+    int numEdges;
+    int numVertices;
+    int source;
+
+    int k;
+    int maxPending;
+    int emitted;
+    boolean exact = true;
+
+    TreeSet<Pending> pending = new TreeSet<>();
+    long sequence;
+    // subproblem of the last output with its edge forced in, split on the next call
+    Constraint deferred;
+
+    // constraints of the current solve: edge forced into a vertex, left out edges
+    int[] forced;
+    boolean[] banned;
+
+    // leftist heaps over edge ids
+    LeftistHeaps heaps;
+
+    // contraction forest: vertices 1...n are leaves, contracted cycles get n + 1...
+    int numNodes;
+    int[] heap, find, up, choice, enter, seen, path;
+    // reduction of a node when it chose, and summed over it and its ancestors
+    long[] pi, cum;
+
+    // preorder of the tree, last[v] is the largest preorder in the subtree of v
+    int[] pre, last, childStart, children;
+
+    public KBestArborescences(CsrGraph graph, int numVertices, int source, int k, int maxPending) {
+        this(graph.from, graph.to, graph.weight, graph.numEdges, numVertices, source, k, maxPending);
+        this.graph = graph;
+    }
+
+    /**
+     * @param from        tails, only read
+     * @param to          heads, only read
+     * @param weight      weights, only read
+     * @param numEdges    edges in use
+     * @param numVertices vertices 1...numVertices
+     * @param source      index
+     * @param k           trees wanted
+     * @param maxPending  subproblems kept waiting at most
+     */
+    public KBestArborescences(int[] from, int[] to, int[] weight, int numEdges, int numVertices, int source,
+                              int k, int maxPending) {
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.numEdges = numEdges;
+        this.numVertices = numVertices;
+        this.source = source;
+        this.k = k;
+        this.maxPending = Math.max(1, maxPending);
+
+        int n = numVertices + 1;
+        forced = new int[n];
+        Arrays.fill(forced, -1);
+        banned = new boolean[numEdges];
+        heaps = new LeftistHeaps(numEdges);
+        heap = new int[2 * n];
+        find = new int[2 * n];
+        up = new int[2 * n];
+        choice = new int[2 * n];
+        enter = new int[2 * n];
+        seen = new int[2 * n];
+        path = new int[2 * n];
+        pi = new long[2 * n];
+        cum = new long[2 * n];
+        pre = new int[n];
+        last = new int[n];
+        childStart = new int[n + 1];
+        children = new int[n];
+    }
+
+    /**
+     * @return whether another tree follows
+     */
+    @Override
+    public boolean hasNext() {
+        if (emitted == 0 || emitted >= k) {
+            return emitted < k;
+        }
+        if (deferred != null) {
+            offer(solve(deferred), deferred);
+            deferred = null;
+            trim();
+        }
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @return the next lightest tree
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    @Override
+    public Arborescence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Result tree;
+        if (emitted == 0) {
+            tree = solve(null);
+            offer(tree, null);
+        } else {
+            Pending p = pending.pollFirst();
+            Constraint out = new Constraint(p.constraint, p.edge, false);
+            tree = solve(out);
+            offer(tree, out);
+            deferred = new Constraint(p.constraint, p.edge, true);
+        }
+        emitted++;
+        trim();
+        return tree.toArborescence(numVertices, source);
+    }
+
+    /**
+     * @return false if the memory bound dropped a subproblem that could still hold one of the k trees
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    private void offer(Result result, Constraint constraint) {
+        if (result.nextEdge >= 0) {
+            pending.add(new Pending(result.nextWeight, sequence++, constraint, result.nextEdge));
+        }
+    }
+
+    private void trim() {
+        int needed = k - emitted;
+        while (pending.size() > needed) {
+            pending.pollLast();
+        }
+        while (pending.size() > maxPending) {
+            pending.pollLast();
+            exact = false;
+        }
+    }
+
+    /**
+     * Contract the graph under the constraints, expand the best tree and find its partition edge
+     */
+    private Result solve(Constraint constraint) {
+        apply(constraint, true);
+        try {
+            Result result = new Result();
+            result.weight = contract();
+            expand();
+            result.parentEdges = new int[numVertices + 1];
+            result.parentEdges[0] = -1;
+            for (int v = 1; v <= numVertices; v++) {
+                result.parentEdges[v] = v == source ? -1 : enter[v];
+            }
+            result.weights = weight;
+            result.from = from;
+            partitionEdge(result);
+            return result;
+        } finally {
+            apply(constraint, false);
+        }
+    }
+
+    private void apply(Constraint constraint, boolean set) {
+        for (Constraint c = constraint; c != null; c = c.previous) {
+            if (c.include) {
+                forced[to[c.edge]] = set ? c.edge : -1;
+            } else {
+                banned[c.edge] = set;
+            }
+        }
+    }
+
+    private boolean allowed(int e) {
+        int v = to[e];
+        return v != source && from[e] != v && !banned[e] && (forced[v] < 0 || forced[v] == e)
+                && (graph == null || !graph.isDeleted(e));
+    }
+
+    /**
+     * Tarjan's contraction with a fresh node for every cycle, so the forest stays explicit
+     *
+     * @return weight of the best tree
+     */
+    private long contract() {
+        int n = numVertices + 1;
+        int limit = 2 * n;
+        Arrays.fill(heap, 0, limit, -1);
+        Arrays.fill(up, 0, limit, 0);
+        Arrays.fill(choice, 0, limit, -1);
+        Arrays.fill(seen, 0, limit, -1);
+        Arrays.fill(pi, 0, limit, 0);
+        for (int v = 0; v < limit; v++) {
+            find[v] = v;
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (!allowed(e)) {
+                continue;
+            }
+            heaps.init(e, weight[e]);
+            heap[to[e]] = heaps.merge(heap[to[e]], e);
+        }
+        numNodes = n;
+        seen[source] = source;
+
+        long sum = 0;
+        for (int s = 1; s < n; s++) {
+            int u = s;
+            int qi = 0;
+            while (seen[u] < 0) {
+                if (heap[u] < 0) {
+                    throw new IllegalStateException("vertex " + s + " is not reachable from " + source);
+                }
+                int e = heap[u];
+                heaps.push(e);
+                if (LeftistHeaps.find(find, from[e]) == u) {
+                    // edge inside the node
+                    heap[u] = heaps.pop(e);
+                    continue;
+                }
+                long w = heaps.key[e];
+                heap[u] = heaps.pop(e);
+                heaps.add(heap[u], -w);
+                choice[u] = e;
+                pi[u] = w;
+                sum += w;
+                seen[u] = s;
+                path[qi++] = u;
+                u = LeftistHeaps.find(find, from[e]);
+
+                if (seen[u] == s) {
+                    // cycle, contract into a new node that walks on
+                    int c = numNodes++;
+                    int cycle = -1;
+                    int z;
+                    do {
+                        z = path[--qi];
+                        up[z] = c;
+                        find[z] = c;
+                        cycle = heaps.merge(cycle, heap[z]);
+                    } while (z != u);
+                    heap[c] = cycle;
+                    u = c;
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Top down over the forest: a node entered by no edge from above keeps
+     * its chosen edge, which then enters every node on the way down to its head
+     */
+    private void expand() {
+        Arrays.fill(enter, 0, numNodes, -1);
+        cum[0] = 0;
+        for (int y = numNodes - 1; y >= 1; y--) {
+            if (y == source) {
+                continue;
+            }
+            cum[y] = pi[y] + cum[up[y]];
+            if (enter[y] >= 0) {
+                continue;
+            }
+            int e = choice[y];
+            enter[y] = e;
+            for (int z = to[e]; z != y; z = up[z]) {
+                enter[z] = e;
+            }
+        }
+
+        // preorder of the tree from source, children grouped by tail
+        int n = numVertices + 1;
+        Arrays.fill(childStart, 0);
+        for (int v = 1; v < n; v++) {
+            if (v != source) {
+                childStart[from[enter[v]] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] fill = Arrays.copyOf(childStart, n);
+        for (int v = 1; v < n; v++) {
+            if (v != source) {
+                children[fill[from[enter[v]]]++] = v;
+            }
+        }
+        // path doubles as the stack and fill as the next child to visit
+        System.arraycopy(childStart, 0, fill, 0, n);
+        int top = 0;
+        int order = 0;
+        path[top++] = source;
+        pre[source] = order++;
+        while (top > 0) {
+            int u = path[top - 1];
+            if (fill[u] < childStart[u + 1]) {
+                int v = children[fill[u]++];
+                pre[v] = order++;
+                path[top++] = v;
+            } else {
+                last[u] = order - 1;
+                top--;
+            }
+        }
+    }
+
+    /**
+     * Cheapest way to replace one tree edge: an edge f into a node y of the
+     * forest whose chosen edge is in the tree, with its tail outside the
+     * subtree of the vertex y is entered at. Its price is its weight less
+     * the reductions from its head up to y, and the tree without the chosen
+     * edge of y weighs that much more.
+     */
+    private void partitionEdge(Result result) {
+        long best = Long.MAX_VALUE;
+        int bestEdge = -1;
+        for (int f = 0; f < numEdges; f++) {
+            if (!allowed(f)) {
+                continue;
+            }
+            int x = pre[from[f]];
+            int v = to[f];
+            for (int y = v; y != 0; y = up[y]) {
+                // the subtree of a node's entry only grows going up
+                int a = to[enter[y]];
+                if (pre[a] <= x && x <= last[a]) {
+                    break;
+                }
+                int e = choice[y];
+                if (enter[y] == e && e != f && forced[to[e]] != e) {
+                    long price = weight[f] - (cum[v] - cum[up[y]]);
+                    if (price < best) {
+                        best = price;
+                        bestEdge = e;
+                    }
+                }
+            }
+        }
+        result.nextEdge = bestEdge;
+        result.nextWeight = bestEdge < 0 ? Long.MAX_VALUE : result.weight + best;
+    }
+
+    /**
+     * Edge forced in or left out, on top of the constraints of the parent subproblem
+     */
+    static class Constraint {
+        Constraint previous;
+        int edge;
+        boolean include;
+
+        Constraint(Constraint previous, int edge, boolean include) {
+            this.previous = previous;
+            this.edge = edge;
+            this.include = include;
+        }
+    }
+
+    /**
+     * Subproblem whose best tree weighs weight: the constraints and edge left out
+     */
+    static class Pending implements Comparable<Pending> {
+        long weight;
+        long sequence;
+        Constraint constraint;
+        int edge;
+
+        Pending(long weight, long sequence, Constraint constraint, int edge) {
+            this.weight = weight;
+            this.sequence = sequence;
+            this.constraint = constraint;
+            this.edge = edge;
+        }
+
+        @Override
+        public int compareTo(Pending o) {
+            int c = Long.compare(weight, o.weight);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    static class Result {
+        long weight;
+        int[] parentEdges;
+        int[] from, weights;
+        int nextEdge;
+        long nextWeight;
+
+        Arborescence toArborescence(int numVertices, int source) {
+            int[] parent = new int[numVertices + 1];
+            int[] w = new int[numVertices + 1];
+            for (int v = 0; v <= numVertices; v++) {
+                int e = parentEdges[v];
+                parent[v] = e < 0 ? -1 : from[e];
+                w[v] = e < 0 ? 0 : weights[e];
+            }
+            return new Arborescence(numVertices, source, parent, w, weight);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Leftist heaps over ids 0...capacity - 1, edge ids in the engines that
+ * contract with Tarjan's method. A heap is the id of its root, -1 for an
+ * empty one. An amount added to {@link #lazy} of a root moves every key of
+ * the heap, and is pushed down as nodes are visited.
+ * <p>
+ * Also the union-find with path halving those engines find super-vertices
+ * with, see {@link #find(int[], int)}.
+ *
+ * @author Jun Yu
+ */
+final class LeftistHeaps {
+    int[] left, right, rank;
+    long[] key, lazy;
+
+    LeftistHeaps(int capacity) {
+        left = new int[capacity];
+        right = new int[capacity];
+        rank = new int[capacity];
+        key = new long[capacity];
+        lazy = new long[capacity];
+    }
+
+    int capacity() {
+        return left.length;
+    }
+
+    /**
+     * Make a a heap of its own with the given key
+     */
+    void init(int a, long k) {
+        left[a] = right[a] = -1;
+        rank[a] = 1;
+        key[a] = k;
+        lazy[a] = 0;
+    }
+
+    /**
+     * Add d to every key in heap a, if any
+     */
+    void add(int a, long d) {
+        if (a >= 0) {
+            lazy[a] += d;
+        }
+    }
+
+    /**
+     * Settle the key of a, its children take over the lazy amount
+     */
+    void push(int a) {
+        long d = lazy[a];
+        if (d != 0) {
+            key[a] += d;
+            if (left[a] >= 0) {
+                lazy[left[a]] += d;
+            }
+            if (right[a] >= 0) {
+                lazy[right[a]] += d;
+            }
+            lazy[a] = 0;
+        }
+    }
+
+    /**
+     * @return the heap without its root a
+     */
+    int pop(int a) {
+        push(a);
+        return merge(left[a], right[a]);
+    }
+
+    /**
+     * Meld two leftist heaps, recursion depth is bounded by their right spines
+     */
+    int merge(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        push(a);
+        push(b);
+        if (key[b] < key[a]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        right[a] = merge(right[a], b);
+        int l = left[a];
+        int r = right[a];
+        if (l < 0 || rank[l] < rank[r]) {
+            left[a] = r;
+            right[a] = l;
+        }
+        rank[a] = right[a] < 0 ? 1 : rank[right[a]] + 1;
+        return a;
+    }
+
+    /**
+     * @return root of v in the union-find over parent, with path halving
+     */
+    static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+}
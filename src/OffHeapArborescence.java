@@ -0,0 +1,276 @@
+/**
+ * Minimum arborescence by Tarjan's contraction, as {@link TarjanArborescence},
+ * with every array outside the Java heap.
+ * <p>
+ * The edges are read through {@link EdgeStore} and the tree is written
+ * through {@link VertexStore}, so with {@link OffHeapEdges} and
+ * {@link OffHeapVertexStore} the heap in use does not grow with the graph.
+ * It takes 28 bytes per edge and 52 per vertex besides the edges.
+ *
+ * @author Jun Yu
+ */
+public class OffHeapArborescence {
+    EdgeStore edges;
+    int numVertices;
+    int source;
+
+    // leftist heap over edge ids
+    OffHeapInts left, right, rank;
+    OffHeapLongs key, lazy;
+    OffHeapInts heap;
+
+    // union-find with rollback, no path compression
+    OffHeapInts parent, size;
+    OffHeapInts history;
+    int historyTop;
+
+    // cheapest incoming edge chosen for each vertex or super-vertex
+    OffHeapInts in;
+
+    // contracted cycles, the edges of cycle c are cycleEdges[cycleStart[c]...cycleStart[c + 1]]
+    OffHeapInts cycleStart;
+    int numCycles;
+
+    public OffHeapArborescence(EdgeStore edges, int numVertices, int source) {
+        this.edges = edges;
+        this.numVertices = numVertices;
+        this.source = source;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() {
+        int n = numVertices + 1;
+        int m = edges.numEdges();
+
+        left = new OffHeapInts(m);
+        right = new OffHeapInts(m);
+        rank = new OffHeapInts(m);
+        key = new OffHeapLongs(m);
+        lazy = new OffHeapLongs(m);
+        heap = new OffHeapInts(n);
+        heap.fill(-1);
+        for (int e = 0; e < m; e++) {
+            if (edges.isDeleted(e)) {
+                continue;
+            }
+            left.set(e, -1);
+            right.set(e, -1);
+            rank.set(e, 1);
+            key.set(e, edges.weight(e));
+            int v = edges.to(e);
+            heap.set(v, merge(heap.get(v), e));
+        }
+
+        parent = new OffHeapInts(n);
+        size = new OffHeapInts(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+            size.set(v, 1);
+        }
+        history = new OffHeapInts(n);
+
+        in = new OffHeapInts(n);
+        in.fill(-1);
+        OffHeapInts seen = new OffHeapInts(n);
+        seen.fill(-1);
+        seen.set(source, source);
+
+        // current path of vertices and the edges chosen into them
+        OffHeapInts path = new OffHeapInts(n);
+        OffHeapInts queue = new OffHeapInts(n);
+
+        // contracted cycles: super-vertex, union-find time, range of edges.
+        // A cycle of k vertices leaves k - 1 fewer, so all cycles have fewer than 2n edges
+        OffHeapInts cycleVertex = new OffHeapInts(n);
+        OffHeapInts cycleTime = new OffHeapInts(n);
+        cycleStart = new OffHeapInts(n + 1);
+        OffHeapInts cycleEdges = new OffHeapInts(2 * n);
+        numCycles = 0;
+
+        long sum = 0;
+        for (int s = 1; s < n; s++) {
+            int u = s;
+            int qi = 0;
+            while (seen.get(u) < 0) {
+                int e = heap.get(u);
+                if (e < 0) {
+                    throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+                }
+                push(e);
+                if (find(edges.from(e)) == u) {
+                    // edge inside a super-vertex
+                    heap.set(u, pop(e));
+                    continue;
+                }
+                long w = key.get(e);
+                // every other edge into u gets cheaper by w
+                int rest = pop(e);
+                heap.set(u, rest);
+                if (rest >= 0) {
+                    lazy.set(rest, lazy.get(rest) - w);
+                }
+                queue.set(qi, e);
+                path.set(qi++, u);
+                seen.set(u, s);
+                sum += w;
+                u = find(edges.from(e));
+
+                if (seen.get(u) == s) {
+                    // found cycle, contract
+                    int cycle = -1;
+                    int end = qi;
+                    int time = historyTop;
+                    int w_index;
+                    do {
+                        w_index = path.get(--qi);
+                        cycle = merge(cycle, heap.get(w_index));
+                    } while (join(u, w_index));
+                    u = find(u);
+                    heap.set(u, cycle);
+                    seen.set(u, -1);
+
+                    cycleVertex.set(numCycles, u);
+                    cycleTime.set(numCycles, time);
+                    int start = cycleStart.get(numCycles);
+                    for (int i = qi; i < end; i++) {
+                        cycleEdges.set(start + i - qi, queue.get(i));
+                    }
+                    cycleStart.set(++numCycles, start + end - qi);
+                }
+            }
+            for (int i = 0; i < qi; i++) {
+                int e = queue.get(i);
+                in.set(find(edges.to(e)), e);
+            }
+        }
+
+        // expand cycles, latest first
+        for (int c = numCycles - 1; c >= 0; c--) {
+            rollback(cycleTime.get(c));
+            int inEdge = in.get(cycleVertex.get(c));
+            for (int i = cycleStart.get(c); i < cycleStart.get(c + 1); i++) {
+                int e = cycleEdges.get(i);
+                in.set(find(edges.to(e)), e);
+            }
+            in.set(find(edges.to(inEdge)), inEdge);
+        }
+        in.set(source, -1);
+
+        return sum;
+    }
+
+    /**
+     * Write pred / predEdge of every vertex, source is its own pred
+     */
+    public void writeTree(VertexStore vertices) {
+        for (int v = 1; v <= numVertices; v++) {
+            int e = in.get(v);
+            vertices.setPredEdge(v, e);
+            vertices.setPred(v, e < 0 ? v : edges.from(e));
+        }
+    }
+
+    /**
+     * Add the contracted cycles to stats, a super-vertex takes the id of a member
+     */
+    void report(SolverStats stats) {
+        for (int c = 0; c < numCycles; c++) {
+            stats.cycle(cycleStart.get(c + 1) - cycleStart.get(c));
+        }
+    }
+
+    /**
+     * @return off-heap bytes of the working arrays
+     */
+    public long bytesUsed() {
+        long n = numVertices + 1;
+        return left.bytes() + right.bytes() + rank.bytes() + key.bytes() + lazy.bytes() + 13 * 4 * n;
+    }
+
+    private void push(int a) {
+        long d = lazy.get(a);
+        if (d != 0) {
+            key.set(a, key.get(a) + d);
+            int l = left.get(a);
+            if (l >= 0) {
+                lazy.set(l, lazy.get(l) + d);
+            }
+            int r = right.get(a);
+            if (r >= 0) {
+                lazy.set(r, lazy.get(r) + d);
+            }
+            lazy.set(a, 0);
+        }
+    }
+
+    private int pop(int a) {
+        push(a);
+        return merge(left.get(a), right.get(a));
+    }
+
+    /**
+     * Meld two leftist heaps, recursion depth is bounded by their right spines
+     */
+    private int merge(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        push(a);
+        push(b);
+        if (key.get(b) < key.get(a)) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        right.set(a, merge(right.get(a), b));
+        int l = left.get(a);
+        int r = right.get(a);
+        if (l < 0 || rank.get(l) < rank.get(r)) {
+            left.set(a, r);
+            right.set(a, l);
+        }
+        int rr = right.get(a);
+        rank.set(a, rr < 0 ? 1 : rank.get(rr) + 1);
+        return a;
+    }
+
+    private int find(int v) {
+        int p;
+        while ((p = parent.get(v)) != v) {
+            v = p;
+        }
+        return v;
+    }
+
+    private boolean join(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            return false;
+        }
+        if (size.get(a) < size.get(b)) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        history.set(historyTop++, b);
+        parent.set(b, a);
+        size.set(a, size.get(a) + size.get(b));
+        return true;
+    }
+
+    private void rollback(int time) {
+        while (historyTop > time) {
+            int b = history.get(--historyTop);
+            int a = parent.get(b);
+            size.set(a, size.get(a) - size.get(b));
+            parent.set(b, b);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Edge columns outside the Java heap. A binary graph is mapped as is, its
+ * columns are paged in by the operating system; a text graph is parsed
+ * into direct buffers.
+ *
+ * @author Jun Yu
+ */
+public class OffHeapEdges implements EdgeStore {
+    int numVertices;
+    int source;
+    int numEdges;
+
+    OffHeapInts from;
+    OffHeapInts to;
+    OffHeapInts weight;
+
+    /**
+     * @param numVertices number of vertices
+     * @param source      index
+     * @param capacity    number of edges that will be added
+     */
+    public OffHeapEdges(int numVertices, int source, int capacity) {
+        this(numVertices, source, new OffHeapInts(capacity), new OffHeapInts(capacity), new OffHeapInts(capacity));
+    }
+
+    private OffHeapEdges(int numVertices, int source, OffHeapInts from, OffHeapInts to, OffHeapInts weight) {
+        this.numVertices = numVertices;
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+    }
+
+    /**
+     * @return edge id
+     */
+    public int addEdge(int src, int dst, int w) {
+        if (numEdges == from.length) {
+            throw new IllegalStateException("more than " + from.length + " edges");
+        }
+        from.set(numEdges, src);
+        to.set(numEdges, dst);
+        weight.set(numEdges, w);
+        return numEdges++;
+    }
+
+    /**
+     * Map the three columns of a file in the format of {@link BinaryGraphFormat}
+     *
+     * @param path binary graph
+     * @throws IOException if the file is not in this format
+     */
+    public static OffHeapEdges map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < BinaryGraphFormat.HEADER_BYTES) {
+                throw new IOException(path + " is not a binary graph");
+            }
+            ByteBuffer header = ByteBuffer.allocate(BinaryGraphFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != BinaryGraphFormat.MAGIC) {
+                throw new IOException(path + " is not a binary graph");
+            }
+            int version = header.getInt();
+            if (version != BinaryGraphFormat.VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            int numVertices = header.getInt();
+            int source = header.getInt();
+            long numEdges = header.getLong();
+            if (numEdges > Integer.MAX_VALUE - 8) {
+                throw new IOException("too many edges for one graph: " + numEdges);
+            }
+            if (channel.size() != BinaryGraphFormat.HEADER_BYTES + numEdges * 12) {
+                throw new IOException("size of " + path + " does not match " + numEdges + " edges");
+            }
+
+            // a mapping stays valid after its channel is closed
+            int m = (int) numEdges;
+            long start = BinaryGraphFormat.HEADER_BYTES;
+            OffHeapEdges edges = new OffHeapEdges(numVertices, source, OffHeapInts.map(channel, start, m),
+                    OffHeapInts.map(channel, start + 4L * m, m), OffHeapInts.map(channel, start + 8L * m, m));
+            edges.numEdges = m;
+            return edges;
+        }
+    }
+
+    /**
+     * Read graph in text format, "n m s" then "u v w" per line
+     *
+     * @param reader text graph
+     * @return graph, null if input is empty
+     * @throws IOException if the edge count does not match the header
+     */
+    public static OffHeapEdges readText(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null || line.equals("")) {
+            return null;
+        }
+        String[] firstParams = line.trim().split("[\\s\\t]+");
+        int numVertices = Integer.parseInt(firstParams[0]);
+        int numEdges = Integer.parseInt(firstParams[1]);
+        int source = Integer.parseInt(firstParams[2]);
+
+        OffHeapEdges edges = new OffHeapEdges(numVertices, source, numEdges);
+        int count = 0;
+        while ((line = reader.readLine()) != null && !line.equals("")) {
+            count++;
+            if (count > numEdges) {
+                break;
+            }
+            String[] params = line.trim().split("[\\s\\t]+");
+            edges.addEdge(Integer.parseInt(params[0]), Integer.parseInt(params[1]), Integer.parseInt(params[2]));
+        }
+        if (count != numEdges) {
+            throw new IOException("The claimed number of edge " + numEdges + " not equals to actual number " + count);
+        }
+        return edges;
+    }
+
+    @Override
+    public int numEdges() {
+        return numEdges;
+    }
+
+    @Override
+    public int from(int e) {
+        return from.get(e);
+    }
+
+    @Override
+    public int to(int e) {
+        return to.get(e);
+    }
+
+    @Override
+    public int weight(int e) {
+        return weight.get(e);
+    }
+
+    @Override
+    public boolean isDeleted(int e) {
+        return false;
+    }
+
+    public long bytesUsed() {
+        return from.bytes() + to.bytes() + weight.bytes();
+    }
+}
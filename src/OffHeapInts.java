@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Array of ints outside the Java heap, in direct or mapped buffers of at
+ * most 2^28 ints each, so a column can be larger than 2 GB and the
+ * collector never has to scan or copy it.
+ * <p>
+ * Direct buffers count against -XX:MaxDirectMemorySize, which defaults to
+ * the maximum heap size. Raise it along with a small -Xmx.
+ *
+ * @author Jun Yu
+ */
+public final class OffHeapInts {
+    // ints per buffer, 1 GB
+    static final int SHIFT = 28;
+    static final int MASK = (1 << SHIFT) - 1;
+
+    final IntBuffer[] chunks;
+    final int length;
+
+    /**
+     * @param length number of ints, all 0
+     */
+    public OffHeapInts(int length) {
+        this(new IntBuffer[chunkCount(length)], length);
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(4 * chunkSize(i)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+    }
+
+    private OffHeapInts(IntBuffer[] chunks, int length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    private static int chunkCount(int length) {
+        return Math.max(1, (int) (((long) length + MASK) >>> SHIFT));
+    }
+
+    private int chunkSize(int i) {
+        return (int) Math.min(1L << SHIFT, length - ((long) i << SHIFT));
+    }
+
+    /**
+     * Map a little-endian int column of a file, read only
+     *
+     * @param channel file
+     * @param offset  position of the first int
+     * @param length  number of ints
+     */
+    public static OffHeapInts map(FileChannel channel, long offset, int length) throws IOException {
+        OffHeapInts ints = new OffHeapInts(new IntBuffer[chunkCount(length)], length);
+        for (int i = 0; i < ints.chunks.length; i++) {
+            ints.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + ((long) i << SHIFT) * 4,
+                    4L * ints.chunkSize(i)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return ints;
+    }
+
+    public int get(int i) {
+        return chunks[i >>> SHIFT].get(i & MASK);
+    }
+
+    public void set(int i, int value) {
+        chunks[i >>> SHIFT].put(i & MASK, value);
+    }
+
+    public void fill(int value) {
+        for (int i = 0; i < length; i++) {
+            set(i, value);
+        }
+    }
+
+    public long bytes() {
+        return 4L * length;
+    }
+}
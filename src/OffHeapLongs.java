@@ -0,0 +1,42 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Array of longs outside the Java heap, in direct buffers of at most 2^27
+ * longs each, see {@link OffHeapInts}
+ *
+ * @author Jun Yu
+ */
+public final class OffHeapLongs {
+    // longs per buffer, 1 GB
+    static final int SHIFT = 27;
+    static final int MASK = (1 << SHIFT) - 1;
+
+    final LongBuffer[] chunks;
+    final int length;
+
+    /**
+     * @param length number of longs, all 0
+     */
+    public OffHeapLongs(int length) {
+        this.length = length;
+        chunks = new LongBuffer[Math.max(1, (int) (((long) length + MASK) >>> SHIFT))];
+        for (int i = 0; i < chunks.length; i++) {
+            int size = (int) Math.min(1L << SHIFT, length - ((long) i << SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(8 * size).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    public long get(int i) {
+        return chunks[i >>> SHIFT].get(i & MASK);
+    }
+
+    public void set(int i, long value) {
+        chunks[i >>> SHIFT].put(i & MASK, value);
+    }
+
+    public long bytes() {
+        return 8L * length;
+    }
+}
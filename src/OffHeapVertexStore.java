@@ -0,0 +1,44 @@
+/**
+ * Tree of a solve in two off-heap columns, 8 bytes per vertex and no
+ * object per vertex. Starts out like a new {@link Vertex}.
+ *
+ * @author Jun Yu
+ */
+public class OffHeapVertexStore implements VertexStore {
+    OffHeapInts pred;
+    OffHeapInts predEdge;
+
+    /**
+     * @param size number of indices, including 0
+     */
+    public OffHeapVertexStore(int size) {
+        pred = new OffHeapInts(size);
+        predEdge = new OffHeapInts(size);
+        pred.fill(-1);
+        predEdge.fill(-1);
+    }
+
+    @Override
+    public int pred(int v) {
+        return pred.get(v);
+    }
+
+    @Override
+    public void setPred(int v, int u) {
+        pred.set(v, u);
+    }
+
+    @Override
+    public int predEdge(int v) {
+        return predEdge.get(v);
+    }
+
+    @Override
+    public void setPredEdge(int v, int e) {
+        predEdge.set(v, e);
+    }
+
+    public long bytesUsed() {
+        return pred.bytes() + predEdge.bytes();
+    }
+}
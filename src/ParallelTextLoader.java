@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loader of the text format, "n m s" then "u v w" per line, on several threads.
+ * The edges end at the end of the file or at the first empty line, as in
+ * {@link DirectedMST#readText}.
+ * <p>
+ * The body of the file is cut into byte ranges that start and end on line
+ * boundaries. Every range is mapped and scanned by its own task with a plain
+ * ASCII integer scanner, and the per-task columns are concatenated in file
+ * order, so edge ids are the same as with {@link DirectedMST#readText}.
+ *
+ * @author Jun Yu
+ */
+public class ParallelTextLoader {
+    // a range is mapped as one buffer, so it has to stay below 2GB
+    static final long MAX_RANGE = 1L << 30;
+
+    int threads;
+
+    public ParallelTextLoader(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param path text graph
+     * @return graph ready to solve, null if the file is empty
+     * @throws IOException if a line is malformed, a vertex is out of range or the edge count is not the header's
+     */
+    public DirectedMST load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return null;
+            }
+
+            // header line
+            long bodyStart = nextLine(channel, 0, size);
+            MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, bodyStart);
+            Scanner header = new Scanner(first, 0);
+            int numVertices = header.nextInt();
+            long numEdges = header.next();
+            int source = header.nextInt();
+            if (numVertices < 1 || source < 1 || source > numVertices) {
+                throw new IOException("source " + source + " is not a vertex of 1..." + numVertices);
+            }
+
+            // cut the body into line aligned ranges, a few per thread to even out the load
+            long bodySize = size - bodyStart;
+            long target = Math.max(1 << 16, Math.min(MAX_RANGE, bodySize / (threads * 4L) + 1));
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(bodyStart);
+            long at = bodyStart;
+            while (at < size) {
+                at = at + target >= size ? size : nextLine(channel, at + target, size);
+                if (at - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE) {
+                    throw new IOException("line too long near byte " + at);
+                }
+                bounds.add(at);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Chunk>> futures = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.size(); i++) {
+                    long start = bounds.get(i);
+                    long end = bounds.get(i + 1);
+                    futures.add(executor.submit(() -> parse(channel, start, end, numVertices)));
+                }
+
+                // ranges after the one with the first empty line are not part of the graph
+                List<Chunk> chunks = new ArrayList<>();
+                long count = 0;
+                for (Future<Chunk> future : futures) {
+                    Chunk chunk = future.get();
+                    chunks.add(chunk);
+                    count += chunk.size;
+                    if (chunk.ended) {
+                        break;
+                    }
+                }
+
+                if (count != numEdges) {
+                    throw new IOException("The claimed number of edge " + numEdges
+                            + " not equals to actual number " + count);
+                }
+
+                int m = (int) count;
+                int[] from = new int[m];
+                int[] to = new int[m];
+                int[] weight = new int[m];
+                int offset = 0;
+                for (Chunk chunk : chunks) {
+                    System.arraycopy(chunk.from, 0, from, offset, chunk.size);
+                    System.arraycopy(chunk.to, 0, to, offset, chunk.size);
+                    System.arraycopy(chunk.weight, 0, weight, offset, chunk.size);
+                    offset += chunk.size;
+                }
+
+                CsrGraph graph = new CsrGraph(numVertices + 1, from, to, weight, m);
+                return new DirectedMST(numVertices, source, graph);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while loading " + path, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return position after the first newline at or after position, or size
+     */
+    static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    private static Chunk parse(FileChannel channel, long start, long end, int numVertices) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Scanner scanner = new Scanner(buffer, start);
+        Chunk chunk = new Chunk((int) ((end - start) / 12) + 16);
+        while (scanner.nextLine()) {
+            int src = scanner.nextVertex(numVertices);
+            int dst = scanner.nextVertex(numVertices);
+            int w = scanner.nextInt();
+            scanner.endOfLine();
+            chunk.add(src, dst, w);
+        }
+        chunk.ended = scanner.empty;
+        return chunk;
+    }
+
+    /**
+     * Edges parsed from one range, as columns
+     */
+    static class Chunk {
+        int[] from, to, weight;
+        int size;
+        // whether the range has an empty line, the edges stop there
+        boolean ended;
+
+        Chunk(int capacity) {
+            from = new int[capacity];
+            to = new int[capacity];
+            weight = new int[capacity];
+        }
+
+        void add(int src, int dst, int w) {
+            if (size == from.length) {
+                int capacity = size + (size >> 1) + 16;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = src;
+            to[size] = dst;
+            weight[size] = w;
+            size++;
+        }
+    }
+
+    /**
+     * ASCII integer scanner over a buffer, spaces and tabs separate numbers
+     */
+    static class Scanner {
+        ByteBuffer buffer;
+        // offset of the buffer in the file, for error messages
+        long base;
+        int position;
+        int limit;
+        // whether nextLine stopped at an empty line
+        boolean empty;
+
+        Scanner(ByteBuffer buffer, long base) {
+            this.buffer = buffer;
+            this.base = base;
+            this.limit = buffer.limit();
+        }
+
+        /**
+         * Move to the first number of the line at position
+         *
+         * @return false at the end of the buffer, or at an empty line, which ends the edges
+         */
+        boolean nextLine() {
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == '\n') {
+                    empty = true;
+                    return false;
+                }
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    return true;
+                }
+                position++;
+            }
+            return false;
+        }
+
+        /**
+         * @return vertex id in 1...numVertices
+         */
+        int nextVertex(int numVertices) throws IOException {
+            int v = nextInt();
+            if (v < 1 || v > numVertices) {
+                throw new IOException("vertex " + v + " is not in 1..." + numVertices + " near byte " + (base + position));
+            }
+            return v;
+        }
+
+        int nextInt() throws IOException {
+            long value = next();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new IOException("number out of range near byte " + (base + position));
+            }
+            return (int) value;
+        }
+
+        long next() throws IOException {
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b != ' ' && b != '\t') {
+                    break;
+                }
+                position++;
+            }
+            boolean negative = false;
+            if (position < limit && buffer.get(position) == '-') {
+                negative = true;
+                position++;
+            }
+            int begin = position;
+            long value = 0;
+            while (position < limit) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                position++;
+            }
+            if (position == begin || position - begin > 18) {
+                throw new IOException("malformed edge near byte " + (base + position));
+            }
+            return negative ? -value : value;
+        }
+
+        void endOfLine() throws IOException {
+            while (position < limit) {
+                byte b = buffer.get(position++);
+                if (b == '\n') {
+                    return;
+                }
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    throw new IOException("more than 3 numbers on the line near byte " + (base + position));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Solved trees by the content of their graph, so a graph that comes again,
+ * or the same graph with another source, is not solved again.
+ * <p>
+ * The key is a 128-bit hash of the edges in order, streamed over the
+ * columns in one pass, together with the number of vertices and the
+ * source. A small LRU map in memory sits in front of a directory with one
+ * file per tree, in the binary format of {@link ArborescenceWriter}, named
+ * by the key. Files are written to a temporary name and moved into place,
+ * so readers never see half a tree. Safe to share between threads.
+ *
+ * @author Jun Yu
+ */
+public class ResultCache {
+    static final long PRIME1 = 0x9E3779B185EBCA87L;
+    static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    static final long PRIME3 = 0x165667B19E3779F9L;
+
+    int capacity;
+    // null for memory only
+    Path directory;
+    LinkedHashMap<Key, Arborescence> memory;
+
+    long memoryHits;
+    long diskHits;
+    long misses;
+
+    /**
+     * @param capacity  trees kept in memory
+     * @param directory where trees are kept on disk, created if missing, null for memory only
+     */
+    public ResultCache(int capacity, Path directory) throws IOException {
+        this.capacity = Math.max(0, capacity);
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        // access order, so the eldest entry is the least recently used
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Arborescence> eldest) {
+                return size() > ResultCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Key of a loaded graph, deleted edges left out
+     */
+    public static Key key(CsrGraph graph, int numVertices, int source) {
+        return key(graph, graph.from, graph.to, graph.weight, graph.numEdges, numVertices, source);
+    }
+
+    /**
+     * Key of a graph given as edge columns
+     */
+    public static Key key(int[] from, int[] to, int[] weight, int numEdges, int numVertices, int source) {
+        return key(null, from, to, weight, numEdges, numVertices, source);
+    }
+
+    private static Key key(CsrGraph graph, int[] from, int[] to, int[] weight, int numEdges, int numVertices,
+                           int source) {
+        // two lanes with different seeds and multipliers, one round per edge each
+        long a = PRIME3;
+        long b = PRIME1 ^ numVertices;
+        int m = 0;
+        for (int e = 0; e < numEdges; e++) {
+            if (graph != null && graph.isDeleted(e)) {
+                continue;
+            }
+            long x = ((long) from[e] << 32) | (to[e] & 0xffffffffL);
+            long y = weight[e];
+            a = Long.rotateLeft(a + x * PRIME2, 31) * PRIME1;
+            a = Long.rotateLeft(a + y * PRIME2, 31) * PRIME1;
+            b = Long.rotateLeft(b + x * PRIME3, 29) * PRIME2;
+            b = Long.rotateLeft(b + y * PRIME3, 29) * PRIME2;
+            m++;
+        }
+        return new Key(mix(a ^ m), mix(b + a), numVertices, m, source);
+    }
+
+    /**
+     * Final avalanche, every input bit reaches every output bit
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return tree of key from memory or disk, null if neither has it
+     */
+    public Arborescence get(Key key) throws IOException {
+        synchronized (this) {
+            Arborescence tree = memory.get(key);
+            if (tree != null) {
+                memoryHits++;
+                return tree;
+            }
+        }
+        Arborescence tree = null;
+        if (directory != null) {
+            try {
+                tree = Arborescence.load(file(key));
+            } catch (NoSuchFileException e) {
+                // not solved yet
+            }
+            if (tree != null && (tree.numVertices != key.numVertices || tree.source != key.source)) {
+                tree = null;
+            }
+        }
+        synchronized (this) {
+            if (tree == null) {
+                misses++;
+            } else {
+                diskHits++;
+                memory.put(key, tree);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Keep tree in memory and on disk
+     */
+    public void put(Key key, Arborescence tree) throws IOException {
+        synchronized (this) {
+            memory.put(key, tree);
+        }
+        if (directory == null) {
+            return;
+        }
+        Path target = file(key);
+        if (Files.exists(target)) {
+            return;
+        }
+        Path temporary = Files.createTempFile(directory, key.name(), ".tmp");
+        try {
+            ArborescenceWriter.write(tree, temporary, true);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path file(Key key) {
+        return directory.resolve(key.name() + ".dmsa");
+    }
+
+    /**
+     * One line with the hit counts
+     */
+    public synchronized String report() {
+        return "cache hits " + memoryHits + " memory, " + diskHits + " disk, misses " + misses;
+    }
+
+    /**
+     * Hash of the edges with the sizes and the source
+     */
+    public static final class Key {
+        final long high, low;
+        final int numVertices;
+        final int numEdges;
+        final int source;
+
+        Key(long high, long low, int numVertices, int numEdges, int source) {
+            this.high = high;
+            this.low = low;
+            this.numVertices = numVertices;
+            this.numEdges = numEdges;
+            this.source = source;
+        }
+
+        /**
+         * @return file name, the hash in hex and the sizes
+         */
+        String name() {
+            return String.format("%016x%016x-%d-%d-%d", high, low, numVertices, numEdges, source);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return high == k.high && low == k.low && numVertices == k.numVertices && numEdges == k.numEdges
+                    && source == k.source;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32)) * 31 + source;
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+/**
+ * Long-lived solver for many graphs in a row, without {@link DirectedMST},
+ * vertex objects or an edge index. It runs {@link TarjanArborescence} on
+ * the edge columns as given and only reads them.
+ * <p>
+ * The engine and result arrays stay between solves and only grow, so once
+ * the largest graph has been seen a solve allocates nothing. Each solve
+ * resets in O(n + m) of its own graph, not of the largest one. Not thread
+ * safe, keep one per thread.
+ *
+ * @author Jun Yu
+ */
+public class ReusableSolver {
+    TarjanArborescence engine = new TarjanArborescence();
+
+    int numVertices;
+    int source;
+    long weight;
+
+    // tail and weight of the tree edge into every vertex, -1 / 0 for the source
+    int[] parent = new int[0];
+    int[] parentWeight = new int[0];
+
+    /**
+     * @param numVertices vertices 1...numVertices
+     * @param source      index
+     * @param from        tails
+     * @param to          heads
+     * @param weight      weights
+     * @param numEdges    edges in use, the columns may be longer
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException    if some vertex is not reachable from source
+     * @throws IllegalArgumentException if source or an endpoint is not in 1...numVertices
+     */
+    public long solve(int numVertices, int source, int[] from, int[] to, int[] weight, int numEdges) {
+        this.numVertices = numVertices;
+        this.source = source;
+        this.weight = engine.solve(numVertices, source, from, to, weight, numEdges);
+
+        int n = numVertices + 1;
+        if (parent.length < n) {
+            int capacity = Math.max(n, parent.length + (parent.length >> 1));
+            parent = new int[capacity];
+            parentWeight = new int[capacity];
+        }
+        int[] in = engine.in;
+        parent[0] = -1;
+        for (int v = 1; v < n; v++) {
+            int e = in[v];
+            if (e < 0) {
+                parent[v] = -1;
+                parentWeight[v] = 0;
+            } else {
+                parent[v] = from[e];
+                parentWeight[v] = weight[e];
+            }
+        }
+        return this.weight;
+    }
+
+    /**
+     * Tails by head of the last solve, -1 for the source.
+     * Reused by the next solve and may be longer than the graph.
+     */
+    public int[] parents() {
+        return parent;
+    }
+
+    /**
+     * Weights by head of the last solve, reused like {@link #parents()}
+     */
+    public int[] weights() {
+        return parentWeight;
+    }
+
+    /**
+     * Edge ids by head of the last solve, -1 for the source, reused like {@link #parents()}
+     */
+    public int[] parentEdges() {
+        return engine.in;
+    }
+
+    /**
+     * @return copy of the last tree that outlives the next solve
+     */
+    public Arborescence result() {
+        int n = numVertices + 1;
+        return new Arborescence(numVertices, source, Arrays.copyOf(parent, n), Arrays.copyOf(parentWeight, n), weight);
+    }
+}
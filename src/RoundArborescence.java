@@ -0,0 +1,450 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Minimum arborescence by Chu-Liu/Edmonds rounds.
+ * <p>
+ * Each round every vertex that has no pick yet picks its cheapest incoming
+ * edge, all cycles of the picks are found at once and every cycle becomes a
+ * new vertex. The incoming edges of a new vertex are the edges into its
+ * members from outside, with the weights reduced by the pick of the member
+ * they enter. Picking and building new vertices are independent per vertex
+ * and run on the common fork-join pool, so disjoint cycles are contracted in
+ * parallel.
+ * <p>
+ * A vertex outside every cycle keeps its pick, its reduced weight is 0 and
+ * nothing cheaper can appear, so its edges are never copied; tails are
+ * mapped to the vertex they were contracted into when they are read. Only the
+ * new vertices pick in the next round, and a new cycle has to go through one
+ * of them, so the first round covers the whole graph and later rounds only
+ * the contracted part. The number of rounds is the nesting depth of the
+ * cycles.
+ * <p>
+ * New vertices get fresh ids above the original ones and the contraction
+ * forest is dismantled from the top at the end, as in
+ * {@link FibonacciArborescence}.
+ *
+ * @author Jun Yu
+ */
+public class RoundArborescence {
+    // below this many vertices or edges a loop runs on the calling thread
+    static final int PARALLEL_MIN = 1 << 13;
+
+    CsrGraph graph;
+    int numVertices;
+    int source;
+
+    // incoming edges of each vertex or super-vertex, [segStart, segEnd) of the arena:
+    // tail as it was when copied, reduced weight, original edge id
+    int[] segStart;
+    int[] segEnd;
+    int[] tail;
+    long[] reduced;
+    int[] original;
+    int arenaTop;
+
+    // cheapest incoming edge in the arena and its reduced weight
+    int[] pick;
+    long[] pickWeight;
+
+    // vertices that pick in this round
+    int[] fresh;
+    int numFresh;
+
+    // stamp of the walk that reached a vertex, walks of a round are above the round's base
+    int[] seen;
+    int stamp;
+
+    // contraction forest, the members of super-vertex x are members[memberStart[x - n]...]
+    int[] forestParent;
+    int[] members;
+    int[] memberStart;
+
+    // cheapest incoming edge chosen for each vertex or super-vertex
+    int[] in;
+
+    // ids in use, and per id the sum of picks from it up to its top with its depth,
+    // filled by buildCertificate
+    int numNodes;
+    long[] potential;
+    int[] depth;
+
+    // per thread, the super-vertex that last copied an edge from a tail and where it went
+    ThreadLocal<int[][]> lastCopy;
+
+    int rounds;
+
+    public RoundArborescence(CsrGraph graph, int numVertices, int source) {
+        this.graph = graph;
+        this.numVertices = numVertices;
+        this.source = source;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() {
+        int n = numVertices + 1;
+        int nodes = 2 * n;
+        int m = graph.numEdges;
+
+        segStart = new int[nodes];
+        segEnd = new int[nodes];
+        pick = new int[nodes];
+        pickWeight = new long[nodes];
+        fresh = new int[n];
+        seen = new int[nodes];
+        forestParent = new int[nodes];
+        Arrays.fill(forestParent, -1);
+        members = new int[nodes];
+        memberStart = new int[n + 1];
+        in = new int[nodes];
+        Arrays.fill(in, -1);
+        lastCopy = ThreadLocal.withInitial(() -> new int[][]{new int[nodes], new int[nodes]});
+
+        // edges grouped by head, without self loops, edges into source and deleted edges
+        for (int e = 0; e < m; e++) {
+            int v = graph.to[e];
+            if (v != source && graph.from[e] != v && !graph.isDeleted(e)) {
+                segEnd[v]++;
+            }
+        }
+        for (int v = 1; v < n; v++) {
+            segStart[v] = segEnd[v - 1];
+            segEnd[v] += segStart[v];
+        }
+        arenaTop = segEnd[n - 1];
+        int capacity = Math.max(arenaTop, 16);
+        tail = new int[capacity];
+        reduced = new long[capacity];
+        original = new int[capacity];
+        int[] fill = Arrays.copyOf(segStart, n);
+        for (int e = 0; e < m; e++) {
+            int v = graph.to[e];
+            if (v != source && graph.from[e] != v && !graph.isDeleted(e)) {
+                int i = fill[v]++;
+                tail[i] = graph.from[e];
+                reduced[i] = graph.weight[e];
+                original[i] = e;
+            }
+        }
+
+        // first round, every vertex picks
+        for (int v = 1; v < n; v++) {
+            if (v != source) {
+                fresh[numFresh++] = v;
+            }
+        }
+        forEach(numFresh, i -> pickCheapest(fresh[i]));
+
+        int next = n;
+        int numMembers = 0;
+        long sum = 0;
+
+        while (true) {
+            rounds++;
+            for (int i = 0; i < numFresh; i++) {
+                int u = fresh[i];
+                if (pick[u] < 0) {
+                    throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+                }
+                in[u] = original[pick[u]];
+                sum += pickWeight[u];
+            }
+
+            // a new cycle goes through a vertex that just picked, walk from those
+            int firstNew = next;
+            int base = stamp;
+            for (int i = 0; i < numFresh; i++) {
+                int walk = ++stamp;
+                int u = fresh[i];
+                while (u != source && seen[u] <= base) {
+                    seen[u] = walk;
+                    u = top(tail[pick[u]]);
+                }
+                if (u != source && seen[u] == walk) {
+                    // found cycle, contract into new node x
+                    int x = next++;
+                    int w_index = u;
+                    do {
+                        members[numMembers++] = w_index;
+                        w_index = top(tail[pick[w_index]]);
+                    } while (w_index != u);
+                    memberStart[x - n + 1] = numMembers;
+                }
+            }
+            if (next == firstNew) {
+                break;
+            }
+
+            // room for the edges of the new vertices, laid out in id order
+            int needed = 0;
+            for (int i = memberStart[firstNew - n]; i < numMembers; i++) {
+                int u = members[i];
+                needed += segEnd[u] - segStart[u];
+            }
+            reserve(needed, firstNew);
+            numFresh = 0;
+            for (int x = firstNew; x < next; x++) {
+                segStart[x] = arenaTop;
+                for (int i = memberStart[x - n]; i < memberStart[x - n + 1]; i++) {
+                    int u = members[i];
+                    forestParent[u] = x;
+                    arenaTop += segEnd[u] - segStart[u];
+                }
+                segEnd[x] = arenaTop;
+                fresh[numFresh++] = x;
+            }
+
+            // the cycles are disjoint, every new vertex is built on its own
+            if (needed < PARALLEL_MIN) {
+                for (int i = 0; i < numFresh; i++) {
+                    contract(fresh[i], n);
+                }
+            } else {
+                IntStream.range(0, numFresh).parallel().forEach(i -> contract(fresh[i], n));
+            }
+        }
+
+        numNodes = next;
+        in = ContractionForest.parentEdges(n, next, source, forestParent, members, memberStart, in, graph.to);
+        return sum;
+    }
+
+    /**
+     * @return edge id into every vertex in the arborescence, -1 for source
+     */
+    public int[] parentEdges() {
+        return in;
+    }
+
+    /**
+     * Add the contracted cycles and the super-vertices to stats
+     */
+    void report(SolverStats stats) {
+        ContractionForest.report(stats, numVertices + 1, numNodes, memberStart);
+    }
+
+    /**
+     * The picks are a dual solution: a pick is the amount taken off every
+     * edge into its vertex or super-vertex, and the tree edges are exactly
+     * the edges left at 0. As long as no edge (u, v) weighs less than the
+     * picks of the sets it enters, those containing v but not u, the tree
+     * stays optimal. Sum the picks along the contraction forest so that this
+     * bound is one walk to the common ancestor.
+     */
+    public void buildCertificate() {
+        potential = new long[numNodes];
+        depth = new int[numNodes];
+        // a parent always has a larger id than its members
+        for (int u = numNodes - 1; u > 0; u--) {
+            int p = forestParent[u];
+            long own = u == source ? 0 : pickWeight[u];
+            potential[u] = p < 0 ? own : own + potential[p];
+            depth[u] = p < 0 ? 0 : depth[p] + 1;
+        }
+    }
+
+    /**
+     * @return the picks as a dual that {@link DualCertificate#verify} proves the tree optimal with
+     */
+    public DualCertificate dual() {
+        long[] value = Arrays.copyOf(pickWeight, numNodes);
+        value[0] = 0;
+        value[source] = 0;
+        return new DualCertificate(numVertices, source, Arrays.copyOf(forestParent, numNodes), value);
+    }
+
+    /**
+     * @return least weight of edge (u, v) that keeps the tree optimal
+     */
+    public long reduction(int u, int v) {
+        if (u == v || v == source) {
+            return Long.MIN_VALUE;
+        }
+        int a = u;
+        int b = v;
+        while (depth[a] > depth[b]) {
+            a = forestParent[a];
+        }
+        while (depth[b] > depth[a]) {
+            b = forestParent[b];
+        }
+        while (a != b && a >= 0) {
+            a = forestParent[a];
+            b = forestParent[b];
+        }
+        return a < 0 ? potential[v] : potential[v] - potential[a];
+    }
+
+    /**
+     * Every arborescence has one edge into v, so the weights into v can
+     * move together without changing which tree is best
+     */
+    public void shiftVertex(int v, long delta) {
+        pickWeight[v] += delta;
+        potential[v] += delta;
+    }
+
+    public boolean isTreeEdge(int e) {
+        return in[graph.to[e]] == e;
+    }
+
+    /**
+     * Let v, a vertex in no contracted cycle, pick its cheapest incoming
+     * edge again after its edges changed. The only set that holds v is v
+     * itself and its pick is all of its dual, so the tree stays optimal
+     * unless the new edge closes a cycle through v; that is checked by
+     * walking up the tree from the tail. Builds the in view of the graph
+     * the first time.
+     *
+     * @return the tree edge now into v, -1 if v is in a cycle, has no edge left or every cheapest one closes a cycle
+     */
+    public int repick(int v) {
+        if (v == source || forestParent[v] >= 0) {
+            return -1;
+        }
+        if (!graph.indexed) {
+            graph.buildIndex();
+        }
+        long min = Long.MAX_VALUE;
+        for (int p = graph.inStart[v]; p < graph.inEnd[v]; p++) {
+            int e = graph.inEdges[p];
+            if (graph.from[e] != v && graph.weight[e] < min) {
+                min = graph.weight[e];
+            }
+        }
+        for (int p = graph.inStart[v]; p < graph.inEnd[v]; p++) {
+            int e = graph.inEdges[p];
+            if (graph.from[e] != v && graph.weight[e] == min && !below(graph.from[e], v)) {
+                in[v] = e;
+                pickWeight[v] = min;
+                potential[v] = min;
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return whether u is v or hangs below v in the tree
+     */
+    private boolean below(int u, int v) {
+        while (u != source) {
+            if (u == v) {
+                return true;
+            }
+            u = graph.from[in[u]];
+        }
+        return false;
+    }
+
+    /**
+     * Copy the edges into the members of x from outside, reduced by the
+     * pick of the member, then let x pick. Of the edges from one tail only
+     * the cheapest is kept, so x has at most one edge per vertex.
+     */
+    private void contract(int x, int n) {
+        int[][] scratch = lastCopy.get();
+        int[] owner = scratch[0];
+        int[] slot = scratch[1];
+        int o = segStart[x];
+        for (int i = memberStart[x - n]; i < memberStart[x - n + 1]; i++) {
+            int u = members[i];
+            long w = pickWeight[u];
+            for (int j = segStart[u]; j < segEnd[u]; j++) {
+                int t = top(tail[j]);
+                if (t == x) {
+                    continue;
+                }
+                long r = reduced[j] - w;
+                if (owner[t] == x) {
+                    int k = slot[t];
+                    if (r < reduced[k]) {
+                        reduced[k] = r;
+                        original[k] = original[j];
+                    }
+                    continue;
+                }
+                owner[t] = x;
+                slot[t] = o;
+                tail[o] = t;
+                reduced[o] = r;
+                original[o] = original[j];
+                o++;
+            }
+        }
+        segEnd[x] = o;
+        pickCheapest(x);
+    }
+
+    private void pickCheapest(int u) {
+        long min = Long.MAX_VALUE;
+        int arg = -1;
+        for (int i = segStart[u]; i < segEnd[u]; i++) {
+            if (reduced[i] < min) {
+                min = reduced[i];
+                arg = i;
+            }
+        }
+        pick[u] = arg;
+        pickWeight[u] = min;
+    }
+
+    /**
+     * Make room for needed more edges at the top of the arena. Segments of
+     * vertices contracted in earlier rounds are dead, the live ones are moved
+     * down over them first, then the arena grows if that was not enough.
+     *
+     * @param firstNew first id created in this round
+     */
+    private void reserve(int needed, int firstNew) {
+        if (arenaTop + needed <= tail.length) {
+            return;
+        }
+        int top = 0;
+        for (int u = 1; u < firstNew; u++) {
+            if (u == source || forestParent[u] >= 0) {
+                continue;
+            }
+            // segments lie in the arena in id order, moving down never overwrites a live one
+            int size = segEnd[u] - segStart[u];
+            System.arraycopy(tail, segStart[u], tail, top, size);
+            System.arraycopy(reduced, segStart[u], reduced, top, size);
+            System.arraycopy(original, segStart[u], original, top, size);
+            pick[u] += top - segStart[u];
+            segStart[u] = top;
+            segEnd[u] = top + size;
+            top += size;
+        }
+        arenaTop = top;
+        if (arenaTop + needed > tail.length) {
+            int capacity = Math.max(arenaTop + needed, tail.length * 2);
+            tail = Arrays.copyOf(tail, capacity);
+            reduced = Arrays.copyOf(reduced, capacity);
+            original = Arrays.copyOf(original, capacity);
+        }
+    }
+
+    /**
+     * @return vertex that u is contracted into by now
+     */
+    private int top(int u) {
+        while (forestParent[u] >= 0) {
+            u = forestParent[u];
+        }
+        return u;
+    }
+
+    private static void forEach(int size, IntConsumer action) {
+        if (size < PARALLEL_MIN) {
+            for (int i = 0; i < size; i++) {
+                action.accept(i);
+            }
+        } else {
+            IntStream.range(0, size).parallel().forEach(action);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Plain loops, one edge at a time
+ *
+ * @author Jun Yu
+ */
+public final class ScalarWeightKernels implements WeightKernels {
+
+    @Override
+    public int min(int[] weight, int[] index, int start, int end) {
+        int min = Integer.MAX_VALUE;
+        for (int p = start; p < end; p++) {
+            min = Math.min(min, weight[index[p]]);
+        }
+        return min;
+    }
+
+    @Override
+    public void subtract(int[] weight, int[] index, int start, int end, int delta) {
+        for (int p = start; p < end; p++) {
+            weight[index[p]] -= delta;
+        }
+    }
+
+    @Override
+    public int nextZero(int[] weight, int[] index, int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (weight[index[p]] == 0) {
+                return p;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
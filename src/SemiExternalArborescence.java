@@ -0,0 +1,586 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Minimum arborescence of a graph whose edges stay on disk, by Tarjan's
+ * contraction with bounded heaps of candidate edges.
+ * <p>
+ * Only state per vertex is kept in memory: the current super-vertex of every
+ * vertex, how much its incoming edges got cheaper, and a pool of candidate
+ * edges, the cheapest ones into each vertex or super-vertex, in leftist
+ * heaps. A node whose heap runs dry before it finds an edge from outside
+ * waits for the next pass, which reads the file once, sequentially, and
+ * refills the waiting nodes with what is free in the pool. When only a few
+ * nodes wait they get a large share, so the passes stay a handful even when
+ * one super-vertex swallows the graph a vertex at a time. I/O is passes times
+ * the size of the file. Memory is about 150 bytes per vertex plus 30 per slot
+ * of the pool, which has {@code 2 * candidates} slots per vertex.
+ * <p>
+ * Edge ids are positions in the file, from 0, and may go beyond int.
+ *
+ * @author Jun Yu
+ */
+public class SemiExternalArborescence {
+    static final int DEFAULT_CANDIDATES = 4;
+
+    EdgeFile file;
+    int candidates;
+    int numVertices;
+    int source;
+    long numEdges;
+
+    // union-find over the contraction forest with path compression, dist[x] is the sum of the
+    // picks from x up to link[x], so an edge into v got cheaper by dist[v] once find(v) compressed it
+    int[] link;
+    long[] dist;
+    int[] trail;
+
+    // edge picked by each vertex or super-vertex, its weight, reduced weight and endpoints
+    long[] bestEdge;
+    int[] bestOriginal;
+    long[] bestWeight;
+    int[] bestTail;
+    int[] bestHead;
+
+    // pool of candidate edges in leftist heaps, free slots are linked by candLeft.
+    // The key of slot i is candWeight[i] - offset(candHead[i]), all heads in one heap move together
+    long[] candEdge;
+    int[] candTail;
+    int[] candHead;
+    int[] candWeight;
+    int[] candLeft;
+    int[] candRight;
+    byte[] candRank;
+    int freeSlot;
+    int numFree;
+
+    // heap of each node. A truncated heap lacks edges, none of them cheaper than its bound edge
+    int[] heap;
+    boolean[] truncated;
+    int[] boundWeight;
+    int[] boundHead;
+
+    // nodes that pick an edge in the next pass, each collects into its range of slots as a max-heap
+    boolean[] pending;
+    int[] collectStart;
+    int[] collectCount;
+    int[] slots;
+    int collectCapacity;
+
+    // contraction forest, the members of super-vertex x are members[memberStart[x - n]...memberStart[x - n + 1]]
+    int[] forestParent;
+    int[] members;
+    int[] memberStart;
+    int[] seen;
+    int stamp;
+    int numNodes;
+
+    int passes;
+    long bytesRead;
+
+    long[] parentEdge;
+    int[] parent;
+    int[] parentWeight;
+    long weight;
+
+    /**
+     * Read the header only, the edges are read by {@link #solve()}
+     *
+     * @param path   graph in the format of {@link BinaryGraphFormat} or in the text format
+     * @param binary whether path is binary
+     * @throws IOException if the header is malformed
+     */
+    public SemiExternalArborescence(Path path, boolean binary) throws IOException {
+        this(path, binary, DEFAULT_CANDIDATES);
+    }
+
+    /**
+     * @param candidates candidate edges per vertex in the first pass, the pool has twice as many
+     */
+    public SemiExternalArborescence(Path path, boolean binary, int candidates) throws IOException {
+        this.candidates = Math.max(1, candidates);
+        file = new EdgeFile(path, binary);
+        numVertices = file.numVertices;
+        source = file.source;
+        numEdges = file.numEdges;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IOException           if the file cannot be read or does not hold the edges of its header
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() throws IOException {
+        int n = numVertices + 1;
+        link = new int[2 * n];
+        dist = new long[2 * n];
+        trail = new int[2 * n];
+        bestEdge = new long[2 * n];
+        bestOriginal = new int[2 * n];
+        bestWeight = new long[2 * n];
+        bestTail = new int[2 * n];
+        bestHead = new int[2 * n];
+
+        int poolSize = (int) Math.min(Integer.MAX_VALUE - 8, 2L * n * candidates);
+        candEdge = new long[poolSize];
+        candTail = new int[poolSize];
+        candHead = new int[poolSize];
+        candWeight = new int[poolSize];
+        candLeft = new int[poolSize];
+        candRight = new int[poolSize];
+        candRank = new byte[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            candLeft[i] = i + 1;
+        }
+        candLeft[poolSize - 1] = -1;
+        freeSlot = 0;
+        numFree = poolSize;
+
+        heap = new int[2 * n];
+        truncated = new boolean[2 * n];
+        boundWeight = new int[2 * n];
+        boundHead = new int[2 * n];
+        pending = new boolean[2 * n];
+        collectStart = new int[2 * n];
+        collectCount = new int[2 * n];
+        slots = new int[poolSize / 2 + 1];
+        forestParent = new int[2 * n];
+        members = new int[2 * n];
+        memberStart = new int[n + 1];
+        seen = new int[2 * n];
+        stamp = 0;
+        passes = 0;
+        bytesRead = 0;
+        file.bytesRead = 0;
+        Arrays.fill(link, -1);
+        Arrays.fill(heap, -1);
+        Arrays.fill(forestParent, -1);
+
+        int[] pendingList = new int[2 * n];
+        int numPending = 0;
+        for (int v = 1; v < n; v++) {
+            if (v != source) {
+                pending[v] = true;
+                pendingList[numPending++] = v;
+            }
+        }
+
+        // nodes that just picked an edge, a new cycle goes through one of them
+        int[] work = new int[2 * n];
+        long sum = 0;
+        int next = n;
+        int numMembers = 0;
+        while (numPending > 0) {
+            passes++;
+            if (numFree / 2 < numPending) {
+                reclaim(next);
+            }
+            // the waiting nodes share half of the free slots, the rest is room for the next passes
+            collectCapacity = Math.max(1, numFree / 2 / numPending);
+            for (int i = 0; i < numPending; i++) {
+                int x = pendingList[i];
+                collectStart[x] = i * collectCapacity;
+                collectCount[x] = 0;
+                truncated[x] = false;
+            }
+            pass();
+
+            int numWork = 0;
+            for (int i = 0; i < numPending; i++) {
+                int x = pendingList[i];
+                pending[x] = false;
+                buildHeap(x);
+                if (!pick(x)) {
+                    throw unreachable(x, n);
+                }
+                sum += bestWeight[x];
+                work[numWork++] = x;
+            }
+            numPending = 0;
+
+            while (numWork > 0) {
+                int firstNew = next;
+                int base = stamp;
+                for (int i = 0; i < numWork; i++) {
+                    int walk = ++stamp;
+                    int u = work[i];
+                    while (u != source && !pending[u] && seen[u] <= base) {
+                        seen[u] = walk;
+                        u = find(bestTail[u]);
+                    }
+                    if (u != source && seen[u] == walk) {
+                        int y = next++;
+                        int w = u;
+                        do {
+                            members[numMembers++] = w;
+                            w = find(bestTail[w]);
+                        } while (w != u);
+                        memberStart[y - n + 1] = numMembers;
+                    }
+                }
+                numWork = 0;
+                if (next == firstNew) {
+                    break;
+                }
+
+                // edges into a member are now compared at the level of the new super-vertex
+                for (int y = firstNew; y < next; y++) {
+                    for (int i = memberStart[y - n]; i < memberStart[y - n + 1]; i++) {
+                        int x = members[i];
+                        forestParent[x] = y;
+                        link[x] = y;
+                        dist[x] = bestWeight[x];
+                    }
+                }
+
+                // a new super-vertex picks from the heaps of its members if it can, else in the next pass
+                for (int y = firstNew; y < next; y++) {
+                    mergeMembers(y, n);
+                    if (pick(y)) {
+                        sum += bestWeight[y];
+                        work[numWork++] = y;
+                    } else if (truncated[y]) {
+                        release(heap[y]);
+                        heap[y] = -1;
+                        pending[y] = true;
+                        pendingList[numPending++] = y;
+                    } else {
+                        throw unreachable(y, n);
+                    }
+                }
+            }
+        }
+        numNodes = next;
+
+        expand(n, next);
+        weight = sum;
+        return sum;
+    }
+
+    /**
+     * Edge ids of the tree, -1 for the source
+     */
+    public long[] parentEdges() {
+        return parentEdge;
+    }
+
+    /**
+     * Tails of the tree, the source is its own parent
+     */
+    public int[] parents() {
+        return parent;
+    }
+
+    /**
+     * Tree of the last solve as parent and weight columns
+     */
+    public Arborescence result() {
+        int[] tails = Arrays.copyOf(parent, parent.length);
+        tails[0] = -1;
+        tails[source] = -1;
+        return new Arborescence(numVertices, source, tails, parentWeight, weight);
+    }
+
+    /**
+     * Add the contracted cycles to stats
+     */
+    void report(SolverStats stats) {
+        ContractionForest.report(stats, numVertices + 1, numNodes, memberStart);
+    }
+
+    /**
+     * @return heap bytes of the solver state
+     */
+    public long bytesUsed() {
+        long n = numVertices + 1;
+        long pool = Math.min(Integer.MAX_VALUE - 8, 2 * n * candidates);
+        return n * (8 + 4 + 4 + 4) + 2 * n * (8 + 4 + 8 + 4 + 4 + 4 + 8 + 4 + 4 + 1 + 4 + 4 + 1 + 4 + 4 + 4 + 4 + 4 + 4 + 4)
+                + pool * (8 + 4 + 4 + 4 + 4 + 4 + 1 + 2);
+    }
+
+    /**
+     * One sequential read of all edges
+     */
+    private void pass() throws IOException {
+        file.pass(this::relax);
+        bytesRead = file.bytesRead;
+    }
+
+    /**
+     * Offer edge e to the node its head is in, if that node picks in this
+     * pass. The node keeps its cheapest edges in a max-heap of slots, the
+     * earlier edge on ties.
+     */
+    private void relax(long e, int src, int dst, int w) {
+        int x = find(dst);
+        if (!pending[x] || find(src) == x) {
+            return;
+        }
+        long r = w - offset(dst);
+        int begin = collectStart[x];
+        int c = collectCount[x];
+        int i;
+        if (c < collectCapacity) {
+            i = freeSlot;
+            freeSlot = candLeft[i];
+            numFree--;
+            // sift up from the end
+            int j = c;
+            while (j > 0) {
+                int p = (j - 1) >> 1;
+                if (key(slots[begin + p]) >= r) {
+                    break;
+                }
+                slots[begin + j] = slots[begin + p];
+                j = p;
+            }
+            slots[begin + j] = i;
+            collectCount[x] = c + 1;
+        } else {
+            truncated[x] = true;
+            i = slots[begin];
+            if (r >= key(i)) {
+                return;
+            }
+            // the heaviest makes room, sift down from the top
+            int j = siftDown(begin, c, r);
+            slots[begin + j] = i;
+        }
+        candEdge[i] = e;
+        candTail[i] = src;
+        candHead[i] = dst;
+        candWeight[i] = w;
+    }
+
+    /**
+     * Move the heavier children up from the top of the max-heap at begin
+     * until key fits
+     *
+     * @return position for key
+     */
+    private int siftDown(int begin, int count, long key) {
+        int j = 0;
+        while (true) {
+            int child = 2 * j + 1;
+            if (child >= count) {
+                return j;
+            }
+            if (child + 1 < count && key(slots[begin + child + 1]) > key(slots[begin + child])) {
+                child++;
+            }
+            if (key(slots[begin + child]) <= key) {
+                return j;
+            }
+            slots[begin + j] = slots[begin + child];
+            j = child;
+        }
+    }
+
+    /**
+     * Turn what x collected in the last pass into its heap, a sorted chain
+     */
+    private void buildHeap(int x) {
+        int begin = collectStart[x];
+        int c = collectCount[x];
+        if (c > 0 && truncated[x]) {
+            int i = slots[begin];
+            boundWeight[x] = candWeight[i];
+            boundHead[x] = candHead[i];
+        }
+        int h = -1;
+        // take out the heaviest until empty, each goes in front of the chain
+        while (c > 0) {
+            int i = slots[begin];
+            int last = slots[begin + --c];
+            slots[begin + siftDown(begin, c, key(last))] = last;
+            candLeft[i] = h;
+            candRight[i] = -1;
+            candRank[i] = 1;
+            h = i;
+        }
+        heap[x] = h;
+    }
+
+    /**
+     * Heap and bound of the new super-vertex y from those of its members
+     */
+    private void mergeMembers(int y, int n) {
+        int h = -1;
+        long bound = Long.MAX_VALUE;
+        truncated[y] = false;
+        for (int i = memberStart[y - n]; i < memberStart[y - n + 1]; i++) {
+            int x = members[i];
+            h = merge(h, heap[x]);
+            heap[x] = -1;
+            if (truncated[x] && boundWeight[x] - offset(boundHead[x]) < bound) {
+                bound = boundWeight[x] - offset(boundHead[x]);
+                truncated[y] = true;
+                boundWeight[y] = boundWeight[x];
+                boundHead[y] = boundHead[x];
+            }
+        }
+        heap[y] = h;
+    }
+
+    /**
+     * Pick the cheapest edge into x from outside, dropping the edges inside x on the way
+     *
+     * @return false if the heap cannot tell which edge that is
+     */
+    private boolean pick(int x) {
+        int h = heap[x];
+        while (h >= 0 && find(candTail[h]) == x) {
+            h = pop(h);
+        }
+        heap[x] = h;
+        if (h < 0 || truncated[x] && key(h) > boundWeight[x] - offset(boundHead[x])) {
+            return false;
+        }
+        bestEdge[x] = candEdge[h];
+        bestOriginal[x] = candWeight[h];
+        bestTail[x] = candTail[h];
+        bestHead[x] = candHead[h];
+        bestWeight[x] = key(h);
+        heap[x] = pop(h);
+        return true;
+    }
+
+    /**
+     * Free the heaps of the nodes that have picked, when the pool runs low.
+     * Each keeps its cheapest edge as the bound, so it waits for a pass if it
+     * needs another edge.
+     */
+    private void reclaim(int next) {
+        for (int x = 1; x < next; x++) {
+            int h = heap[x];
+            if (h >= 0) {
+                if (!truncated[x] || key(h) < boundWeight[x] - offset(boundHead[x])) {
+                    truncated[x] = true;
+                    boundWeight[x] = candWeight[h];
+                    boundHead[x] = candHead[h];
+                }
+                release(h);
+                heap[x] = -1;
+            }
+        }
+    }
+
+    private long key(int i) {
+        return candWeight[i] - offset(candHead[i]);
+    }
+
+    /**
+     * @return how much the edges into v got cheaper, the picks below its super-vertex
+     */
+    private long offset(int v) {
+        return find(v) == v ? 0 : dist[v];
+    }
+
+    /**
+     * @return super-vertex of v, with path compression
+     */
+    private int find(int v) {
+        int r = v;
+        int len = 0;
+        while (link[r] >= 0) {
+            trail[len++] = r;
+            r = link[r];
+        }
+        // the last one on the path links to r already, fold the others from the top down
+        for (int i = len - 2; i >= 0; i--) {
+            int x = trail[i];
+            dist[x] += dist[link[x]];
+            link[x] = r;
+        }
+        return r;
+    }
+
+    /**
+     * Remove the root of a heap and free its slot
+     *
+     * @return the rest of the heap
+     */
+    private int pop(int h) {
+        int rest = merge(candLeft[h], candRight[h]);
+        candLeft[h] = freeSlot;
+        freeSlot = h;
+        numFree++;
+        return rest;
+    }
+
+    /**
+     * Free every slot of a heap without recursion, a left child is rotated
+     * to the top until the root has none
+     */
+    private void release(int h) {
+        while (h >= 0) {
+            int l = candLeft[h];
+            if (l < 0) {
+                int r = candRight[h];
+                candLeft[h] = freeSlot;
+                freeSlot = h;
+                numFree++;
+                h = r;
+            } else {
+                candLeft[h] = candRight[l];
+                candRight[l] = h;
+                h = l;
+            }
+        }
+    }
+
+    /**
+     * Meld two leftist heaps, recursion depth is bounded by their right spines
+     */
+    private int merge(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        if (key(b) < key(a)) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        candRight[a] = merge(candRight[a], b);
+        int l = candLeft[a];
+        int r = candRight[a];
+        if (l < 0 || candRank[l] < candRank[r]) {
+            candLeft[a] = r;
+            candRight[a] = l;
+        }
+        int rr = candRight[a];
+        candRank[a] = (byte) (rr < 0 ? 1 : candRank[rr] + 1);
+        return a;
+    }
+
+    /**
+     * A node without an edge from outside, none of its vertices is reachable
+     */
+    private IllegalStateException unreachable(int x, int n) {
+        while (x >= n) {
+            x = members[memberStart[x - n]];
+        }
+        return new IllegalStateException("vertex " + x + " is not reachable from " + source);
+    }
+
+    /**
+     * Top-down over the contraction forest, see {@link ContractionForest#expand}
+     */
+    private void expand(int n, int next) {
+        parentEdge = new long[n];
+        parent = new int[n];
+        parentWeight = new int[n];
+        Arrays.fill(parentEdge, -1);
+        parent[source] = source;
+
+        ContractionForest.expand(n, next, source, forestParent, members, memberStart, x -> bestHead[x], (x, v) -> {
+            parentEdge[v] = bestEdge[x];
+            parent[v] = bestTail[x];
+            parentWeight[v] = bestOriginal[x];
+        });
+    }
+}
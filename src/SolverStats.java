@@ -0,0 +1,243 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.Arrays;
+
+/**
+ * Phase timers and counters of one solve. A solver only measures when it
+ * holds one of these, so when they are off the cost is a null check per
+ * phase. They are turned on by {@link DirectedMST#stats} or by a flight
+ * recording with {@link SolveEvent} enabled.
+ * <p>
+ * The contraction engine is timed phase by phase. The other engines are
+ * timed as a whole, their cycles are read off their contraction forest
+ * after the solve.
+ *
+ * @author Jun Yu
+ */
+public class SolverStats {
+
+    public enum Phase {
+        TRANSFORM,
+        ZERO_BFS,
+        VERIFY,
+        WALK,
+        SHRINK,
+        RECOVER,
+        // whole solve, every engine
+        SOLVE
+    }
+
+    static final Phase[] PHASES = Phase.values();
+
+    String engine;
+    int numVertices;
+    int numEdges;
+    long weight;
+
+    long[] nanos = new long[PHASES.length];
+    long[] calls = new long[PHASES.length];
+
+    int contractions;
+    int peakVertices;
+    int largestCycle;
+    // bucket i counts cycles of 2^i up to 2^(i+1) - 1 vertices
+    long[] cycleSizes = new long[32];
+
+    // open for the whole solve, and while a contraction is walked and shrunk
+    SolveEvent solve;
+    ContractionEvent contraction;
+
+    /**
+     * @return whether a running recording asks for solve events
+     */
+    static boolean recording() {
+        return FlightRecorder.isInitialized() && EventType.getEventType(SolveEvent.class).isEnabled();
+    }
+
+    /**
+     * Clear the counters for a new solve
+     */
+    void begin(String engine, int numVertices, int numEdges) {
+        this.engine = engine;
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        weight = 0;
+        Arrays.fill(nanos, 0);
+        Arrays.fill(calls, 0);
+        contractions = 0;
+        peakVertices = numVertices;
+        largestCycle = 0;
+        Arrays.fill(cycleSizes, 0);
+        solve = new SolveEvent();
+        solve.begin();
+    }
+
+    /**
+     * Add the time since begin to phase
+     *
+     * @param phase phase that just ended
+     * @param begin System.nanoTime() when it started
+     * @return System.nanoTime() now, where the next phase starts
+     */
+    long lap(Phase phase, long begin) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - begin;
+        calls[phase.ordinal()]++;
+        return now;
+    }
+
+    /**
+     * @param numVertices vertices after a contraction, super-vertices included
+     */
+    void vertices(int numVertices) {
+        peakVertices = Math.max(peakVertices, numVertices);
+    }
+
+    void cycle(int size) {
+        contractions++;
+        largestCycle = Math.max(largestCycle, size);
+        cycleSizes[31 - Integer.numberOfLeadingZeros(Math.max(size, 1))]++;
+    }
+
+    void beginContraction(int round) {
+        ContractionEvent event = new ContractionEvent();
+        if (event.isEnabled()) {
+            event.round = round;
+            event.begin();
+            contraction = event;
+        }
+    }
+
+    void endContraction(int size, int numVertices) {
+        if (contraction != null) {
+            contraction.end();
+            contraction.cycleSize = size;
+            contraction.vertices = numVertices;
+            contraction.commit();
+            contraction = null;
+        }
+    }
+
+    /**
+     * Record the weight and commit the solve event
+     */
+    void finish(long weight) {
+        this.weight = weight;
+        SolveEvent event = solve;
+        solve = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.vertices = numVertices;
+            event.edges = numEdges;
+            event.weight = weight;
+            event.contractions = contractions;
+            event.peakVertices = peakVertices;
+            event.largestCycle = largestCycle;
+            event.transform = nanos[Phase.TRANSFORM.ordinal()];
+            event.zeroBfs = nanos[Phase.ZERO_BFS.ordinal()];
+            event.verify = nanos[Phase.VERIFY.ordinal()];
+            event.walk = nanos[Phase.WALK.ordinal()];
+            event.shrink = nanos[Phase.SHRINK.ordinal()];
+            event.recover = nanos[Phase.RECOVER.ordinal()];
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the counters as one line of JSON
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"engine\":\"").append(engine).append('"')
+                .append(",\"vertices\":").append(numVertices)
+                .append(",\"edges\":").append(numEdges)
+                .append(",\"weight\":").append(weight)
+                .append(",\"contractions\":").append(contractions)
+                .append(",\"peakVertices\":").append(peakVertices)
+                .append(",\"largestCycle\":").append(largestCycle)
+                .append(",\"phases\":{");
+        boolean first = true;
+        for (Phase phase : PHASES) {
+            if (calls[phase.ordinal()] == 0) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(phase.name().toLowerCase()).append("\":{")
+                    .append("\"nanos\":").append(nanos[phase.ordinal()])
+                    .append(",\"calls\":").append(calls[phase.ordinal()]).append('}');
+            first = false;
+        }
+        // histogram keyed by the smallest size of the bucket
+        json.append("},\"cycleSizes\":{");
+        first = true;
+        for (int i = 0; i < cycleSizes.length; i++) {
+            if (cycleSizes[i] == 0) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(1L << i).append("\":").append(cycleSizes[i]);
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    @Name("directedmst.Solve")
+    @Label("Arborescence Solve")
+    @Category("Directed MST")
+    @Description("One solve with its phase times and contraction counters")
+    public static class SolveEvent extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Vertices")
+        int vertices;
+        @Label("Edges")
+        int edges;
+        @Label("Weight")
+        long weight;
+        @Label("Contractions")
+        int contractions;
+        @Label("Peak Vertices")
+        @Description("Vertices plus the super-vertices created by the solve")
+        int peakVertices;
+        @Label("Largest Cycle")
+        int largestCycle;
+        @Label("Transform Weight")
+        @Timespan
+        long transform;
+        @Label("Zero Weight BFS")
+        @Timespan
+        long zeroBfs;
+        @Label("Verify BFS")
+        @Timespan
+        long verify;
+        @Label("Walk Backward")
+        @Timespan
+        long walk;
+        @Label("Shrink Cycle")
+        @Timespan
+        long shrink;
+        @Label("Recover Cycle")
+        @Timespan
+        long recover;
+    }
+
+    @Name("directedmst.Contraction")
+    @Label("Cycle Contraction")
+    @Category("Directed MST")
+    @Description("Walk back to a zero cycle and shrink it, contraction engine only")
+    public static class ContractionEvent extends Event {
+        @Label("Round")
+        int round;
+        @Label("Cycle Size")
+        int cycleSize;
+        @Label("Vertices")
+        @Description("Vertices after the shrink, super-vertices included")
+        int vertices;
+    }
+}
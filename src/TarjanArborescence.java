@@ -0,0 +1,331 @@
+import java.util.Arrays;
+
+/**
+ * Minimum arborescence by Tarjan's contraction in O(E log V).
+ * <p>
+ * Every super-vertex keeps its incoming edges in a leftist heap with lazy
+ * weight reduction, and a union-find with rollback tells which super-vertex
+ * a vertex belongs to. Walking backward along cheapest incoming edges finds
+ * the cycles; a cycle is contracted by melding the heaps of its members.
+ * Rolling the union-find back in reverse order expands the cycles again.
+ * <p>
+ * The arrays are kept between solves and only grow, so one instance can
+ * solve many graphs without allocating once it has seen the largest.
+ *
+ * @author Jun Yu
+ */
+public class TarjanArborescence {
+    // deleted edges are skipped when solving a graph, null for bare columns
+    CsrGraph graph;
+    int[] from, to, weight;
+    int numEdges;
+    int numVertices;
+    int source;
+
+    // leftist heaps over edge ids, and the heap of every vertex or super-vertex
+    LeftistHeaps heaps;
+    int[] heap;
+
+    // union-find with rollback, no path compression
+    int[] parent, size;
+    int[] history;
+    int historyTop;
+
+    // cheapest incoming edge chosen for each vertex or super-vertex
+    int[] in;
+
+    // contracted cycles: super-vertex, union-find time, the edges of cycle c are cycleEdges[cycleStart[c]...cycleStart[c + 1]]
+    int[] cycleVertex, cycleTime;
+    int[] cycleStart;
+    int[] cycleEdges;
+    int numCycles;
+
+    // walk state: visited by which start, current path of vertices and the edges chosen into them
+    int[] seen, path, queue;
+
+    // for a branching, the weight of an edge from source into every other vertex, 0 for none.
+    // Edge numEdges + v is the one into v, it is in no column.
+    long rootEdgeWeight;
+
+    public TarjanArborescence(CsrGraph graph, int numVertices, int source) {
+        this.graph = graph;
+        this.numVertices = numVertices;
+        this.source = source;
+    }
+
+    /**
+     * Empty instance for {@link #solve(int, int, int[], int[], int[], int)}
+     */
+    public TarjanArborescence() {
+        graph = null;
+    }
+
+    /**
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException if some vertex is not reachable from source
+     */
+    public long solve() {
+        from = graph.from;
+        to = graph.to;
+        weight = graph.weight;
+        numEdges = graph.numEdges;
+        return run();
+    }
+
+    /**
+     * Minimum spanning branching with as few roots besides source as
+     * possible, then lightest. Every vertex gets an extra edge from source
+     * of weight penalty, which only lives in the heaps, so it is a long. A
+     * vertex that takes one is a root.
+     *
+     * @param penalty more than any n edges can differ by, so one more root never pays
+     * @return weight of the branching, without the extra edges
+     */
+    public long solveBranching(long penalty) {
+        from = graph.from;
+        to = graph.to;
+        weight = graph.weight;
+        numEdges = graph.numEdges;
+        rootEdgeWeight = penalty;
+        try {
+            long sum = run();
+            for (int v = 1; v <= numVertices; v++) {
+                if (in[v] >= numEdges) {
+                    in[v] = -1;
+                    sum -= penalty;
+                }
+            }
+            return sum;
+        } finally {
+            rootEdgeWeight = 0;
+        }
+    }
+
+    /**
+     * Solve a graph given as edge columns, which are only read.
+     * Resets in O(n + m) and reuses the arrays of earlier solves.
+     *
+     * @param numVertices vertices 1...numVertices
+     * @param source      index
+     * @param from        tails
+     * @param to          heads
+     * @param weight      weights
+     * @param numEdges    edges in use
+     * @return weight of minimum arborescence
+     * @throws IllegalStateException    if some vertex is not reachable from source
+     * @throws IllegalArgumentException if source or an endpoint is not in 1...numVertices
+     */
+    public long solve(int numVertices, int source, int[] from, int[] to, int[] weight, int numEdges) {
+        this.graph = null;
+        this.numVertices = numVertices;
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.numEdges = numEdges;
+        return run();
+    }
+
+    /**
+     * Grow the arrays to n vertex slots and m edges, with some headroom
+     */
+    private void ensureCapacity(int n, int m) {
+        if (heaps == null || heaps.capacity() < m) {
+            heaps = new LeftistHeaps(Math.max(m, heaps == null ? 0 : heaps.capacity() + (heaps.capacity() >> 1)));
+        }
+        if (heap == null || heap.length < n) {
+            int capacity = Math.max(n, heap == null ? 0 : heap.length + (heap.length >> 1));
+            heap = new int[capacity];
+            parent = new int[capacity];
+            size = new int[capacity];
+            history = new int[capacity];
+            in = new int[capacity];
+            seen = new int[capacity];
+            path = new int[capacity];
+            queue = new int[capacity];
+            cycleVertex = new int[capacity];
+            cycleTime = new int[capacity];
+            cycleStart = new int[capacity + 1];
+            cycleEdges = new int[capacity];
+        }
+    }
+
+    private long run() {
+        int n = numVertices + 1;
+        int m = numEdges;
+        ensureCapacity(n, rootEdgeWeight == 0 ? m : m + n);
+        int[] to = this.to;
+        if (source < 1 || source >= n) {
+            throw new IllegalArgumentException("source " + source + " is not a vertex of 1..." + numVertices);
+        }
+
+        LeftistHeaps heaps = this.heaps;
+        Arrays.fill(heap, 0, n, -1);
+        for (int e = 0; e < m; e++) {
+            if (graph != null && graph.isDeleted(e)) {
+                continue;
+            }
+            // the arrays only grow, an id past this graph would land in a slot of an earlier one
+            if (from[e] < 1 || from[e] >= n || to[e] < 1 || to[e] >= n) {
+                throw new IllegalArgumentException("edge " + e + " from " + from[e] + " to " + to[e]
+                        + " is not between vertices of 1..." + numVertices);
+            }
+            heaps.init(e, weight[e]);
+            int v = to[e];
+            heap[v] = heaps.merge(heap[v], e);
+        }
+        if (rootEdgeWeight != 0) {
+            for (int v = 1; v < n; v++) {
+                if (v == source) {
+                    continue;
+                }
+                int e = m + v;
+                heaps.init(e, rootEdgeWeight);
+                heap[v] = heaps.merge(heap[v], e);
+            }
+        }
+
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        historyTop = 0;
+
+        Arrays.fill(in, 0, n, -1);
+        int[] seen = this.seen;
+        int[] path = this.path;
+        int[] queue = this.queue;
+        Arrays.fill(seen, 0, n, -1);
+        seen[source] = source;
+
+        int[] cycleEdges = this.cycleEdges;
+        cycleStart[0] = 0;
+        numCycles = 0;
+
+        long sum = 0;
+        for (int s = 1; s < n; s++) {
+            int u = s;
+            int qi = 0;
+            while (seen[u] < 0) {
+                if (heap[u] < 0) {
+                    throw new IllegalStateException("vertex " + u + " is not reachable from " + source);
+                }
+                int e = heap[u];
+                heaps.push(e);
+                if (find(tail(e)) == u) {
+                    // edge inside a super-vertex
+                    heap[u] = heaps.pop(e);
+                    continue;
+                }
+                long w = heaps.key[e];
+                // every other edge into u gets cheaper by w
+                heap[u] = heaps.pop(e);
+                heaps.add(heap[u], -w);
+                queue[qi] = e;
+                path[qi++] = u;
+                seen[u] = s;
+                sum += w;
+                u = find(tail(e));
+
+                if (seen[u] == s) {
+                    // found cycle, contract
+                    int cycle = -1;
+                    int end = qi;
+                    int time = historyTop;
+                    int w_index;
+                    do {
+                        w_index = path[--qi];
+                        cycle = heaps.merge(cycle, heap[w_index]);
+                    } while (join(u, w_index));
+                    u = find(u);
+                    heap[u] = cycle;
+                    seen[u] = -1;
+
+                    cycleVertex[numCycles] = u;
+                    cycleTime[numCycles] = time;
+                    int start = cycleStart[numCycles];
+                    if (start + end - qi > cycleEdges.length) {
+                        cycleEdges = Arrays.copyOf(cycleEdges, Math.max(start + end - qi, cycleEdges.length * 2));
+                        this.cycleEdges = cycleEdges;
+                    }
+                    System.arraycopy(queue, qi, cycleEdges, start, end - qi);
+                    cycleStart[++numCycles] = start + end - qi;
+                }
+            }
+            for (int i = 0; i < qi; i++) {
+                in[find(head(queue[i]))] = queue[i];
+            }
+        }
+
+        // expand cycles, latest first
+        for (int c = numCycles - 1; c >= 0; c--) {
+            rollback(cycleTime[c]);
+            int inEdge = in[cycleVertex[c]];
+            for (int i = cycleStart[c]; i < cycleStart[c + 1]; i++) {
+                int e = cycleEdges[i];
+                in[find(head(e))] = e;
+            }
+            in[find(head(inEdge))] = inEdge;
+        }
+        in[source] = -1;
+
+        return sum;
+    }
+
+    private int tail(int e) {
+        return e < numEdges ? from[e] : source;
+    }
+
+    private int head(int e) {
+        return e < numEdges ? to[e] : e - numEdges;
+    }
+
+    /**
+     * @return edge id into every vertex in the arborescence, -1 for source,
+     * may be longer than the graph and is reused by the next solve
+     */
+    public int[] parentEdges() {
+        return in;
+    }
+
+    /**
+     * Add the contracted cycles to stats, a super-vertex takes the id of a member
+     */
+    void report(SolverStats stats) {
+        for (int c = 0; c < numCycles; c++) {
+            stats.cycle(cycleStart[c + 1] - cycleStart[c]);
+        }
+    }
+
+    private int find(int v) {
+        while (parent[v] != v) {
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private boolean join(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            return false;
+        }
+        if (size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        history[historyTop++] = b;
+        parent[b] = a;
+        size[a] += size[b];
+        return true;
+    }
+
+    private void rollback(int time) {
+        while (historyTop > time) {
+            int b = history[--historyTop];
+            size[parent[b]] -= size[b];
+            parent[b] = b;
+        }
+    }
+}
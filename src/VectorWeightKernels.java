@@ -0,0 +1,69 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels on the Vector API: the weights of a segment are gathered a
+ * vector at a time through the edge ids. What is left of a segment below
+ * one vector runs scalar, so short segments cost no more than
+ * {@link ScalarWeightKernels}.
+ * <p>
+ * The weights are indexed by edge id, so every gather misses the cache as
+ * often as the scalar loop does and the gain is in the compares: the
+ * minimum of segments of 256 is about 1.25x faster, short segments are
+ * even. A scatter back was never faster than the scalar stores, so
+ * {@link #subtract} stays scalar.
+ *
+ * @author Jun Yu
+ */
+public final class VectorWeightKernels implements WeightKernels {
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    @Override
+    public int min(int[] weight, int[] index, int start, int end) {
+        int min = Integer.MAX_VALUE;
+        int p = start;
+        if (end - start >= LANES) {
+            IntVector acc = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+            for (; p <= end - LANES; p += LANES) {
+                acc = acc.min(IntVector.fromArray(SPECIES, weight, 0, index, p));
+            }
+            min = acc.reduceLanes(VectorOperators.MIN);
+        }
+        for (; p < end; p++) {
+            min = Math.min(min, weight[index[p]]);
+        }
+        return min;
+    }
+
+    @Override
+    public void subtract(int[] weight, int[] index, int start, int end, int delta) {
+        for (int p = start; p < end; p++) {
+            weight[index[p]] -= delta;
+        }
+    }
+
+    @Override
+    public int nextZero(int[] weight, int[] index, int start, int end) {
+        int p = start;
+        for (; p <= end - LANES; p += LANES) {
+            VectorMask<Integer> zero = IntVector.fromArray(SPECIES, weight, 0, index, p).eq(0);
+            if (zero.anyTrue()) {
+                return p + zero.firstTrue();
+            }
+        }
+        for (; p < end; p++) {
+            if (weight[index[p]] == 0) {
+                return p;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public String name() {
+        return "vector x" + LANES;
+    }
+}
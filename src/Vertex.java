@@ -2,43 +2,17 @@
  * @author Jun Yu
  */
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
-
 public class Vertex implements Comparable<Vertex> {
 
     boolean reachableFromS;
     int index;
 
-    // incoming edges
-    LinkedList<Integer> inAdj = new LinkedList<>();
-    LinkedList<Integer> inAdjWeight = new LinkedList<>();
-    // outgoing edges
-    LinkedList<Integer> outAdj = new LinkedList<>();
-    LinkedList<Integer> outAdjWeight = new LinkedList<>();
-
-    LinkedList<Integer> pathMST = new LinkedList<>();
-
+    // edges live in CsrGraph, a vertex only keeps solver state
     int dis;
     boolean known;
     int pred;
-
-    public int minIncomingWeight() {
-        Iterator<Integer> inItor = inAdj.iterator();
-        Iterator<Integer> inWeightItor = inAdjWeight.iterator();
-        int min = Integer.MAX_VALUE;
-
-        while (inItor.hasNext()) {
-            inItor.next();
-            int weight = inWeightItor.next();
-            min = Math.min(min, weight);
-        }
-        return min;
-    }
-
-    int maxIncomingWeight;
-    int maxOutgoingWeight;
+    // edge id from pred, -1 if none
+    int predEdge;
 
     public Vertex(int index) {
         this.index = index;
@@ -46,59 +20,7 @@ public class Vertex implements Comparable<Vertex> {
         reachableFromS = false;
         dis = Integer.MAX_VALUE;
         pred = -1;
-        maxIncomingWeight = Integer.MIN_VALUE;
-        maxOutgoingWeight = Integer.MIN_VALUE;
-    }
-
-    public void addInAdj(int adjIndex, int weight) {
-
-        inAdj.add(adjIndex);
-        inAdjWeight.add(weight);
-
-        if (weight > maxIncomingWeight) {
-            maxIncomingWeight = weight;
-        }
-    }
-
-    public void removeInAdj(int adjIndex) {
-        Iterator<Integer> adjItor = this.inAdj.iterator();
-        Iterator<Integer> adjWeightItor = this.inAdjWeight.iterator();
-
-        while (adjItor.hasNext()) {
-            int index = adjItor.next();
-            adjWeightItor.next();
-
-            if (index == adjIndex) {
-                adjItor.remove();
-                adjWeightItor.remove();
-                return;
-            }
-        }
-    }
-
-    public void addOutAdj(int adjIndex, int weight) {
-        outAdj.add(adjIndex);
-        outAdjWeight.add(weight);
-
-        if (weight > maxOutgoingWeight) {
-            maxOutgoingWeight = weight;
-        }
-    }
-
-    public void removeOutAdj(int adjIndex) {
-        Iterator<Integer> adjItor = this.outAdj.iterator();
-        Iterator<Integer> adjWeightItor = this.outAdjWeight.iterator();
-
-        while (adjItor.hasNext()) {
-            int index = adjItor.next();
-            adjWeightItor.next();
-
-            if (index == adjIndex) {
-                adjItor.remove();
-                adjWeightItor.remove();
-                return;
-            }
-        }
+        predEdge = -1;
     }
 
     @Override
@@ -108,43 +30,5 @@ public class Vertex implements Comparable<Vertex> {
         }
         return this.dis - o.dis;
     }
-
-    /**
-     * Change the weight of outgoing edge
-     *
-     * @param adjIndex the index of outgoing edge pointer to
-     * @param change   can be positive or negative.
-     */
-    public void changeOutgoingWeight(int adjIndex, int change) {
-        ListIterator<Integer> itorV = outAdj.listIterator();
-        ListIterator<Integer> itorW = outAdjWeight.listIterator();
-
-        while (itorV.hasNext()) {
-            int index = itorV.next();
-            int weight = itorW.next();
-            if (adjIndex == index) {
-                itorW.set(weight + change);
-                break;
-            }
-        }
-    }
-
-    /**
-     * The the vertex has a zero-weight edge come into this
-     */
-    public int getOneIncomingZeroWeightEdgeVertex() {
-        Iterator<Integer> inItor = inAdj.iterator();
-        Iterator<Integer> inWeightItor = inAdjWeight.iterator();
-
-        while (inItor.hasNext()) {
-            int v_index = inItor.next();
-            int weight = inWeightItor.next();
-            if (weight == 0) {
-                return v_index;
-            }
-        }
-        return -1;
-    }
 }
 
-
@@ -0,0 +1,37 @@
+import java.util.ArrayList;
+
+/**
+ * Vertices as objects on the heap, the model of the contraction engine
+ *
+ * @author Jun Yu
+ */
+public class VertexList extends ArrayList<Vertex> implements VertexStore {
+    private static final long serialVersionUID = 1L;
+
+    public VertexList() {
+    }
+
+    public VertexList(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public int pred(int v) {
+        return get(v).pred;
+    }
+
+    @Override
+    public void setPred(int v, int pred) {
+        get(v).pred = pred;
+    }
+
+    @Override
+    public int predEdge(int v) {
+        return get(v).predEdge;
+    }
+
+    @Override
+    public void setPredEdge(int v, int e) {
+        get(v).predEdge = e;
+    }
+}
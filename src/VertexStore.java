@@ -0,0 +1,23 @@
+/**
+ * Tree of a solve by vertex: the edge into every vertex and its tail.
+ * Index 0 is not a vertex. {@link VertexList} keeps it in {@link Vertex}
+ * objects on the heap, {@link OffHeapVertexStore} in columns outside it.
+ * The engines solve on their own arrays and write the tree here; the rest
+ * of the state of a {@link Vertex} is only used by the contraction engine,
+ * which works on {@link VertexList} directly.
+ *
+ * @author Jun Yu
+ */
+public interface VertexStore {
+
+    int pred(int v);
+
+    void setPred(int v, int pred);
+
+    /**
+     * @return edge id from pred, -1 if none
+     */
+    int predEdge(int v);
+
+    void setPredEdge(int v, int e);
+}
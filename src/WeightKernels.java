@@ -0,0 +1,47 @@
+/**
+ * Loops over the weights of one segment of edge ids, the inner loops of
+ * the contraction engine. A segment is weight[index[start]] ...
+ * weight[index[end - 1]], the ids in it are distinct.
+ * <p>
+ * {@link #load()} picks {@link VectorWeightKernels} when the JVM runs with
+ * --add-modules jdk.incubator.vector, and {@link ScalarWeightKernels}
+ * otherwise. The vector class is only ever loaded by name, so without the
+ * module nothing else is touched by it.
+ *
+ * @author Jun Yu
+ */
+public interface WeightKernels {
+
+    /**
+     * @return least weight of the segment, Integer.MAX_VALUE if it is empty
+     */
+    int min(int[] weight, int[] index, int start, int end);
+
+    /**
+     * Take delta off every weight of the segment
+     */
+    void subtract(int[] weight, int[] index, int start, int end, int delta);
+
+    /**
+     * @return first position p in [start, end) with weight[index[p]] == 0, end if none
+     */
+    int nextZero(int[] weight, int[] index, int start, int end);
+
+    String name();
+
+    /**
+     * Kernels named by the system property directedmst.kernels, "scalar"
+     * or "vector", the vector ones if available when it is not set
+     */
+    static WeightKernels load() {
+        String name = System.getProperty("directedmst.kernels", "vector");
+        if (name.equals("vector")) {
+            try {
+                return (WeightKernels) Class.forName("VectorWeightKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // jdk.incubator.vector is not in the module graph
+            }
+        }
+        return new ScalarWeightKernels();
+    }
+}
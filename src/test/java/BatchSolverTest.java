@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class BatchSolverTest {
+
+    static String run(String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchSolver(2, false).run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void solvesInOrder() throws IOException {
+        assertEquals("5\n3\n", run("3 2 1\n1 2 4\n2 3 1\n2 1 2\n2 1 3\n"));
+    }
+
+    @Test
+    void malformedHeader() throws IOException {
+        for (String header : new String[]{"3 -1 1\n", "0 0 1\n", "3 0 0\n", "3 0 4\n", "-2 1 1\n1 1 1\n"}) {
+            // the graph after the bad one is not read
+            String out = run("2 1 1\n1 2 7\n" + header + "2 1 1\n1 2 3\n");
+            assertTrue(out.startsWith("7\nerror java.io.IOException: graph 1 "), out);
+            assertEquals(2, out.split("\n").length, out);
+        }
+    }
+
+    @Test
+    void truncated() throws IOException {
+        String out = run("2 1 1\n1 2 7\n3 2 1\n1 2 4\n");
+        assertTrue(out.startsWith("7\nerror java.io.IOException: graph 1 ends after 1 of 2 edges"), out);
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class BinaryGraphFormatTest {
+
+    static long convert(String text, Path path) throws IOException {
+        return BinaryGraphFormat.convert(new BufferedReader(new StringReader(text)), path);
+    }
+
+    @Test
+    void rejectsVertexOutOfRange(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("graph.bin");
+        convert("3 2 1\n1 2 5\n2 4 1\n", path);
+        IOException e = assertThrows(IOException.class, () -> BinaryGraphFormat.load(path));
+        assertTrue(e.getMessage().startsWith("edge 1 from 2 to 4 "), e.getMessage());
+
+        for (String header : new String[]{"3 1 4\n", "3 1 0\n", "0 1 1\n"}) {
+            convert(header + "1 2 5\n", path);
+            assertThrows(IOException.class, () -> BinaryGraphFormat.load(path), header);
+        }
+
+        convert("3 2 1\n1 2 5\n2 3 1\n", path);
+        assertEquals(6, BinaryGraphFormat.load(path).solve(DirectedMST.Engine.TARJAN));
+    }
+
+    @Test
+    void keepsOldFileOnBadInput(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("graph.bin");
+        convert("3 2 1\n1 2 5\n2 3 1\n", path);
+        byte[] before = Files.readAllBytes(path);
+        assertThrows(IOException.class, () -> convert("3 3 1\n1 2 5\n2 3 1\n", path));
+        assertArrayEquals(before, Files.readAllBytes(path));
+
+        Path fresh = dir.resolve("fresh.bin");
+        assertThrows(IOException.class, () -> convert("3 3 1\n1 2 5\n", fresh));
+        assertFalse(Files.exists(fresh));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class BranchingTest {
+
+    /**
+     * 1M vertices with weights 0...3000 need edges from the new root of more
+     * than 3e9, which used to be rejected
+     */
+    @Test
+    void manyVerticesWideRange() {
+        int n = 1_000_000;
+        SplittableRandom random = new SplittableRandom(5);
+        DirectedMST rounds = new DirectedMST(n, 2 * n, 1);
+        DirectedMST tarjan = new DirectedMST(n, 2 * n, 1);
+        for (int i = 0; i < 2 * n; i++) {
+            int u = 1 + random.nextInt(n);
+            int v = 1 + random.nextInt(n);
+            int w = random.nextInt(3001);
+            rounds.addEdge(u, v, w);
+            tarjan.addEdge(u, v, w);
+        }
+        long weight = rounds.solveBranching(DirectedMST.Engine.ROUNDS);
+        assertEquals(tarjan.solveBranching(DirectedMST.Engine.TARJAN), weight);
+        assertArrayEquals(tarjan.roots, rounds.roots);
+        assertTrue(rounds.roots.length > 1);
+        assertEquals(1, rounds.roots[0]);
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small random graphs and their arborescences found by trying every choice
+ * of incoming edges, the reference the engines are checked against
+ *
+ * @author Jun Yu
+ */
+class BruteForce {
+    int numVertices;
+    int source;
+    int numEdges;
+    int[] from, to, weight;
+    boolean[] deleted;
+
+    BruteForce(int numVertices, int source, int[] from, int[] to, int[] weight, int numEdges) {
+        this.numVertices = numVertices;
+        this.source = source;
+        this.numEdges = numEdges;
+        this.from = Arrays.copyOf(from, numEdges);
+        this.to = Arrays.copyOf(to, numEdges);
+        this.weight = Arrays.copyOf(weight, numEdges);
+        this.deleted = new boolean[numEdges];
+    }
+
+    /**
+     * Up to 6 vertices with parallel edges, self loops and negative weights.
+     * Most graphs have a path from source to every vertex, some do not.
+     */
+    static BruteForce random(Random random) {
+        int n = 1 + random.nextInt(6);
+        int source = 1 + random.nextInt(n);
+        int m = random.nextInt(2 * n + 3);
+        int[] from = new int[m + n];
+        int[] to = new int[m + n];
+        int[] weight = new int[m + n];
+        int numEdges = 0;
+        if (random.nextInt(5) > 0) {
+            // a random tree from source
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i + 1;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            for (int i = 0; i < n; i++) {
+                if (order[i] == source) {
+                    order[i] = order[0];
+                    order[0] = source;
+                }
+            }
+            for (int i = 1; i < n; i++) {
+                from[numEdges] = order[random.nextInt(i)];
+                to[numEdges] = order[i];
+                weight[numEdges++] = random.nextInt(21) - 5;
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            from[numEdges] = 1 + random.nextInt(n);
+            to[numEdges] = 1 + random.nextInt(n);
+            weight[numEdges++] = random.nextInt(21) - 5;
+        }
+        // shuffle, so the tree edges are not the first ids
+        for (int i = numEdges - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(from, i, j);
+            swap(to, i, j);
+            swap(weight, i, j);
+        }
+        return new BruteForce(n, source, from, to, weight, numEdges);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    int addEdge(int src, int dst, int w) {
+        if (numEdges == from.length) {
+            int capacity = 2 * numEdges + 1;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+        }
+        from[numEdges] = src;
+        to[numEdges] = dst;
+        weight[numEdges] = w;
+        return numEdges++;
+    }
+
+    CsrGraph csr() {
+        CsrGraph graph = new CsrGraph(numVertices + 1, numEdges);
+        for (int e = 0; e < numEdges; e++) {
+            graph.addEdge(from[e], to[e], weight[e]);
+        }
+        return graph;
+    }
+
+    DirectedMST solver() {
+        DirectedMST graph = new DirectedMST(numVertices, numEdges, source);
+        for (int e = 0; e < numEdges; e++) {
+            graph.addEdge(from[e], to[e], weight[e]);
+        }
+        return graph;
+    }
+
+    String text() {
+        StringBuilder text = new StringBuilder();
+        int live = 0;
+        for (int e = 0; e < numEdges; e++) {
+            if (!deleted[e]) {
+                live++;
+            }
+        }
+        text.append(numVertices).append(' ').append(live).append(' ').append(source).append('\n');
+        for (int e = 0; e < numEdges; e++) {
+            if (!deleted[e]) {
+                text.append(from[e]).append(' ').append(to[e]).append(' ').append(weight[e]).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+
+    /**
+     * @return weights of all arborescences from root, lightest first
+     */
+    List<Long> all(int root) {
+        List<Long> weights = new ArrayList<>();
+        int[] parentEdge = new int[numVertices + 1];
+        choose(root, 1, parentEdge, 0, weights);
+        weights.sort(null);
+        return weights;
+    }
+
+    private void choose(int root, int v, int[] parentEdge, long sum, List<Long> weights) {
+        if (v > numVertices) {
+            if (acyclic(root, parentEdge)) {
+                weights.add(sum);
+            }
+            return;
+        }
+        if (v == root) {
+            parentEdge[v] = -1;
+            choose(root, v + 1, parentEdge, sum, weights);
+            return;
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (!deleted[e] && to[e] == v && from[e] != v) {
+                parentEdge[v] = e;
+                choose(root, v + 1, parentEdge, sum + weight[e], weights);
+            }
+        }
+    }
+
+    /**
+     * @return whether every vertex with a parent edge leads up to a vertex without one
+     */
+    private boolean acyclic(int root, int[] parentEdge) {
+        for (int v = 1; v <= numVertices; v++) {
+            int u = v;
+            for (int steps = 0; parentEdge[u] >= 0; steps++) {
+                if (steps > numVertices) {
+                    return false;
+                }
+                u = from[parentEdge[u]];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return weight of the minimum arborescence from root, null if there is none
+     */
+    Long min(int root) {
+        List<Long> weights = all(root);
+        return weights.isEmpty() ? null : weights.get(0);
+    }
+
+    /**
+     * Minimum spanning branching: fewest roots besides source, then lightest
+     *
+     * @return {roots, weight}
+     */
+    long[] branching() {
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        branch(1, new int[numVertices + 1], 1, 0, best);
+        return best;
+    }
+
+    private void branch(int v, int[] parentEdge, int roots, long sum, long[] best) {
+        if (v > numVertices) {
+            if (acyclic(source, parentEdge) && (roots < best[0] || roots == best[0] && sum < best[1])) {
+                best[0] = roots;
+                best[1] = sum;
+            }
+            return;
+        }
+        parentEdge[v] = -1;
+        branch(v + 1, parentEdge, v == source ? roots : roots + 1, sum, best);
+        if (v == source) {
+            return;
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (!deleted[e] && to[e] == v && from[e] != v) {
+                parentEdge[v] = e;
+                branch(v + 1, parentEdge, roots, sum + weight[e], best);
+            }
+        }
+    }
+
+    /**
+     * Check that tree is an arborescence from root over edges of this graph
+     * and weighs what it claims
+     *
+     * @return message of what is wrong, null if nothing is
+     */
+    String invalid(Arborescence tree, int root) {
+        long sum = 0;
+        for (int v = 1; v <= numVertices; v++) {
+            if (v == root) {
+                if (tree.parent[v] >= 0) {
+                    return "root " + v + " has parent " + tree.parent[v];
+                }
+                continue;
+            }
+            if (tree.parent[v] < 0) {
+                return "vertex " + v + " has no parent";
+            }
+            boolean found = false;
+            for (int e = 0; e < numEdges && !found; e++) {
+                found = !deleted[e] && from[e] == tree.parent[v] && to[e] == v && weight[e] == tree.weight[v];
+            }
+            if (!found) {
+                return "no edge " + tree.parent[v] + " -> " + v + " of weight " + tree.weight[v];
+            }
+            sum += tree.weight[v];
+            int u = v;
+            for (int steps = 0; u != root; steps++) {
+                if (steps > numVertices) {
+                    return "cycle through " + v;
+                }
+                u = tree.parent[u];
+            }
+        }
+        if (sum != tree.totalWeight) {
+            return "edges weigh " + sum + ", tree claims " + tree.totalWeight;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class CompressedGraphTest {
+
+    @Test
+    void readInPasses(@TempDir Path dir) throws IOException {
+        Random random = new Random(10);
+        Path text = dir.resolve("graph.txt");
+        Path binary = dir.resolve("graph.bin");
+        for (int i = 0; i < 300; i++) {
+            BruteForce g = BruteForce.random(random);
+            Files.writeString(text, g.text());
+            BinaryGraphFormat.convert(new BufferedReader(new StringReader(g.text())), binary);
+            CompressedGraph loaded = CompressedGraph.of(g.csr(), g.numVertices);
+            Long expected = g.min(g.source);
+            String what = g.toString();
+            // a scratch of 1 or 2 edges takes a pass per vertex or so
+            for (int scratch = 1; scratch <= 3; scratch++) {
+                for (boolean isBinary : new boolean[]{false, true}) {
+                    CompressedGraph read = CompressedGraph.read(new EdgeFile(isBinary ? binary : text, isBinary), scratch);
+                    assertSameLists(loaded, read, what);
+                    CompressedArborescence solver = new CompressedArborescence(read, g.source);
+                    if (expected == null) {
+                        assertThrows(IllegalStateException.class, solver::solve, what);
+                    } else {
+                        assertEquals(expected.longValue(), solver.solve(), what);
+                        assertNull(g.invalid(solver.result(), g.source), what);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsVertexOutOfRange(@TempDir Path dir) throws IOException {
+        Path text = dir.resolve("graph.txt");
+        Files.writeString(text, "3 2 1\n1 2 5\n2 4 1\n");
+        assertThrows(IOException.class, () -> CompressedGraph.read(new EdgeFile(text, false)));
+        Files.writeString(text, "3 2 4\n1 2 5\n2 3 1\n");
+        assertThrows(IOException.class, () -> new EdgeFile(text, false));
+    }
+
+    private static void assertSameLists(CompressedGraph expected, CompressedGraph actual, String what) {
+        assertEquals(expected.numEdges, actual.numEdges, what);
+        CompressedGraph.Cursor a = new CompressedGraph.Cursor();
+        CompressedGraph.Cursor b = new CompressedGraph.Cursor();
+        for (int v = 1; v <= expected.numVertices; v++) {
+            for (int view = 0; view < 2; view++) {
+                if (view == 0) {
+                    expected.incoming(a, v);
+                    actual.incoming(b, v);
+                } else {
+                    expected.outgoing(a, v);
+                    actual.outgoing(b, v);
+                }
+                while (a.next()) {
+                    assertTrue(b.next(), what);
+                    assertEquals(a.neighbor, b.neighbor, what);
+                    assertEquals(a.weight, b.weight, what);
+                }
+                assertFalse(b.next(), what);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every engine and mode against {@link BruteForce} on small random graphs
+ *
+ * @author Jun Yu
+ */
+class CrossCheckTest {
+    static final int GRAPHS = 2000;
+
+    static final DirectedMST.Engine[] ENGINES = {
+            DirectedMST.Engine.CONTRACTION, DirectedMST.Engine.TARJAN, DirectedMST.Engine.FIBONACCI,
+            DirectedMST.Engine.ROUNDS, DirectedMST.Engine.OFF_HEAP, DirectedMST.Engine.COMPRESSED,
+            DirectedMST.Engine.AUTO};
+
+    @Test
+    void engines() {
+        Random random = new Random(1);
+        for (int i = 0; i < GRAPHS; i++) {
+            BruteForce g = BruteForce.random(random);
+            Long expected = g.min(g.source);
+            for (DirectedMST.Engine engine : ENGINES) {
+                DirectedMST solver = g.solver();
+                String what = engine + " on\n" + g;
+                if (expected == null) {
+                    assertThrows(IllegalStateException.class, () -> solver.solve(engine), what);
+                } else {
+                    assertEquals(expected.longValue(), solver.solve(engine), what);
+                    assertNull(g.invalid(solver.result(), g.source), what);
+                }
+            }
+        }
+    }
+
+    @Test
+    void distributed() throws IOException {
+        Random random = new Random(8);
+        for (int i = 0; i < 20; i++) {
+            BruteForce g = BruteForce.random(random);
+            Long expected = g.min(g.source);
+            DirectedMST solver = g.solver();
+            String what = g.toString();
+            if (expected == null) {
+                assertThrows(IllegalStateException.class, () -> solver.solveDistributed(2, 0), what);
+            } else {
+                assertEquals(expected.longValue(), solver.solveDistributed(2, 0), what);
+                assertNull(g.invalid(solver.result(), g.source), what);
+            }
+        }
+    }
+
+    @Test
+    void reusable() {
+        Random random = new Random(2);
+        ReusableSolver solver = new ReusableSolver();
+        for (int i = 0; i < GRAPHS; i++) {
+            BruteForce g = BruteForce.random(random);
+            Long expected = g.min(g.source);
+            String what = g.toString();
+            if (expected == null) {
+                assertThrows(IllegalStateException.class,
+                        () -> solver.solve(g.numVertices, g.source, g.from, g.to, g.weight, g.numEdges), what);
+            } else {
+                assertEquals(expected.longValue(),
+                        solver.solve(g.numVertices, g.source, g.from, g.to, g.weight, g.numEdges), what);
+                assertNull(g.invalid(solver.result(), g.source), what);
+            }
+        }
+    }
+
+    @Test
+    void semiExternal(@TempDir Path dir) throws IOException {
+        Random random = new Random(3);
+        Path path = dir.resolve("graph.txt");
+        for (int i = 0; i < GRAPHS / 4; i++) {
+            BruteForce g = BruteForce.random(random);
+            Files.writeString(path, g.text());
+            Long expected = g.min(g.source);
+            // few candidates, so the later passes are needed too
+            SemiExternalArborescence solver = new SemiExternalArborescence(path, false, 1);
+            String what = g.toString();
+            if (expected == null) {
+                assertThrows(IllegalStateException.class, solver::solve, what);
+            } else {
+                assertEquals(expected.longValue(), solver.solve(), what);
+                assertNull(g.invalid(solver.result(), g.source), what);
+            }
+        }
+    }
+
+    @Test
+    void kBest() {
+        Random random = new Random(4);
+        for (int i = 0; i < GRAPHS / 4; i++) {
+            BruteForce g = BruteForce.random(random);
+            List<Long> all = g.all(g.source);
+            if (all.isEmpty() || all.size() > 200) {
+                continue;
+            }
+            int k = all.size() + 1;
+            KBestArborescences trees = g.solver().kBest(k, k);
+            String what = g.toString();
+            int count = 0;
+            while (trees.hasNext()) {
+                Arborescence tree = trees.next();
+                assertEquals(all.get(count).longValue(), tree.totalWeight, what);
+                assertNull(g.invalid(tree, g.source), what);
+                count++;
+            }
+            assertEquals(all.size(), count, what);
+            assertTrue(trees.isExact(), what);
+        }
+    }
+
+    @Test
+    void allRoots() {
+        Random random = new Random(5);
+        for (int i = 0; i < GRAPHS; i++) {
+            BruteForce g = BruteForce.random(random);
+            AllRootsArborescence roots = g.solver().allRoots();
+            for (int r = 1; r <= g.numVertices; r++) {
+                Long expected = g.min(r);
+                String what = "root " + r + " of\n" + g;
+                assertEquals(expected != null, roots.isRoot(r), what);
+                if (expected != null) {
+                    assertEquals(expected.longValue(), roots.weight(r), what);
+                    assertNull(g.invalid(roots.tree(r), r), what);
+                }
+            }
+        }
+    }
+
+    @Test
+    void branching() {
+        Random random = new Random(6);
+        for (int i = 0; i < GRAPHS; i++) {
+            BruteForce g = BruteForce.random(random);
+            long[] expected = g.branching();
+            for (DirectedMST.Engine engine : new DirectedMST.Engine[]{
+                    DirectedMST.Engine.TARJAN, DirectedMST.Engine.ROUNDS, DirectedMST.Engine.CONTRACTION}) {
+                DirectedMST solver = g.solver();
+                String what = engine + " on\n" + g;
+                assertEquals(expected[1], solver.solveBranching(engine), what);
+                assertEquals(expected[0], solver.roots.length, what);
+                assertEquals(g.source, solver.roots[0], what);
+                Arborescence tree = solver.result();
+                // every root is made the root of its own part
+                for (int r : solver.roots) {
+                    assertEquals(-1, tree.parent[r], what);
+                }
+                long sum = 0;
+                for (int v = 1; v <= g.numVertices; v++) {
+                    int u = v;
+                    for (int steps = 0; tree.parent[u] >= 0; steps++) {
+                        assertTrue(steps <= g.numVertices, what);
+                        u = tree.parent[u];
+                    }
+                    sum += tree.parent[v] < 0 ? 0 : tree.weight[v];
+                }
+                assertEquals(expected[1], sum, what);
+            }
+        }
+    }
+
+    @Test
+    void branchingWideWeights() {
+        Random random = new Random(9);
+        for (int i = 0; i < GRAPHS / 2; i++) {
+            BruteForce g = BruteForce.random(random);
+            // -5e8...1.5e9, too far apart for int edges from a new root
+            for (int e = 0; e < g.numEdges; e++) {
+                g.weight[e] *= 100_000_000;
+            }
+            long[] expected = g.branching();
+            for (DirectedMST.Engine engine : DirectedMST.Engine.values()) {
+                DirectedMST solver = g.solver();
+                String what = engine + " on\n" + g;
+                assertEquals(expected[1], solver.solveBranching(engine), what);
+                assertEquals(expected[0], solver.roots.length, what);
+            }
+        }
+    }
+
+    @Test
+    void updates() {
+        Random random = new Random(7);
+        for (int i = 0; i < GRAPHS / 2; i++) {
+            BruteForce g = BruteForce.random(random);
+            if (g.min(g.source) == null) {
+                continue;
+            }
+            DirectedMST solver = g.solver();
+            solver.solve(DirectedMST.Engine.ROUNDS);
+            for (int step = 0; step < 20; step++) {
+                int op = random.nextInt(4);
+                if (op == 0 || g.numEdges == 0) {
+                    int u = 1 + random.nextInt(g.numVertices);
+                    int v = 1 + random.nextInt(g.numVertices);
+                    int w = random.nextInt(21) - 5;
+                    assertEquals(g.addEdge(u, v, w), solver.addEdge(u, v, w));
+                } else if (op == 1) {
+                    int e = random.nextInt(g.numEdges);
+                    g.deleted[e] = true;
+                    solver.removeEdge(e);
+                } else {
+                    int e = random.nextInt(g.numEdges);
+                    int w = g.weight[e] + random.nextInt(11) - 5;
+                    g.weight[e] = w;
+                    solver.updateEdgeWeight(e, w);
+                }
+                Long expected = g.min(g.source);
+                String what = "step " + step + " on\n" + g;
+                if (expected == null) {
+                    assertThrows(IllegalStateException.class, solver::currentWeight, what);
+                    break;
+                }
+                assertEquals(expected.longValue(), solver.currentWeight(), what);
+                assertNull(g.invalid(solver.result(), g.source), what);
+            }
+        }
+    }
+}
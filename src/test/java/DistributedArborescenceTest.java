@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class DistributedArborescenceTest {
+
+    @Test
+    void dropsConnectionsWithoutHandshake() throws Exception {
+        BruteForce g = new BruteForce(4, 1, new int[]{1, 2, 3, 1, 4}, new int[]{2, 3, 4, 3, 2},
+                new int[]{5, 1, 2, 3, -1}, 5);
+        DistributedArborescence solver = new DistributedArborescence(g.csr(), g.numVertices, g.source);
+        try (ServerSocket server = new ServerSocket(0, 4, InetAddress.getLoopbackAddress())) {
+            int port = server.getLocalPort();
+            Thread clients = new Thread(() -> {
+                try {
+                    try (Socket stranger = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                        DataOutputStream out = new DataOutputStream(stranger.getOutputStream());
+                        out.writeInt(0x47455420); // "GET "
+                        out.writeInt(1);
+                        out.flush();
+                        // the coordinator hangs up on it
+                        assertEquals(-1, stranger.getInputStream().read());
+                    }
+                    DistributedArborescence.work("127.0.0.1", port);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            clients.start();
+            assertEquals(g.min(g.source).longValue(), solver.solve(server, 1));
+            clients.join();
+        }
+    }
+
+    @Test
+    void workerRejectsOtherServers() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread other = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    socket.getOutputStream().write("HTTP/1.1 400\r\n\r\n".getBytes());
+                } catch (IOException ignored) {
+                }
+            });
+            other.start();
+            assertThrows(IOException.class, () -> DistributedArborescence.work("127.0.0.1", server.getLocalPort()));
+            other.join();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class DualCertificateTest {
+
+    @Test
+    void provesEveryRoundSolve() {
+        Random random = new Random(20);
+        for (int i = 0; i < 2000; i++) {
+            BruteForce g = BruteForce.random(random);
+            if (g.min(g.source) == null) {
+                continue;
+            }
+            DirectedMST solver = g.solver();
+            long weight = solver.solve(DirectedMST.Engine.ROUNDS);
+            DualCertificate dual = solver.dualCertificate();
+            String what = g.toString();
+            assertEquals(weight, dual.objective(), what);
+            assertNull(dual.verify(g.csr(), solver.result()), what);
+        }
+    }
+
+    @Test
+    void provesAfterUpdates() {
+        Random random = new Random(21);
+        for (int i = 0; i < 500; i++) {
+            BruteForce g = BruteForce.random(random);
+            if (g.numEdges == 0 || g.min(g.source) == null) {
+                continue;
+            }
+            DirectedMST solver = g.solver();
+            solver.solve(DirectedMST.Engine.ROUNDS);
+            int e = random.nextInt(g.numEdges);
+            solver.updateEdgeWeight(e, g.weight[e] + random.nextInt(11) - 5);
+            solver.currentWeight();
+            assertNull(solver.dualCertificate().verify(solver.graph, solver.result()), g.toString());
+        }
+    }
+
+    @Test
+    void rejectsBrokenCertificates() {
+        // the cycle 2 <-> 3 is contracted, 4 hangs below 3
+        DirectedMST solver = new DirectedMST(4, 6, 1);
+        solver.addEdge(1, 2, 10);
+        solver.addEdge(1, 3, 12);
+        solver.addEdge(2, 3, 1);
+        solver.addEdge(3, 2, 2);
+        solver.addEdge(3, 4, 3);
+        solver.addEdge(1, 4, 8);
+        assertEquals(14, solver.solve(DirectedMST.Engine.ROUNDS));
+        DualCertificate dual = solver.dualCertificate();
+        Arborescence tree = solver.result();
+        assertNull(dual.verify(solver.graph, tree));
+        int cycle = 5;
+        assertEquals(cycle, dual.forestParent[2]);
+
+        // too much taken off the edges into the cycle
+        DualCertificate raised = copy(dual);
+        raised.value[cycle] += 1;
+        assertTrue(raised.verify(solver.graph, tree).startsWith("edge "), raised.verify(solver.graph, tree));
+
+        // feasible, but it proves less than the tree weighs
+        DualCertificate lowered = copy(dual);
+        lowered.value[4] -= 1;
+        assertTrue(lowered.verify(solver.graph, tree).startsWith("the dual sums to "));
+
+        DualCertificate negative = copy(dual);
+        negative.value[cycle] = -1;
+        negative.value[2] += dual.value[cycle] + 1;
+        assertTrue(negative.verify(solver.graph, tree).startsWith("cycle 5 has the negative value"));
+
+        // a tree that is not minimum: 4 from 1 instead of from 3
+        Arborescence worse = new Arborescence(tree.numVertices, tree.source, tree.parent.clone(),
+                tree.weight.clone(), tree.totalWeight + 5);
+        worse.parent[4] = 1;
+        worse.weight[4] = 8;
+        assertTrue(dual.verify(solver.graph, worse).startsWith("the dual sums to "));
+
+        // not a tree of the graph
+        Arborescence missing = new Arborescence(tree.numVertices, tree.source, tree.parent.clone(),
+                tree.weight.clone(), tree.totalWeight);
+        missing.weight[4] = 2;
+        assertTrue(dual.verify(solver.graph, missing).startsWith("vertex 4 "));
+    }
+
+    private static DualCertificate copy(DualCertificate dual) {
+        return new DualCertificate(dual.numVertices, dual.source, dual.forestParent.clone(),
+                Arrays.copyOf(dual.value, dual.value.length));
+    }
+}
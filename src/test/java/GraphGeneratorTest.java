@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class GraphGeneratorTest {
+
+    static DirectedMST load(GraphGenerator generator) throws IOException {
+        int n = generator.numVertices;
+        DirectedMST graph = new DirectedMST(n, (int) generator.numEdges(), generator.source());
+        generator.generate(graph::addEdge);
+        assertEquals(generator.numEdges(), graph.graph.numEdges);
+        return graph;
+    }
+
+    @Test
+    void nestedCyclesContractOneVertexPerRound() throws IOException {
+        for (int n : new int[]{3, 4, 5, 6, 10, 100, 1000, 3000}) {
+            DirectedMST graph = load(new GraphGenerator(GraphGenerator.Family.NESTED_CYCLES, n, 7));
+            graph.stats = new SolverStats();
+            long weight = graph.solve(DirectedMST.Engine.CONTRACTION);
+            assertEquals(n - 2, graph.stats.contractions, "n = " + n);
+            assertEquals(2, graph.stats.largestCycle, "n = " + n);
+
+            DirectedMST check = load(new GraphGenerator(GraphGenerator.Family.NESTED_CYCLES, n, 7));
+            assertEquals(check.solve(DirectedMST.Engine.TARJAN), weight, "n = " + n);
+        }
+    }
+
+    @Test
+    void familiesAreReachable() throws IOException {
+        for (GraphGenerator.Family family : GraphGenerator.Family.values()) {
+            for (int n : new int[]{1, 2, 50}) {
+                DirectedMST graph = load(new GraphGenerator(family, n, 3));
+                assertTrue(graph.solve(DirectedMST.Engine.TARJAN) >= 0, family + " n = " + n);
+            }
+        }
+    }
+}
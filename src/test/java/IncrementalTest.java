@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class IncrementalTest {
+
+    @Test
+    void repickWithoutSolving() {
+        DirectedMST solver = new DirectedMST(3, 4, 1);
+        int e12 = solver.addEdge(1, 2, 1);
+        int e13 = solver.addEdge(1, 3, 5);
+        int e23 = solver.addEdge(2, 3, 2);
+        solver.addEdge(3, 2, 10);
+        assertEquals(3, solver.solve(DirectedMST.Engine.ROUNDS));
+
+        // 3 is in no cycle, it takes 1 -> 3
+        solver.updateEdgeWeight(e23, 9);
+        assertFalse(solver.stale);
+        assertEquals(6, solver.currentWeight());
+        assertEquals(1, solver.result().parent[3]);
+
+        // 2 takes 3 -> 2, 3 does not hang below 2 any more
+        solver.updateEdgeWeight(e12, 20);
+        assertFalse(solver.stale);
+        assertEquals(15, solver.currentWeight());
+        assertEquals(3, solver.result().parent[2]);
+
+        // 2 -> 3 is left for 3, but 2 hangs below 3
+        solver.removeEdge(e13);
+        assertTrue(solver.stale);
+        assertEquals(29, solver.currentWeight());
+        assertFalse(solver.stale);
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class ParallelTextLoaderTest {
+    static final int N = 20000;
+
+    /**
+     * A chain of N vertices, an empty line, and edges that are not part of the graph,
+     * long enough to be cut into several ranges
+     */
+    static String chainWithTrailer() {
+        StringBuilder text = new StringBuilder();
+        text.append(N).append(' ').append(N - 1).append(" 1\n");
+        for (int v = 2; v <= N; v++) {
+            text.append(v - 1).append(' ').append(v).append(" 1\n");
+        }
+        text.append('\n');
+        for (int i = 0; i < N; i++) {
+            text.append("1 2 -5\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    void stopsAtFirstEmptyLine(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("graph.txt");
+        String text = chainWithTrailer();
+        Files.writeString(path, text);
+        DirectedMST sequential = DirectedMST.readText(new BufferedReader(new StringReader(text)));
+        assertEquals(N - 1, sequential.solve(DirectedMST.Engine.TARJAN));
+        for (int threads : new int[]{1, 2, 4}) {
+            DirectedMST graph = new ParallelTextLoader(threads).load(path);
+            assertEquals(N - 1, graph.graph.numEdges);
+            assertEquals(N - 1, graph.solve(DirectedMST.Engine.TARJAN));
+        }
+        assertEquals(N - 1, new SemiExternalArborescence(path, false).solve());
+    }
+
+    @Test
+    void shortFileWithEmptyLine(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("graph.txt");
+        Files.writeString(path, "3 2 1\n1 2 5\n2 3 1\n\n1 3 -7\n");
+        assertEquals(6, new ParallelTextLoader(2).load(path).solve(DirectedMST.Engine.TARJAN));
+        Files.writeString(path, "3 2 1\r\n1 2 5\r\n2 3 1\r\n\r\n1 3 -7\r\n");
+        assertEquals(6, new ParallelTextLoader(2).load(path).solve(DirectedMST.Engine.TARJAN));
+    }
+
+    @Test
+    void vertexOutOfRange(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("graph.txt");
+        Files.writeString(path, "3 3 1\n1 2 4\n2 3 1\n1 50 -100\n");
+        assertThrows(IOException.class, () -> new ParallelTextLoader(2).load(path));
+        Files.writeString(path, "3 2 1\n0 2 4\n2 3 1\n");
+        assertThrows(IOException.class, () -> new ParallelTextLoader(2).load(path));
+        Files.writeString(path, "3 2 4\n1 2 4\n2 3 1\n");
+        assertThrows(IOException.class, () -> new ParallelTextLoader(2).load(path));
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Jun Yu
+ */
+class ReusableSolverTest {
+
+    @Test
+    void endpointOutOfRangeAfterLargerGraph() {
+        ReusableSolver solver = new ReusableSolver();
+        int n = 100;
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        int[] weight = new int[n - 1];
+        for (int v = 2; v <= n; v++) {
+            from[v - 2] = v - 1;
+            to[v - 2] = v;
+            weight[v - 2] = 1;
+        }
+        assertEquals(n - 1, solver.solve(n, 1, from, to, weight, n - 1));
+
+        // vertex 50 is not in a graph of 3, the slots of the graph before must not be used
+        assertThrows(IllegalArgumentException.class,
+                () -> solver.solve(3, 1, new int[]{1, 2, 1}, new int[]{2, 3, 50}, new int[]{4, 1, -100}, 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> solver.solve(3, 1, new int[]{0, 1, 2}, new int[]{1, 2, 3}, new int[]{1, 1, 1}, 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> solver.solve(3, 4, new int[]{1, 2}, new int[]{2, 3}, new int[]{1, 1}, 2));
+        assertEquals(5, solver.solve(3, 1, new int[]{1, 2}, new int[]{2, 3}, new int[]{4, 1}, 2));
+    }
+
+    @Test
+    void batchReportsOutOfRange() throws IOException {
+        String input = "100 99 1\n" + chain(100) + "3 3 1\n1 2 4\n2 3 1\n1 50 -100\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BatchSolver batch = new BatchSolver(1, false);
+        assertEquals(2, batch.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out));
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        assertEquals("99", lines[0]);
+        assertTrue(lines[1].startsWith("error "), lines[1]);
+    }
+
+    private static String chain(int n) {
+        StringBuilder text = new StringBuilder();
+        for (int v = 2; v <= n; v++) {
+            text.append(v - 1).append(' ').append(v).append(" 1\n");
+        }
+        return text.toString();
+    }
+}